@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import java.util.concurrent.TimeUnit;
+import net.jrouter.rpc.DemoClientInterface;
+import net.jrouter.rpc.RpcException;
+import net.jrouter.rpc.router.ResultCallback;
+import net.jrouter.rpc.router.client.websocket.WebSocketClientActionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code JavassistObjectFactory}生成的客户端代理调用的基准测试；{@code ActionFactory}不发送消息，直接返回调用参数。
+ *
+ * @see RpcClientActionFactory#invokeMethod
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientProxyBenchmark {
+
+    private WebSocketClientActionFactory clientActionFactory;
+
+    private DemoClientInterface client;
+
+    @Setup
+    public void setUp() {
+        clientActionFactory = new WebSocketClientActionFactory(null, new WebSocketClientActionFactory.Properties()) {
+            @Override
+            protected Object invoke(String path, ClientMethod method, Object[] actualParams, ResultCallback callback) throws RpcException {
+                //do nothing just return params
+                return actualParams;
+            }
+        };
+        clientActionFactory.addActions(DemoClientInterface.class);
+        client = clientActionFactory.getClient(DemoClientInterface.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        clientActionFactory.clear();
+    }
+
+    @Benchmark
+    public long invokeNoParameter() {
+        return client.time();
+    }
+
+    @Benchmark
+    public String invokeParameter() {
+        return client.echo("tester");
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import net.jrouter.rpc.protocol.RpcProtocol;
+import net.jrouter.rpc.serialize.ObjectSerialization;
+import net.jrouter.rpc.util.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ProtocolSerialization}序列/反序列化的基准测试，比较各{@code ObjectSerialization}的耗时与内存分配。
+ *
+ * @see Constants#SUPPORTED_OBJECT_SERIALIZATIONS
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProtocolSerializationBenchmark {
+
+    /**
+     * {@code ObjectSerialization}类名的前缀（忽略大小写）。
+     */
+    @Param({"java", "hessian", "jackson", "fastjson", "fst", "kryo"})
+    private String serialization;
+
+    private ProtocolSerialization protocolSerialization;
+
+    private RpcProtocol protocol;
+
+    private ByteBuffer serialized;
+
+    @Setup
+    public void setUp() {
+        ObjectSerialization objectSerialization = Constants.SUPPORTED_OBJECT_SERIALIZATIONS.values().stream()
+                .filter(os -> os.getClass().getSimpleName().toLowerCase(Locale.ROOT).startsWith(serialization))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("ObjectSerialization [" + serialization + "] is not loaded."));
+        protocolSerialization = new ProtocolSerialization(objectSerialization, Constants.SUPPORTED_OBJECT_SERIALIZATIONS);
+        protocol = new RpcProtocol();
+        protocol.setId(6_422_431_524_179_968L);
+        //serialized by the protocol's serialization type
+        protocol.setSerializationType(objectSerialization.getType());
+        protocol.setPath("/net.jrouter.rpc.DemoService/getProtocol");
+        protocol.setParameters(new Object[]{1000, "abcde", Arrays.asList("a", "bb", "ccc")});
+        serialized = protocolSerialization.serializeByteBuffer(protocol);
+    }
+
+    @Benchmark
+    public ByteBuffer serialize() {
+        return protocolSerialization.serializeByteBuffer(protocol);
+    }
+
+    @Benchmark
+    public RpcProtocol deserialize() {
+        return protocolSerialization.deserializeByteBuffer(serialized.duplicate(), RpcProtocol.class);
+    }
+
+    @Benchmark
+    public RpcProtocol roundTrip() {
+        return protocolSerialization.deserializeByteBuffer(protocolSerialization.serializeByteBuffer(protocol), RpcProtocol.class);
+    }
+}
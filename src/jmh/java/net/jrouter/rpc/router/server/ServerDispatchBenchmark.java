@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import net.jrouter.rpc.DemoService;
+import net.jrouter.rpc.protocol.RpcProtocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link RpcServerActionFactory}调用分派（含拦截器栈）的基准测试。
+ *
+ * @see DemoService
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerDispatchBenchmark {
+
+    private RpcServerActionFactory<Object> serverActionFactory;
+
+    private RpcProtocol timeProtocol;
+
+    private RpcProtocol echoProtocol;
+
+    private ByteBuffer echoMessage;
+
+    @Setup
+    public void setUp() {
+        serverActionFactory = new RpcServerActionFactory<>(new RpcServerActionFactory.Properties());
+        serverActionFactory.addActions(DemoService.class);
+        timeProtocol = new RpcProtocol();
+        timeProtocol.setId(1L);
+        timeProtocol.setPath("/" + DemoService.class.getCanonicalName() + "/time");
+        echoProtocol = new RpcProtocol();
+        echoProtocol.setId(2L);
+        echoProtocol.setPath("/" + DemoService.class.getCanonicalName() + "/echo");
+        echoProtocol.setParameters(new Object[]{"tester"});
+        echoMessage = serverActionFactory.getObjectSerialization().serializeByteBuffer(echoProtocol);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serverActionFactory.clear();
+    }
+
+    /**
+     * 已解析的协议对象直接调用。
+     */
+    @Benchmark
+    public Object invokeNoParameter() {
+        return serverActionFactory.invokeAction(timeProtocol, null);
+    }
+
+    /**
+     * 已解析的协议对象直接调用（含参数转换）。
+     */
+    @Benchmark
+    public Object invokeParameter() {
+        return serverActionFactory.invokeAction(echoProtocol, null);
+    }
+
+    /**
+     * 接收消息：反序列化并调用。
+     */
+    @Benchmark
+    public Object onMessage() {
+        return serverActionFactory.onMessage(echoMessage.duplicate(), null);
+    }
+}
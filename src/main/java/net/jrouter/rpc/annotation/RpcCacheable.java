@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 指明 RPC 方法的返回结果可于客户端缓存（幂等的只读方法）；于客户端生成代理类时读取。
+ *
+ * 以调用路径及序列化后的调用参数为键，缓存成功返回的结果；命中时不发出调用请求。
+ * 仅对可取得返回结果的调用生效：异步方法及带回调参数的方法，流式返回结果的方法除外。
+ * 缓存的结果对象由多个调用共享，不应修改。
+ *
+ * @see net.jrouter.rpc.router.client.ResultCache
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RpcCacheable {
+
+    /**
+     * 缓存结果的有效时间（毫秒），自返回结果时起算；非正数表示不过期。
+     *
+     * @return 缓存结果的有效时间。
+     */
+    long ttlMillis() default 60000;
+
+    /**
+     * 缓存结果的最大数量，超出时淘汰最近最少使用的结果。
+     *
+     * @return 缓存结果的最大数量。
+     */
+    int maxSize() default 1024;
+}
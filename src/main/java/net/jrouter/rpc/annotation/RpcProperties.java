@@ -23,8 +23,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * TODO.
- * 指明 RPC 方法所需要的特定属性。
+ * 指明 RPC 方法所需要的特定属性；于客户端生成代理类时读取。
  */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
@@ -32,9 +31,20 @@ import java.lang.annotation.Target;
 public @interface RpcProperties {
 
     /**
-     * 回调任务记录的默认等待时间。
+     * 回调任务记录的等待时间（毫秒），超时后移除回调任务记录并以{@code TimeoutException}完成；
+     * 非正数表示使用客户端的默认等待时间。
      *
-     * @return 回调任务记录的默认等待时间。
+     * @return 回调任务记录的等待时间。
      */
     long callbackTimeoutMillis() default -1;
+
+    /**
+     * 调用请求的压缩阈值（字节），数据长度达到此值时压缩（需客户端设置{@code Compressor}）；
+     * 0 表示不压缩，负数表示使用客户端的默认压缩阈值。
+     *
+     * @return 调用请求的压缩阈值。
+     *
+     * @see net.jrouter.rpc.router.impl.ProtocolSerialization#setCompressionThreshold(String, int)
+     */
+    int compressionThreshold() default -1;
 }
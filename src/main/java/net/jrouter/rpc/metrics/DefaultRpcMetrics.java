@@ -0,0 +1,342 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 默认的{@link RpcMetrics}实现：按调用路径记录无锁的计数器，以及各阶段耗时和协议帧长度的直方图。
+ *
+ * @see Histogram
+ */
+public class DefaultRpcMetrics implements RpcMetrics {
+
+    /**
+     * 未能解析调用路径时使用的路径。
+     */
+    public static final String UNKNOWN_PATH = "<unknown>";
+
+    /**
+     * 调用路径:度量 映射。
+     */
+    private final ConcurrentMap<String, PathMetrics> pathMetrics = new ConcurrentHashMap<>(64);
+
+    /**
+     * 记录的调用路径的最大数量，超出后新的调用路径记录于{@link #UNKNOWN_PATH}.
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private volatile int maxPaths = 1024;
+
+    /**
+     * 接收的消息数。
+     */
+    private final LongAdder receivedMessages = new LongAdder();
+
+    /**
+     * 接收的消息字节数。
+     */
+    private final LongAdder receivedBytes = new LongAdder();
+
+    /**
+     * 直方图的度量项。
+     */
+    public enum Metric {
+
+        /** 序列化耗时 */
+        ENCODE_TIME,
+        /** 发送耗时 */
+        SEND_TIME,
+        /** 反序列化耗时 */
+        DECODE_TIME,
+        /** 分派等待时间 */
+        DISPATCH_TIME,
+        /** 执行耗时 */
+        EXECUTE_TIME,
+        /** 调用耗时 */
+        COMPLETE_TIME,
+        /** 发送的协议帧长度 */
+        ENCODE_SIZE,
+        /** 接收的协议帧长度 */
+        DECODE_SIZE
+    }
+
+    @Override
+    public void onEncode(String path, int bytes, long nanos) {
+        PathMetrics metrics = get(path);
+        metrics.bytesOut.add(bytes);
+        metrics.histogram(Metric.ENCODE_SIZE).record(bytes);
+        metrics.histogram(Metric.ENCODE_TIME).record(nanos);
+    }
+
+    @Override
+    public void onSend(String path, long nanos, Throwable cause) {
+        PathMetrics metrics = get(path);
+        if (cause != null) {
+            metrics.sendErrors.increment();
+        }
+        metrics.histogram(Metric.SEND_TIME).record(nanos);
+    }
+
+    @Override
+    public void onReceive(int bytes) {
+        receivedMessages.increment();
+        receivedBytes.add(bytes);
+    }
+
+    @Override
+    public void onDecode(String path, int bytes, long nanos) {
+        PathMetrics metrics = get(path);
+        metrics.bytesIn.add(bytes);
+        metrics.histogram(Metric.DECODE_SIZE).record(bytes);
+        metrics.histogram(Metric.DECODE_TIME).record(nanos);
+    }
+
+    @Override
+    public void onDispatch(String path, long nanos) {
+        get(path).histogram(Metric.DISPATCH_TIME).record(nanos);
+    }
+
+    @Override
+    public void onExecute(String path, long nanos, Throwable cause) {
+        get(path).histogram(Metric.EXECUTE_TIME).record(nanos);
+    }
+
+    @Override
+    public void onComplete(String path, long nanos, Throwable cause) {
+        PathMetrics metrics = get(path);
+        metrics.calls.increment();
+        if (cause != null) {
+            metrics.errors.increment();
+        }
+        metrics.histogram(Metric.COMPLETE_TIME).record(nanos);
+    }
+
+    @Override
+    public void onCache(String path, boolean hit) {
+        PathMetrics metrics = get(path);
+        if (hit) {
+            metrics.cacheHits.increment();
+        } else {
+            metrics.cacheMisses.increment();
+        }
+    }
+
+    /**
+     * 获取或创建调用路径的度量；调用路径数量达到上限时使用{@link #UNKNOWN_PATH}.
+     */
+    private PathMetrics get(String path) {
+        String key = path == null ? UNKNOWN_PATH : path;
+        PathMetrics metrics = pathMetrics.get(key);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (pathMetrics.size() >= maxPaths) {
+            key = UNKNOWN_PATH;
+        }
+        return pathMetrics.computeIfAbsent(key, PathMetrics::new);
+    }
+
+    /**
+     * 返回指定调用路径的度量。
+     *
+     * @param path 调用路径。
+     *
+     * @return 调用路径的度量；无记录时为 null.
+     */
+    public PathMetrics getPathMetrics(String path) {
+        return pathMetrics.get(path == null ? UNKNOWN_PATH : path);
+    }
+
+    /**
+     * 返回所有调用路径的度量。
+     *
+     * @return 调用路径:度量 的只读映射。
+     */
+    public Map<String, PathMetrics> getPathMetrics() {
+        return Collections.unmodifiableMap(pathMetrics);
+    }
+
+    /**
+     * 返回接收的消息数。
+     *
+     * @return 接收的消息数。
+     */
+    public long getReceivedMessages() {
+        return receivedMessages.sum();
+    }
+
+    /**
+     * 返回接收的消息字节数。
+     *
+     * @return 接收的消息字节数。
+     */
+    public long getReceivedBytes() {
+        return receivedBytes.sum();
+    }
+
+    /**
+     * 清空所有度量。
+     */
+    public void reset() {
+        pathMetrics.clear();
+        receivedMessages.reset();
+        receivedBytes.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "DefaultRpcMetrics{" + "paths=" + pathMetrics.size() + ", receivedMessages=" + getReceivedMessages()
+                + ", receivedBytes=" + getReceivedBytes() + '}';
+    }
+
+    /**
+     * 调用路径的度量；直方图于首次记录时创建。
+     */
+    public static class PathMetrics {
+
+        /**
+         * 调用路径。
+         */
+        @lombok.Getter
+        private final String path;
+
+        /**
+         * 完成的调用数。
+         */
+        private final LongAdder calls = new LongAdder();
+
+        /**
+         * 异常完成的调用数。
+         */
+        private final LongAdder errors = new LongAdder();
+
+        /**
+         * 发送失败数。
+         */
+        private final LongAdder sendErrors = new LongAdder();
+
+        /**
+         * 发送的字节数。
+         */
+        private final LongAdder bytesOut = new LongAdder();
+
+        /**
+         * 接收的字节数。
+         */
+        private final LongAdder bytesIn = new LongAdder();
+
+        /**
+         * 返回结果缓存的命中数。
+         */
+        private final LongAdder cacheHits = new LongAdder();
+
+        /**
+         * 返回结果缓存的未命中数。
+         */
+        private final LongAdder cacheMisses = new LongAdder();
+
+        /**
+         * 各度量项的直方图。
+         */
+        private final AtomicReferenceArray<Histogram> histograms = new AtomicReferenceArray<>(Metric.values().length);
+
+        /**
+         * Constructor.
+         *
+         * @param path 调用路径。
+         */
+        PathMetrics(String path) {
+            this.path = path;
+        }
+
+        /**
+         * 获取或创建度量项的直方图。
+         */
+        private Histogram histogram(Metric metric) {
+            int index = metric.ordinal();
+            Histogram histogram = histograms.get(index);
+            if (histogram == null) {
+                histograms.compareAndSet(index, null, new Histogram());
+                histogram = histograms.get(index);
+            }
+            return histogram;
+        }
+
+        /**
+         * 返回度量项的直方图。
+         *
+         * @param metric 度量项。
+         *
+         * @return 直方图；无记录时为 null.
+         */
+        public Histogram getHistogram(Metric metric) {
+            return histograms.get(metric.ordinal());
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getSendErrors() {
+            return sendErrors.sum();
+        }
+
+        public long getBytesOut() {
+            return bytesOut.sum();
+        }
+
+        public long getBytesIn() {
+            return bytesIn.sum();
+        }
+
+        public long getCacheHits() {
+            return cacheHits.sum();
+        }
+
+        public long getCacheMisses() {
+            return cacheMisses.sum();
+        }
+
+        /**
+         * 返回结果缓存的命中率；无访问时为 0.
+         *
+         * @return 命中率。
+         */
+        public double getCacheHitRate() {
+            long hits = cacheHits.sum();
+            long total = hits + cacheMisses.sum();
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "PathMetrics{" + "path=" + path + ", calls=" + getCalls() + ", errors=" + getErrors()
+                    + ", bytesOut=" + getBytesOut() + ", bytesIn=" + getBytesIn()
+                    + ", complete=" + getHistogram(Metric.COMPLETE_TIME) + '}';
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的对数-线性分桶直方图（类似 HdrHistogram）：每个 2 的幂区间均分为 16 个桶，相对误差不超过 1/16.
+ *
+ * 记录值范围为 [0, 2^40)，超出范围的值按边界值记录；百分位值返回所在桶的上界。
+ */
+public class Histogram {
+
+    /**
+     * 每个 2 的幂区间的分桶位数。
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * 每个 2 的幂区间的分桶数。
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 可记录的最大值（约 18 分钟的纳秒数、1 TB 的字节数）。
+     */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    /**
+     * 分桶计数。
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(bucketIndex(MAX_VALUE) + 1);
+
+    /**
+     * 记录数。
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * 记录值的总和。
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * 记录的最大值。
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录指定的值。
+     *
+     * @param value 记录值。
+     */
+    public void record(long value) {
+        long v = value < 0 ? 0 : (value > MAX_VALUE ? MAX_VALUE : value);
+        counts.incrementAndGet(bucketIndex(v));
+        count.increment();
+        total.add(v);
+        long cur;
+        while (v > (cur = max.get())) {
+            if (max.compareAndSet(cur, v)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 返回记录数。
+     *
+     * @return 记录数。
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 返回记录的最大值。
+     *
+     * @return 最大值；无记录时为 0.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * 返回记录值的平均值。
+     *
+     * @return 平均值；无记录时为 0.
+     */
+    public double getMean() {
+        long c = count.sum();
+        return c == 0 ? 0 : (double) total.sum() / c;
+    }
+
+    /**
+     * 返回指定百分位的值（所在桶的上界，不超过记录的最大值）。
+     *
+     * @param percentile 百分位，如 99.9.
+     *
+     * @return 百分位值；无记录时为 0.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long c = count.sum();
+        if (c == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * c));
+        long cumulative = 0;
+        for (int i = 0, len = counts.length(); i < len; i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= target) {
+                return Math.min(highestValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * 清空记录；与记录并发时结果不精确。
+     */
+    public void reset() {
+        for (int i = 0, len = counts.length(); i < len; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    /**
+     * 值所在的桶索引。
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+    }
+
+    /**
+     * 桶所包含的最大值。
+     */
+    static long highestValue(int index) {
+        if (index < SUB_BUCKET_COUNT * 2) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lowest = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{" + "count=" + getCount() + ", mean=" + String.format("%.1f", getMean())
+                + ", p50=" + getValueAtPercentile(50) + ", p99=" + getValueAtPercentile(99)
+                + ", p999=" + getValueAtPercentile(99.9) + ", max=" + getMax() + '}';
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.metrics;
+
+/**
+ * RPC 调用过程的度量接口；各方法于调用过程的相应阶段回调，默认无操作。
+ *
+ * 实现类需保证线程安全且不阻塞（于 I/O 线程中回调）；时间单位均为纳秒。
+ * 路径参数为调用路径，未能解析调用路径时为 null.
+ *
+ * @see DefaultRpcMetrics
+ * @see net.jrouter.rpc.router.interceptor.MetricsInterceptor
+ */
+public interface RpcMetrics {
+
+    /**
+     * 无操作的度量。
+     */
+    RpcMetrics NONE = new RpcMetrics() {
+        @Override
+        public String toString() {
+            return "RpcMetrics.NONE";
+        }
+    };
+
+    /**
+     * 协议对象序列化完成（客户端的调用请求、服务端的返回结果）。
+     *
+     * @param path 调用路径。
+     * @param bytes 序列化后的协议帧长度。
+     * @param nanos 序列化耗时。
+     */
+    default void onEncode(String path, int bytes, long nanos) {
+    }
+
+    /**
+     * 协议帧发送完成（由传输层通知）。
+     *
+     * @param path 调用路径。
+     * @param nanos 自开始调用至发送完成的耗时。
+     * @param cause 发送失败的异常；发送成功为 null.
+     */
+    default void onSend(String path, long nanos, Throwable cause) {
+    }
+
+    /**
+     * 接收到传输层的消息（单个或批量协议帧）。
+     *
+     * @param bytes 消息长度。
+     */
+    default void onReceive(int bytes) {
+    }
+
+    /**
+     * 协议帧反序列化完成。
+     *
+     * @param path 调用路径。
+     * @param bytes 协议帧长度。
+     * @param nanos 反序列化耗时。
+     */
+    default void onDecode(String path, int bytes, long nanos) {
+    }
+
+    /**
+     * 服务端调用开始执行（由分派策略执行时包含排队等待的时间）。
+     *
+     * @param path 调用路径。
+     * @param nanos 自反序列化完成至开始执行的等待时间。
+     */
+    default void onDispatch(String path, long nanos) {
+    }
+
+    /**
+     * 服务端业务方法执行完成（包含其内层的拦截器）。
+     *
+     * @param path 调用路径。
+     * @param nanos 执行耗时。
+     * @param cause 执行异常；执行成功为 null.
+     *
+     * @see net.jrouter.rpc.router.interceptor.MetricsInterceptor
+     */
+    default void onExecute(String path, long nanos, Throwable cause) {
+    }
+
+    /**
+     * 客户端访问返回结果缓存（{@link net.jrouter.rpc.annotation.RpcCacheable}）。
+     *
+     * @param path 调用路径。
+     * @param hit 是否命中。
+     */
+    default void onCache(String path, boolean hit) {
+    }
+
+    /**
+     * 调用完成：客户端自开始调用至收到返回结果（或超时、发送失败），服务端自接收消息至调用返回。
+     *
+     * @param path 调用路径。
+     * @param nanos 调用耗时。
+     * @param cause 调用异常；调用成功为 null.
+     */
+    default void onComplete(String path, long nanos, Throwable cause) {
+    }
+}
@@ -17,6 +17,7 @@
 package net.jrouter.rpc.protocol;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import net.jrouter.rpc.util.Constants;
 
@@ -28,15 +29,38 @@ import net.jrouter.rpc.util.Constants;
 public class RpcProtocol implements Protocol<String>, Cloneable {
 
     /**
-     * 唯一标识记录集合。
+     * 唯一标识。
      */
-    private List<Long> records = new ArrayList<>(2);
+    @lombok.Getter(lombok.AccessLevel.NONE)
+    @lombok.Setter(lombok.AccessLevel.NONE)
+    private long id;
+
+    /**
+     * 是否已设置唯一标识。
+     */
+    @lombok.Getter(lombok.AccessLevel.NONE)
+    @lombok.Setter(lombok.AccessLevel.NONE)
+    private boolean identified;
+
+    /**
+     * 首个唯一标识之后的其他标识记录，仅在出现不同标识时才分配。
+     */
+    @lombok.Getter(lombok.AccessLevel.NONE)
+    @lombok.Setter(lombok.AccessLevel.NONE)
+    private List<Long> records;
 
     /**
      * 调用路径。
      */
     private String path;
 
+    /**
+     * 调用路径的{@code int}型标识；非 0 时可不传递调用路径，由服务端根据标识查找。
+     *
+     * @see net.jrouter.rpc.router.impl.PathIdTable
+     */
+    private int pathId;
+
     /**
      * 调用参数。
      */
@@ -47,6 +71,14 @@ public class RpcProtocol implements Protocol<String>, Cloneable {
      */
     private Object result;
 
+    /**
+     * 流式返回结果的帧类型，由协议头传递（不参与序列化）；0 表示非流式帧。
+     *
+     * @see net.jrouter.rpc.router.impl.ProtocolSerialization#PROTOCOL_TYPE_STREAM
+     * @see net.jrouter.rpc.router.impl.ProtocolSerialization#PROTOCOL_TYPE_STREAM_END
+     */
+    private transient byte streamType;
+
     /**
      * 序列化类型。
      */
@@ -54,21 +86,72 @@ public class RpcProtocol implements Protocol<String>, Cloneable {
 
     @Override
     public void setId(Long id) {
-        records.add(id);
+        if (id == null) {
+            return;
+        }
+        if (!identified) {
+            this.id = id;
+            this.identified = true;
+        } else if (this.id != id) {
+            //重复设置相同标识（如解码时由帧头回填）不再记录
+            if (records == null) {
+                records = new ArrayList<>(2);
+            }
+            records.add(id);
+        }
     }
 
     @Override
     public Long getId() {
-        return records.isEmpty() ? null : records.get(0);
+        return identified ? id : null;
+    }
+
+    /**
+     * 获取全部唯一标识记录（首个为当前唯一标识）。
+     *
+     * @return 唯一标识记录集合。
+     */
+    @Override
+    public List<Long> getRecords() {
+        if (!identified) {
+            return Collections.emptyList();
+        }
+        if (records == null) {
+            return Collections.singletonList(id);
+        }
+        List<Long> all = new ArrayList<>(records.size() + 1);
+        all.add(id);
+        all.addAll(records);
+        return all;
+    }
+
+    /**
+     * 重置唯一标识记录（供基于属性的序列化方式反序列化）。
+     *
+     * @param records 唯一标识记录集合。
+     */
+    public void setRecords(List<Long> records) {
+        this.id = 0;
+        this.identified = false;
+        this.records = null;
+        if (records != null) {
+            for (Long record : records) {
+                setId(record);
+            }
+        }
     }
 
     @Override
     public String toString() {
-        return "RpcProtocol{" + "ids=" + records + ", path=" + path + ", parameters=[" + (parameters == null ? "" : "(" + parameters.length + ")") + "], result=" + (result == null ? "" : result.getClass().getName()) + '}';
+        return "RpcProtocol{" + "ids=" + getRecords() + ", path=" + path + (pathId == 0 ? "" : ", pathId=" + pathId) + (streamType == 0 ? "" : ", streamType=" + streamType) + ", parameters=[" + (parameters == null ? "" : "(" + parameters.length + ")") + "], result=" + (result == null ? "" : result.getClass().getName()) + '}';
     }
 
     @Override
     public RpcProtocol clone() throws CloneNotSupportedException {
-        return (RpcProtocol) super.clone();
+        RpcProtocol protocol = (RpcProtocol) super.clone();
+        if (records != null) {
+            protocol.records = new ArrayList<>(records);
+        }
+        return protocol;
     }
 }
@@ -16,8 +16,11 @@
  */
 package net.jrouter.rpc.router;
 
+import java.nio.ByteBuffer;
 import jrouter.ActionFactory;
 import net.jrouter.rpc.RpcException;
+import net.jrouter.rpc.metrics.RpcMetrics;
+import net.jrouter.rpc.router.result.StreamResultSender;
 import net.jrouter.rpc.serialize.ObjectSerialization;
 
 /**
@@ -40,10 +43,50 @@ public interface RpcActionFactory<S> extends ActionFactory<String> {
      */
     <T> T onMessage(byte[] protocol, S session) throws RpcException;
 
+    /**
+     * 接收 RPC {@code ByteBuffer}类型消息（position 至 limit 为完整的协议帧）；{@code ByteBuffer}仅在此方法调用期间有效。
+     * 默认复制为{@code byte[]}后调用{@link #onMessage(byte[], java.lang.Object)}，实现类可覆盖以直接解析而无需复制。
+     *
+     * @param <T> type.
+     * @param protocol {@code ByteBuffer} data.
+     * @param session RPC Session object.
+     *
+     * @return 调用结果。
+     *
+     * @throws RpcException 如果发生调用错误。
+     */
+    default <T> T onMessage(ByteBuffer protocol, S session) throws RpcException {
+        byte[] bytes = new byte[protocol.remaining()];
+        protocol.duplicate().get(bytes);
+        return onMessage(bytes, session);
+    }
+
     /**
      * 返回对象的序列/反序列化提供者。
      *
      * @return 对象序列/反序列化提供者。
      */
     ObjectSerialization getObjectSerialization();
+
+    /**
+     * 返回调用过程的度量；默认无操作。
+     *
+     * @return 调用过程的度量。
+     */
+    default RpcMetrics getMetrics() {
+        return RpcMetrics.NONE;
+    }
+
+    /**
+     * 开始发送{@code Session}的流式返回结果；默认于帧的完成回调线程中继续迭代，且不支持客户端取消。
+     *
+     * @param session RPC Session object.
+     * @param path 调用路径。
+     * @param sender 流式返回结果的发送器。
+     *
+     * @see StreamResultSender#start(java.util.concurrent.Executor, Runnable)
+     */
+    default void startStream(S session, String path, StreamResultSender sender) {
+        sender.start();
+    }
 }
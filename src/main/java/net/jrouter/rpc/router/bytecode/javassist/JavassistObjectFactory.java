@@ -18,7 +18,9 @@ package net.jrouter.rpc.router.bytecode.javassist;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import javassist.CannotCompileException;
@@ -35,6 +37,9 @@ import jrouter.ActionFactory;
 import jrouter.ObjectFactory;
 import net.jrouter.rpc.RpcException;
 import net.jrouter.rpc.annotation.RpcConsumer;
+import net.jrouter.rpc.router.ResultCallback;
+import net.jrouter.rpc.router.client.ClientMethod;
+import net.jrouter.rpc.router.client.RpcClientActionFactory;
 import jrouter.util.CollectionUtil;
 import jrouter.util.MethodUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -42,6 +47,7 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * 提供基于javassist的对象工厂，动态构建调用{@link ActionFactory#invokeAction}方法的接口代理对象。
  * 需实现抽象方法{@link #parsePath}，指明{@link ActionFactory#invokeAction}方法中的{@code String}类型路径参数。
+ * 存在编译期预生成的接口代理类（{@link RpcConsumerProxyProcessor}）时优先使用预生成的代理类。
  */
 @Slf4j
 public abstract class JavassistObjectFactory implements ObjectFactory {
@@ -58,6 +64,15 @@ public abstract class JavassistObjectFactory implements ObjectFactory {
     /** {@link ActionFactory}对象属性名称 */
     static final String PROXY_CLASS_ACTION_FACTORY_FIELD_NAME = "_actionFactory";
 
+    /** 代理方法调用属性（{@link ClientMethod}数组）的静态属性名称 */
+    static final String PROXY_CLASS_CLIENT_METHODS_FIELD_NAME = "_clientMethods";
+
+    /** 预生成（编译期由{@link RpcConsumerProxyProcessor}生成）的接口代理类后缀 */
+    static final String PREGENERATED_CLASS_SUFFIX = "$$JR_Proxy";
+
+    /** 预生成代理类中代理方法（按调用序号排列的{@link Method}数组）的静态属性名称 */
+    static final String PROXY_CLASS_PROXY_METHODS_FIELD_NAME = "_proxyMethods";
+
     /** 计数器 */
     private static final AtomicInteger COUNTER = new AtomicInteger(0x10000);
 
@@ -86,17 +101,82 @@ public abstract class JavassistObjectFactory implements ObjectFactory {
             return null;
         }
         try {
+            Class<T> pregeneratedClass = loadPregeneratedClass(originalInterface);
+            if (pregeneratedClass != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Using pre-generated proxy class [{}] at : {}", pregeneratedClass.getName(), originalInterface);
+                }
+                return newPregeneratedInstance(originalInterface, pregeneratedClass);
+            }
             if (log.isDebugEnabled()) {
                 log.debug("Creating proxy interface at : {}", originalInterface);
             }
-            Class<T> proxyClass = (Class) createInterfaceProxyClass(originalInterface)
+            List<ClientMethod> clientMethods = new ArrayList<>(8);
+            Class<T> proxyClass = (Class) createInterfaceProxyClass(originalInterface, clientMethods)
                     .toClass(originalInterface.getClassLoader(), originalInterface.getProtectionDomain());
+            if (isClientMethodSupported()) {
+                Field f = proxyClass.getDeclaredField(PROXY_CLASS_CLIENT_METHODS_FIELD_NAME);
+                f.setAccessible(true);
+                f.set(null, clientMethods.toArray(new ClientMethod[clientMethods.size()]));
+            }
             return newInstance(originalInterface, proxyClass);
         } catch (Exception e) {
             throw new RpcException(e);
         }
     }
 
+    /**
+     * 加载编译期预生成的接口代理类（接口名称 + {@link #PREGENERATED_CLASS_SUFFIX}）。
+     *
+     * @param <T> 接口类型。
+     * @param originalInterface 原有接口的{@code Class}类型。
+     *
+     * @return 预生成的接口代理类，不存在或不可用时返回 null。
+     */
+    private <T> Class<T> loadPregeneratedClass(Class<T> originalInterface) {
+        String className = originalInterface.getName() + PREGENERATED_CLASS_SUFFIX;
+        try {
+            Class<?> clazz = Class.forName(className, true, originalInterface.getClassLoader());
+            if (originalInterface.isAssignableFrom(clazz)) {
+                return (Class<T>) clazz;
+            }
+            log.warn("Pre-generated class [{}] does not implement {}, ignore.", className, originalInterface);
+        } catch (ClassNotFoundException e) {
+            //not pre-generated
+        } catch (LinkageError e) {
+            log.warn("Can't load pre-generated class [{}], generate at runtime instead.", className, e);
+        }
+        return null;
+    }
+
+    /**
+     * 根据预生成的接口代理类生成一个新的对象实例，并设置代理方法的调用属性。
+     *
+     * @param <T> 接口类型。
+     * @param originalInterface 原有接口的{@code Class}类型。
+     * @param pregeneratedClass 预生成的接口代理类。
+     *
+     * @return 新的对象实例。
+     *
+     * @throws java.lang.Exception if exception occurs.
+     */
+    private <T> T newPregeneratedInstance(Class<T> originalInterface, Class<T> pregeneratedClass) throws Exception {
+        Field f = pregeneratedClass.getDeclaredField(PROXY_CLASS_PROXY_METHODS_FIELD_NAME);
+        f.setAccessible(true);
+        Method[] methods = (Method[]) f.get(null);
+        //path is required even not RpcClientActionFactory
+        ClientMethod[] clientMethods = new ClientMethod[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            clientMethods[i] = createClientMethod(parsePath(originalInterface, methods[i]), methods[i]);
+        }
+        T t = newInstance(originalInterface, pregeneratedClass);
+        //instance field, one pre-generated class may be shared by multiple factories
+        f = pregeneratedClass.getDeclaredField(PROXY_CLASS_CLIENT_METHODS_FIELD_NAME);
+        f.setAccessible(true);
+        f.set(t, clientMethods);
+        return t;
+    }
+
     /**
      * 根据原有接口的{@code Class}类型和生成的{@code Class}类型生成一个新的对象实例。可用于子类继承已适配特定的容器。
      *
@@ -125,13 +205,14 @@ public abstract class JavassistObjectFactory implements ObjectFactory {
      * 根据接口类型构建{@link CtClass}对象。
      *
      * @param interfaceClass 接口类型。
+     * @param clientMethods 收集代理方法的调用属性。
      *
      * @return CtClass对象。
      *
      * @throws CannotCompileException when bytecode transformation has failed.
      * @throws NotFoundException when class is not found.
      */
-    private CtClass createInterfaceProxyClass(Class<?> interfaceClass) throws CannotCompileException, NotFoundException {
+    private CtClass createInterfaceProxyClass(Class<?> interfaceClass, List<ClientMethod> clientMethods) throws CannotCompileException, NotFoundException {
         ClassPool classPool = ClassPool.getDefault();
         ClassClassPath classPath = new ClassClassPath(interfaceClass);
         classPool.insertClassPath(classPath);
@@ -149,13 +230,16 @@ public abstract class JavassistObjectFactory implements ObjectFactory {
             proxyClass.addMethod(createSetMethod(proxyClass, PROXY_CLASS_TARGET_CLASS_FIELD_NAME, Class.class));
             proxyClass.addField(CtField.make("private jrouter.ActionFactory " + PROXY_CLASS_ACTION_FACTORY_FIELD_NAME + ";", proxyClass));
             proxyClass.addMethod(createSetMethod(proxyClass, PROXY_CLASS_ACTION_FACTORY_FIELD_NAME, ActionFactory.class));
+            if (isClientMethodSupported()) {
+                proxyClass.addField(CtField.make("private static " + ClientMethod.class.getName() + "[] " + PROXY_CLASS_CLIENT_METHODS_FIELD_NAME + ";", proxyClass));
+            }
 
             //avoid duplicated methods
             Set<String> methods = new HashSet<>(8);
             Method[] ms = interfaceClass.getDeclaredMethods();
             for (Method m : ms) {
                 //interface method
-                proxyClass.addMethod(createProxyMethod(proxyClass, interfaceClass, m));
+                proxyClass.addMethod(createProxyMethod(proxyClass, interfaceClass, m, clientMethods));
                 methods.add(MethodUtil.getSimpleMethod(m));
             }
             RpcConsumer consumer = interfaceClass.getAnnotation(RpcConsumer.class);
@@ -169,7 +253,7 @@ public abstract class JavassistObjectFactory implements ObjectFactory {
                                 String methodSign = MethodUtil.getSimpleMethod(m);
                                 if (!methods.contains(methodSign)) {
                                     //interface method
-                                    proxyClass.addMethod(createProxyMethod(proxyClass, interfaceClass, m));
+                                    proxyClass.addMethod(createProxyMethod(proxyClass, interfaceClass, m, clientMethods));
                                     methods.add(methodSign);
                                 }
                             }
@@ -195,14 +279,17 @@ public abstract class JavassistObjectFactory implements ObjectFactory {
      * @param clazz 代理方法所在的 {@code CtClass} 类。
      * @param targetClass 底层方法所表示的 {@code Class} 对象。
      * @param method 底层方法。
+     * @param clientMethods 收集代理方法的调用属性。
      *
      * @return CtMethod方法。
      *
      * @throws CannotCompileException when bytecode transformation has failed.
      *
      * @see jrouter.ActionFactory#invokeAction
+     * @see RpcClientActionFactory#invokeMethod
      */
-    private CtMethod createProxyMethod(CtClass clazz, Class<?> targetClass, Method method) throws CannotCompileException {
+    private CtMethod createProxyMethod(CtClass clazz, Class<?> targetClass, Method method,
+            List<ClientMethod> clientMethods) throws CannotCompileException {
         StringBuilder body = new StringBuilder("public ");
         Class<?> returnType = method.getReturnType();
         boolean voidMethod = void.class == returnType;
@@ -225,11 +312,60 @@ public abstract class JavassistObjectFactory implements ObjectFactory {
         }
         body.append("){");
         String path = parsePath(targetClass, method);
-        body.append(PROXY_CLASS_ACTION_FACTORY_FIELD_NAME).append(".invokeAction(\"").append(path).append("\",$args);");
-        body.append("return ").append(getReturnValue(returnType)).append(";}");
+        if (isClientMethodSupported()) {
+            ClientMethod clientMethod = createClientMethod(path, method);
+            StringBuilder invoke = new StringBuilder("((").append(RpcClientActionFactory.class.getName()).append(')')
+                    .append(PROXY_CLASS_ACTION_FACTORY_FIELD_NAME).append(").invokeMethod(")
+                    .append(PROXY_CLASS_CLIENT_METHODS_FIELD_NAME).append('[').append(clientMethods.size()).append("],");
+            if (clientMethod.isPositional()) {
+                //callback and actual parameters by position
+                appendPositionalParameters(invoke, clientMethod).append(')');
+            } else {
+                invoke.append("$args)");
+            }
+            clientMethods.add(clientMethod);
+            if (clientMethod.isAsync() || clientMethod.isStreaming()) {
+                //return the pending future or streaming result
+                body.append("return ($r)").append(invoke).append(";}");
+            } else {
+                body.append(invoke).append(';');
+                body.append("return ").append(getReturnValue(returnType)).append(";}");
+            }
+        } else {
+            body.append(PROXY_CLASS_ACTION_FACTORY_FIELD_NAME).append(".invokeAction(\"").append(path).append("\",$args);");
+            body.append("return ").append(getReturnValue(returnType)).append(";}");
+        }
         return CtNewMethod.make(body.toString(), clazz);
     }
 
+    /**
+     * 按参数位置添加回调参数及实际调用参数数组（基本类型参数装箱），无需在调用时逐个判断参数。
+     *
+     * @param invoke 调用代码。
+     * @param clientMethod 代理方法的调用属性。
+     *
+     * @return 调用代码。
+     *
+     * @see RpcClientActionFactory#invokeMethod(ClientMethod, ResultCallback, Object[])
+     */
+    private StringBuilder appendPositionalParameters(StringBuilder invoke, ClientMethod clientMethod) {
+        int callbackIndex = clientMethod.getCallbackIndex();
+        invoke.append('(').append(ResultCallback.class.getName()).append(')');
+        invoke.append(callbackIndex == -1 ? "null" : "p" + callbackIndex).append(',');
+        int[] indexes = clientMethod.getParameterIndexes();
+        if (indexes.length == 0) {
+            return invoke.append("(Object[])null");
+        }
+        invoke.append("new Object[]{");
+        for (int i = 0; i < indexes.length; i++) {
+            if (i > 0) {
+                invoke.append(',');
+            }
+            invoke.append("($w)p").append(indexes[i]);
+        }
+        return invoke.append('}');
+    }
+
     /**
      * Create a set method.
      *
@@ -260,6 +396,25 @@ public abstract class JavassistObjectFactory implements ObjectFactory {
      */
     public abstract String parsePath(Class<?> targetClass, Method method);
 
+    /**
+     * 创建代理方法的调用属性。
+     *
+     * @param path 调用路径。
+     * @param method 指定的底层方法。
+     *
+     * @return 代理方法的调用属性。
+     */
+    protected ClientMethod createClientMethod(String path, Method method) {
+        return new ClientMethod(path, method);
+    }
+
+    /**
+     * 是否通过{@link RpcClientActionFactory#invokeMethod}调用（{@code ActionFactory}为{@code RpcClientActionFactory}）。
+     */
+    private boolean isClientMethodSupported() {
+        return actionFactory instanceof RpcClientActionFactory;
+    }
+
     @Override
     public Class<?> getClass(Object obj) {
         if (obj != null) {
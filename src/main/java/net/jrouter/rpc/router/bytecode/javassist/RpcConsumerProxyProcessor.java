@@ -0,0 +1,500 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.jrouter.rpc.router.bytecode.javassist;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.IntersectionType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import net.jrouter.rpc.annotation.RpcConsumer;
+import net.jrouter.rpc.router.ResultCallback;
+import net.jrouter.rpc.router.client.ClientMethod;
+import net.jrouter.rpc.router.client.RpcClientActionFactory;
+
+/**
+ * 编译期为{@link RpcConsumer}接口预生成代理类的注解处理器，生成的代理类由{@link JavassistObjectFactory}优先使用，
+ * 免去启动时经由全局{@code ClassPool}编译、加载代理类的开销。
+ *
+ * 代理方法与运行时生成的代理类一致：接口声明的方法及{@link RpcConsumer#proxyInterfaces()}中父接口的方法，
+ * 其他未实现的抽象方法抛出{@link AbstractMethodError}；可由参数声明类型确定回调参数位置的方法，
+ * 同样按参数位置调用{@link RpcClientActionFactory#invokeMethod(ClientMethod, ResultCallback, Object[])}。
+ *
+ * 需在编译时显式启用（与lombok等其他注解处理器并列），如 maven-compiler-plugin：
+ * <pre>
+ * &lt;annotationProcessors&gt;
+ *     &lt;annotationProcessor&gt;lombok.launch.AnnotationProcessorHider$AnnotationProcessor&lt;/annotationProcessor&gt;
+ *     &lt;annotationProcessor&gt;net.jrouter.rpc.router.bytecode.javassist.RpcConsumerProxyProcessor&lt;/annotationProcessor&gt;
+ * &lt;/annotationProcessors&gt;
+ * </pre>
+ * 或 javac {@code -processor net.jrouter.rpc.router.bytecode.javassist.RpcConsumerProxyProcessor}。
+ */
+@SupportedAnnotationTypes("net.jrouter.rpc.annotation.RpcConsumer")
+public class RpcConsumerProxyProcessor extends AbstractProcessor {
+
+    /** 无法由参数声明类型确定回调参数的位置 */
+    private static final int NOT_POSITIONAL = -2;
+
+    /** 已生成的代理类名称 */
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(RpcConsumer.class)) {
+            //only interface types can be proxied
+            if (element.getKind() != ElementKind.INTERFACE) {
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "Private interface can't be proxied at compile time.", type);
+                continue;
+            }
+            try {
+                generate(type);
+            } catch (IOException | RuntimeException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "Can't generate proxy class, generate at runtime instead : " + e, type);
+            }
+        }
+        //not claimed
+        return false;
+    }
+
+    /**
+     * 生成指定接口的代理类。
+     *
+     * @param type 接口类型。
+     *
+     * @throws IOException 如果写入源文件发生错误。
+     */
+    private void generate(TypeElement type) throws IOException {
+        Elements elements = processingEnv.getElementUtils();
+        String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                + JavassistObjectFactory.PREGENERATED_CLASS_SUFFIX;
+        String className = packageName.isEmpty() ? simpleName : packageName + '.' + simpleName;
+        if (!generated.add(className)) {
+            return;
+        }
+        DeclaredType owner = (DeclaredType) type.asType();
+        //proxied methods, in order of the calling index
+        List<ExecutableElement> proxied = new ArrayList<>();
+        Set<String> signatures = new HashSet<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (isProxyable(method) && signatures.add(signature(owner, method))) {
+                proxied.add(method);
+            }
+        }
+        for (TypeMirror proxyInterface : getProxyInterfaces(type)) {
+            if (processingEnv.getTypeUtils().isAssignable(type.asType(), processingEnv.getTypeUtils().erasure(proxyInterface))) {
+                TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(proxyInterface);
+                for (ExecutableElement method : ElementFilter.methodsIn(element.getEnclosedElements())) {
+                    if (isProxyable(method) && signatures.add(signature(owner, method))) {
+                        proxied.add(method);
+                    }
+                }
+            } else {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "[" + proxyInterface + "] is not a superinterface, ignore.", type);
+            }
+        }
+        //other abstract methods not proxied
+        Set<String> objectSignatures = new HashSet<>();
+        TypeElement object = elements.getTypeElement(Object.class.getName());
+        for (ExecutableElement method : ElementFilter.methodsIn(object.getEnclosedElements())) {
+            objectSignatures.add(signature((DeclaredType) object.asType(), method));
+        }
+        List<ExecutableElement> unsupported = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+            if (method.getModifiers().contains(Modifier.ABSTRACT)) {
+                String signature = signature(owner, method);
+                if (!objectSignatures.contains(signature) && signatures.add(signature)) {
+                    unsupported.add(method);
+                }
+            }
+        }
+
+        StringBuilder source = new StringBuilder(4096);
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n * Proxy class of {@link ").append(type.getQualifiedName())
+                .append("}, generated by {@link ").append(getClass().getName()).append("}.\n */\n");
+        source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("public final class ").append(simpleName);
+        appendTypeParameters(source, type.getTypeParameters());
+        source.append(" implements ").append(type.getQualifiedName());
+        if (!type.getTypeParameters().isEmpty()) {
+            source.append('<');
+            for (int i = 0; i < type.getTypeParameters().size(); i++) {
+                source.append(i == 0 ? "" : ", ").append(type.getTypeParameters().get(i).getSimpleName());
+            }
+            source.append('>');
+        }
+        source.append(" {\n\n");
+        source.append("    private static final Object[] _NO_ARGS = new Object[0];\n\n");
+        source.append("    private static final java.lang.reflect.Method[] ")
+                .append(JavassistObjectFactory.PROXY_CLASS_PROXY_METHODS_FIELD_NAME).append(" = ")
+                .append(JavassistObjectFactory.PROXY_CLASS_PROXY_METHODS_FIELD_NAME).append("();\n\n");
+        source.append("    private Class ").append(JavassistObjectFactory.PROXY_CLASS_TARGET_CLASS_FIELD_NAME).append(";\n\n");
+        source.append("    private jrouter.ActionFactory ").append(JavassistObjectFactory.PROXY_CLASS_ACTION_FACTORY_FIELD_NAME).append(";\n\n");
+        source.append("    private ").append(ClientMethod.class.getName()).append("[] ")
+                .append(JavassistObjectFactory.PROXY_CLASS_CLIENT_METHODS_FIELD_NAME).append(";\n\n");
+        appendSetMethod(source, JavassistObjectFactory.PROXY_CLASS_TARGET_CLASS_FIELD_NAME, "Class");
+        appendSetMethod(source, JavassistObjectFactory.PROXY_CLASS_ACTION_FACTORY_FIELD_NAME, "jrouter.ActionFactory");
+
+        //proxied methods
+        source.append("    private static java.lang.reflect.Method[] ")
+                .append(JavassistObjectFactory.PROXY_CLASS_PROXY_METHODS_FIELD_NAME).append("() {\n");
+        source.append("        try {\n");
+        source.append("            return new java.lang.reflect.Method[]{");
+        for (ExecutableElement method : proxied) {
+            source.append("\n                ")
+                    .append(processingEnv.getTypeUtils().erasure(method.getEnclosingElement().asType()))
+                    .append(".class.getMethod(\"").append(method.getSimpleName()).append('"');
+            for (TypeMirror parameterType : ((ExecutableType) method.asType()).getParameterTypes()) {
+                source.append(", ").append(processingEnv.getTypeUtils().erasure(parameterType)).append(".class");
+            }
+            source.append("),");
+        }
+        source.append("\n            };\n");
+        source.append("        } catch (NoSuchMethodException e) {\n");
+        source.append("            throw new IllegalStateException(e);\n");
+        source.append("        }\n");
+        source.append("    }\n\n");
+
+        //invoke
+        source.append("    private Object _invoke(int index, Object[] args) {\n");
+        source.append("        ").append(ClientMethod.class.getName()).append(" method = ")
+                .append(JavassistObjectFactory.PROXY_CLASS_CLIENT_METHODS_FIELD_NAME).append("[index];\n");
+        source.append("        if (").append(JavassistObjectFactory.PROXY_CLASS_ACTION_FACTORY_FIELD_NAME)
+                .append(" instanceof ").append(RpcClientActionFactory.class.getName()).append(") {\n");
+        source.append("            return ((").append(RpcClientActionFactory.class.getName()).append(") ")
+                .append(JavassistObjectFactory.PROXY_CLASS_ACTION_FACTORY_FIELD_NAME).append(").invokeMethod(method, args);\n");
+        source.append("        }\n");
+        source.append("        ").append(JavassistObjectFactory.PROXY_CLASS_ACTION_FACTORY_FIELD_NAME)
+                .append(".invokeAction(method.getPath(), args);\n");
+        source.append("        return null;\n");
+        source.append("    }\n\n");
+
+        //invoke by position
+        source.append("    private boolean _positional(int index, int parameterCount) {\n");
+        source.append("        ").append(ClientMethod.class.getName()).append(" method = ")
+                .append(JavassistObjectFactory.PROXY_CLASS_CLIENT_METHODS_FIELD_NAME).append("[index];\n");
+        source.append("        return method.isPositional() && method.getParameterCount() == parameterCount && ")
+                .append(JavassistObjectFactory.PROXY_CLASS_ACTION_FACTORY_FIELD_NAME)
+                .append(" instanceof ").append(RpcClientActionFactory.class.getName()).append(";\n");
+        source.append("    }\n\n");
+        source.append("    private Object _invoke(int index, ").append(ResultCallback.class.getName())
+                .append(" callback, Object[] params) {\n");
+        source.append("        return ((").append(RpcClientActionFactory.class.getName()).append(") ")
+                .append(JavassistObjectFactory.PROXY_CLASS_ACTION_FACTORY_FIELD_NAME).append(").invokeMethod(")
+                .append(JavassistObjectFactory.PROXY_CLASS_CLIENT_METHODS_FIELD_NAME).append("[index], callback, params);\n");
+        source.append("    }\n");
+
+        for (int i = 0; i < proxied.size(); i++) {
+            appendMethod(source, owner, proxied.get(i), i);
+        }
+        for (ExecutableElement method : unsupported) {
+            appendMethod(source, owner, method, -1);
+        }
+        source.append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(className, type).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    /**
+     * 添加代理方法。
+     *
+     * @param source 源代码。
+     * @param owner 接口类型。
+     * @param method 代理方法。
+     * @param index 代理方法的调用序号，-1 表示不支持调用的抽象方法。
+     */
+    private void appendMethod(StringBuilder source, DeclaredType owner, ExecutableElement method, int index) {
+        ExecutableType type = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(owner, method);
+        TypeMirror returnType = type.getReturnType();
+        source.append("\n    @Override\n    public ");
+        if (!type.getTypeVariables().isEmpty()) {
+            source.append('<');
+            for (int i = 0; i < type.getTypeVariables().size(); i++) {
+                TypeVariable variable = type.getTypeVariables().get(i);
+                source.append(i == 0 ? "" : ", ").append(variable);
+                appendBounds(source, variable.getUpperBound());
+            }
+            source.append("> ");
+        }
+        source.append(returnType).append(' ').append(method.getSimpleName()).append('(');
+        List<? extends TypeMirror> parameterTypes = type.getParameterTypes();
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            source.append(i == 0 ? "" : ", ").append(parameterTypes.get(i)).append(" p").append(i);
+        }
+        source.append(") {\n");
+        if (index < 0) {
+            source.append("        throw new AbstractMethodError(\"").append(method.getEnclosingElement())
+                    .append('.').append(method.getSimpleName()).append("\");\n");
+            source.append("    }\n");
+            return;
+        }
+        boolean returnResult = isAsync(method) || isStreaming(method);
+        int callbackIndex = callbackIndex(parameterTypes);
+        if (callbackIndex != NOT_POSITIONAL) {
+            //callback and actual parameters by position, unless any transport parameter at runtime
+            int parameterCount = parameterTypes.size() - (callbackIndex == -1 ? 0 : 1);
+            StringBuilder invoke = new StringBuilder("_invoke(").append(index).append(", ")
+                    .append(callbackIndex == -1 ? "null" : "p" + callbackIndex).append(", ");
+            if (parameterCount == 0) {
+                invoke.append("null");
+            } else {
+                invoke.append("new Object[]{");
+                boolean first = true;
+                for (int i = 0; i < parameterTypes.size(); i++) {
+                    if (i != callbackIndex) {
+                        invoke.append(first ? "" : ", ").append('p').append(i);
+                        first = false;
+                    }
+                }
+                invoke.append('}');
+            }
+            invoke.append(')');
+            source.append("        if (_positional(").append(index).append(", ").append(parameterCount).append(")) {\n");
+            appendInvoke(source, "            ", invoke, returnType, returnResult);
+            if (!returnResult) {
+                source.append("            ").append(defaultReturn(returnType)).append('\n');
+            }
+            source.append("        }\n");
+        }
+        StringBuilder invoke = new StringBuilder("_invoke(").append(index).append(", ");
+        if (parameterTypes.isEmpty()) {
+            invoke.append("_NO_ARGS");
+        } else {
+            invoke.append("new Object[]{");
+            for (int i = 0; i < parameterTypes.size(); i++) {
+                invoke.append(i == 0 ? "" : ", ").append('p').append(i);
+            }
+            invoke.append('}');
+        }
+        invoke.append(')');
+        appendInvoke(source, "        ", invoke, returnType, returnResult);
+        if (!returnResult && returnType.getKind() != TypeKind.VOID) {
+            source.append("        ").append(defaultReturn(returnType)).append('\n');
+        }
+        source.append("    }\n");
+    }
+
+    /**
+     * 添加调用语句。
+     *
+     * @param source 源代码。
+     * @param indent 缩进。
+     * @param invoke 调用代码。
+     * @param returnType 返回类型。
+     * @param returnResult 是否返回调用结果（异步或流式方法）。
+     */
+    private static void appendInvoke(StringBuilder source, String indent, CharSequence invoke, TypeMirror returnType,
+            boolean returnResult) {
+        if (returnResult) {
+            //return the pending future or streaming result
+            source.append(indent).append("return (").append(returnType).append(") ").append(invoke).append(";\n");
+        } else {
+            source.append(indent).append(invoke).append(";\n");
+        }
+    }
+
+    /**
+     * 同步方法返回的默认值语句。
+     */
+    private static String defaultReturn(TypeMirror returnType) {
+        if (returnType.getKind() == TypeKind.BOOLEAN) {
+            return "return false;";
+        } else if (returnType.getKind().isPrimitive()) {
+            return "return 0;";
+        } else if (returnType.getKind() == TypeKind.VOID) {
+            return "return;";
+        }
+        return "return null;";
+    }
+
+    /**
+     * 由参数声明类型确定回调参数的位置，与{@link ClientMethod}一致；传输层参数类型由调用时的{@link ClientMethod#getParameterCount()}判断。
+     *
+     * @param parameterTypes 参数声明类型。
+     *
+     * @return 回调参数的位置，-1 表示无回调参数；{@link #NOT_POSITIONAL}表示无法由声明类型确定。
+     */
+    private int callbackIndex(List<? extends TypeMirror> parameterTypes) {
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror callbackType = types.erasure(processingEnv.getElementUtils()
+                .getTypeElement(ResultCallback.class.getName()).asType());
+        int callback = -1;
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            TypeMirror type = types.erasure(parameterTypes.get(i));
+            if (types.isAssignable(type, callbackType)) {
+                //only one callback parameter
+                if (callback != -1) {
+                    return NOT_POSITIONAL;
+                }
+                callback = i;
+            } else if (types.isAssignable(callbackType, type)) {
+                //may be a callback or transport parameter at runtime, e.g. Object
+                return NOT_POSITIONAL;
+            }
+        }
+        return callback;
+    }
+
+    /**
+     * 添加属性的 set 方法。
+     */
+    private static void appendSetMethod(StringBuilder source, String name, String type) {
+        source.append("    public void set").append(name).append('(').append(type).append(" obj) {\n");
+        source.append("        this.").append(name).append(" = obj;\n");
+        source.append("    }\n\n");
+    }
+
+    /**
+     * 添加类型参数（包括上界）。
+     */
+    private static void appendTypeParameters(StringBuilder source, List<? extends TypeParameterElement> parameters) {
+        if (parameters.isEmpty()) {
+            return;
+        }
+        source.append('<');
+        for (int i = 0; i < parameters.size(); i++) {
+            TypeParameterElement parameter = parameters.get(i);
+            source.append(i == 0 ? "" : ", ").append(parameter.getSimpleName());
+            appendBounds(source, ((TypeVariable) parameter.asType()).getUpperBound());
+        }
+        source.append('>');
+    }
+
+    /**
+     * 添加类型参数的上界。
+     */
+    private static void appendBounds(StringBuilder source, TypeMirror upperBound) {
+        List<? extends TypeMirror> bounds = upperBound.getKind() == TypeKind.INTERSECTION
+                ? ((IntersectionType) upperBound).getBounds() : Collections.singletonList(upperBound);
+        boolean first = true;
+        for (TypeMirror bound : bounds) {
+            if (bound.toString().equals(Object.class.getName())) {
+                continue;
+            }
+            source.append(first ? " extends " : " & ").append(bound);
+            first = false;
+        }
+    }
+
+    /**
+     * 是否为需代理的方法（非静态、非私有的方法）。
+     */
+    private static boolean isProxyable(ExecutableElement method) {
+        return !method.getModifiers().contains(Modifier.STATIC) && !method.getModifiers().contains(Modifier.PRIVATE);
+    }
+
+    /**
+     * 方法的返回类型是否为异步类型，与{@link ClientMethod#isAsyncType(Class)}一致。
+     */
+    private boolean isAsync(ExecutableElement method) {
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror returnType = types.erasure(method.getReturnType());
+        if (returnType.getKind() != TypeKind.DECLARED || returnType.toString().equals(Object.class.getName())) {
+            return false;
+        }
+        TypeMirror future = types.erasure(processingEnv.getElementUtils()
+                .getTypeElement(CompletableFuture.class.getName()).asType());
+        return types.isAssignable(future, returnType);
+    }
+
+    /**
+     * 方法的返回类型是否为流式返回结果的类型，与{@link ClientMethod#isStreamingType(Class)}一致。
+     */
+    private boolean isStreaming(ExecutableElement method) {
+        String returnType = processingEnv.getTypeUtils().erasure(method.getReturnType()).toString();
+        return returnType.equals(Iterator.class.getName()) || returnType.equals(Stream.class.getName());
+    }
+
+    /**
+     * 方法作为接口成员的签名（名称及擦除后的参数类型）。
+     */
+    private String signature(DeclaredType owner, ExecutableElement method) {
+        Types types = processingEnv.getTypeUtils();
+        StringBuilder signature = new StringBuilder(method.getSimpleName()).append('(');
+        for (TypeMirror parameterType : ((ExecutableType) types.asMemberOf(owner, method)).getParameterTypes()) {
+            signature.append(types.erasure(parameterType)).append(',');
+        }
+        return signature.append(')').toString();
+    }
+
+    /**
+     * 获取{@link RpcConsumer#proxyInterfaces()}指定的父接口。
+     */
+    private static List<TypeMirror> getProxyInterfaces(TypeElement type) {
+        List<TypeMirror> proxyInterfaces = new ArrayList<>();
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (!mirror.getAnnotationType().toString().equals(RpcConsumer.class.getName())) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : mirror.getElementValues().entrySet()) {
+                if (e.getKey().getSimpleName().contentEquals("proxyInterfaces")) {
+                    for (Object value : (List<?>) e.getValue().getValue()) {
+                        proxyInterfaces.add((TypeMirror) ((AnnotationValue) value).getValue());
+                    }
+                }
+            }
+        }
+        return proxyInterfaces;
+    }
+}
@@ -0,0 +1,1175 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.stream.Stream;
+import jrouter.JRouterException;
+import jrouter.ObjectFactory;
+import jrouter.annotation.Namespace;
+import jrouter.impl.PathActionFactory;
+import net.jrouter.rpc.RpcException;
+import net.jrouter.rpc.annotation.RpcConsumer;
+import net.jrouter.rpc.metrics.RpcMetrics;
+import net.jrouter.rpc.protocol.Protocol;
+import net.jrouter.rpc.protocol.RpcProtocol;
+import net.jrouter.rpc.router.ResultCallback;
+import net.jrouter.rpc.router.bytecode.javassist.JavassistObjectFactory;
+import net.jrouter.rpc.router.impl.ProtocolSerialization;
+import net.jrouter.rpc.util.Constants;
+import net.jrouter.rpc.util.HashedWheelTimer;
+import jrouter.util.CollectionUtil;
+import jrouter.util.StringUtil;
+import lombok.extern.slf4j.Slf4j;
+import net.jrouter.id.IdGenerator;
+import net.jrouter.id.impl.IdGenerator2018;
+import org.apache.commons.pool2.ObjectPool;
+import net.jrouter.rpc.serialize.ObjectSerialization;
+import net.jrouter.rpc.serialize.compress.Compressor;
+
+/**
+ * 提供基于{@code String}型路径调用的{@code RpcClientActionFactory}抽象类；由子类实现具体传输层的消息发送。
+ *
+ * @param <S> RPC相关联的Session.
+ */
+@Slf4j
+public abstract class AbstractRpcClientActionFactory<S> extends PathActionFactory implements RpcClientActionFactory<S> {
+
+    /**
+     * {@code Protocol} 序列/反序列化工具。
+     */
+    private final ProtocolSerialization protocolSerialization;
+
+    /**
+     * {@code Long}型Id生成器。
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private IdGenerator<Long> idGenerator = new IdGenerator2018(0);
+
+    /**
+     * 代理接口必须包含的注解类；默认为{@link RpcConsumer}。
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private Class<? extends Annotation> clientAnnotatedClass = RpcConsumer.class;
+
+    /**
+     * 由{@code Class}生成的客户端代理对象映射。
+     *
+     * @see #getClient
+     */
+    @lombok.Getter
+    private Map<Class, Object> clients = null;
+
+    /**
+     * Session Pool；由{@code SessionProvider}构造时为 null.
+     */
+    @lombok.Getter
+    private ObjectPool<S> sessionPool = null;
+
+    /**
+     * 提供调用所使用的{@code Session}.
+     */
+    @lombok.Getter
+    private final SessionProvider<S> sessionProvider;
+
+    /**
+     * 待回调调用数的限制，并提供当前的待回调调用数。
+     */
+    @lombok.Getter
+    private final InFlightLimiter<S> inFlightLimiter;
+
+    /**
+     * 代理方法的调用是否以{@code int}型路径标识代替调用路径发送。
+     *
+     * @see Properties#pathIdEnabled
+     */
+    @lombok.Getter
+    private final boolean pathIdEnabled;
+
+    /**
+     * 调用过程的度量。
+     */
+    @lombok.Getter
+    private final RpcMetrics metrics;
+
+    /**
+     * 代理方法的路径标识:调用路径 映射，用于度量仅包含路径标识的协议对象。
+     */
+    private final Map<Integer, String> clientPaths = new ConcurrentHashMap<>(64);
+
+////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    /**
+     * 记录异步回调任务（id:task 映射）。
+     */
+    private final Map<Long, PendingCall> callbackTasks = new ConcurrentHashMap<>(128);
+
+    /**
+     * 回调任务的超时定时器；任务完成时取消其超时，到期时移除任务并以{@code TimeoutException}完成。
+     */
+    private final HashedWheelTimer timeoutTimer;
+
+    /**
+     * 超时定时器的刻度时长（毫秒）。
+     */
+    private static final long TIMEOUT_TICK_MILLISECONDS = 10;
+
+    /**
+     * 超时定时器的刻度数。
+     */
+    private static final int TIMEOUT_TICKS_PER_WHEEL = 1024;
+
+    /**
+     * 10s timeout to clean expired task.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLISECONDS = 10000;
+
+    /**
+     * 清理回调任务记录的默认等待时间（超过此时间将清理回调记录，清理后即使有回调返回值也无法调用回调方法）。
+     * 推荐任何异步回调等待都必需设置超时时间，避免无限等待。
+     */
+    @lombok.Getter
+    private long defaultCallbackTimeoutMilliseconds = DEFAULT_TIMEOUT_MILLISECONDS;
+
+    /**
+     * 基于javassist的对象工厂.
+     *
+     * TODO. (put in Properties)
+     */
+    @lombok.Getter
+    private ObjectFactory clientObjectFactory = new JavassistObjectFactory(AbstractRpcClientActionFactory.this) {
+        @Override
+        public String parsePath(Class<?> targetClass, Method method) {
+            return AbstractRpcClientActionFactory.this.parsePath(targetClass, method);
+        }
+
+        @Override
+        protected ClientMethod createClientMethod(String path, Method method) {
+            ClientMethod clientMethod = new ClientMethod(path, method, AbstractRpcClientActionFactory.this::isTransportParameterType);
+            clientPaths.putIfAbsent(clientMethod.getPathId(), path);
+            if (clientMethod.getCompressionThreshold() >= 0) {
+                protocolSerialization.setCompressionThreshold(path, clientMethod.getCompressionThreshold());
+            }
+            return clientMethod;
+        }
+    };
+
+    /**
+     * Constructor.
+     *
+     * @param pool Session pool.
+     * @param properties Properties.
+     */
+    public AbstractRpcClientActionFactory(ObjectPool<S> pool, Properties properties) {
+        this(new PooledSessionProvider<>(pool), properties);
+        this.sessionPool = pool;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sessionProvider Session provider.
+     * @param properties Properties.
+     *
+     * @see MultiplexedSessionProvider
+     */
+    public AbstractRpcClientActionFactory(SessionProvider<S> sessionProvider, Properties properties) {
+        super(properties);
+        this.sessionProvider = sessionProvider;
+        this.inFlightLimiter = new InFlightLimiter<>(properties.maxInFlight, properties.maxInFlightPerSession,
+                properties.inFlightPolicy, properties.inFlightWaitMillis, properties.inFlightQueueSize);
+        this.pathIdEnabled = properties.pathIdEnabled;
+        this.metrics = properties.metrics == null ? RpcMetrics.NONE : properties.metrics;
+        this.protocolSerialization = new ProtocolSerialization(properties.objectSerialization, properties.supportedObjectSerializations);
+        this.protocolSerialization.setCompressor(properties.compressor);
+        this.protocolSerialization.setCompressionThreshold(properties.compressionThreshold);
+        log.info("Use protocolSerialization : {}", protocolSerialization);
+        //TODO
+//        clientObjectFactory = properties.clientObjectFactory;
+//        log.info("Use clientObjectFactory : {}", clientObjectFactory);
+        clients = new HashMap<>();
+        timeoutTimer = new HashedWheelTimer(this.getClass().getName() + "-TimeoutTimer",
+                TIMEOUT_TICK_MILLISECONDS, TimeUnit.MILLISECONDS, TIMEOUT_TICKS_PER_WHEEL);
+    }
+
+    /**
+     * RpcClientActionFactory 属性.
+     */
+    @lombok.Getter
+    @lombok.Setter
+    public static class Properties extends PathActionFactory.Properties {
+
+        /**
+         * Default Constructor.
+         */
+        public Properties() {
+            super();
+            //default RpcProviderActionFilter
+            setActionFilter(new RpcConsumerActionFilter());
+        }
+
+        /**
+         * @see DispatchServerActionFactory#protocolSerialization
+         */
+        private ObjectSerialization objectSerialization = Constants.DEFAULT_OBJECT_SERIALIZATION;
+
+        /**
+         * @see DispatchServerActionFactory#protocolSerialization
+         */
+        private Map<Byte, ObjectSerialization> supportedObjectSerializations = Constants.SUPPORTED_OBJECT_SERIALIZATIONS;
+
+        /**
+         * 基于javassist的对象工厂.
+         */
+        private ObjectFactory clientObjectFactory = null;
+
+        /**
+         * 全局的最大待回调调用数；不大于 0 表示不限制（默认）。
+         *
+         * @see InFlightLimiter
+         */
+        private int maxInFlight = 0;
+
+        /**
+         * 每个{@code Session}的最大待回调调用数；不大于 0 表示不限制（默认）。
+         */
+        private int maxInFlightPerSession = 0;
+
+        /**
+         * 达到待回调调用数限制时的处理策略。
+         */
+        private InFlightLimiter.Policy inFlightPolicy = InFlightLimiter.Policy.BLOCK;
+
+        /**
+         * {@link InFlightLimiter.Policy#BLOCK}的最大等待时间（毫秒）。
+         */
+        private long inFlightWaitMillis = DEFAULT_TIMEOUT_MILLISECONDS;
+
+        /**
+         * {@link InFlightLimiter.Policy#QUEUE}的最大队列长度。
+         */
+        private int inFlightQueueSize = 1024;
+
+        /**
+         * 代理方法的调用是否仅发送{@code int}型路径标识（不发送调用路径）；默认 false.
+         * 需服务端支持路径标识的解析。
+         *
+         * @see ClientMethod#getPathId()
+         */
+        private boolean pathIdEnabled = false;
+
+        /**
+         * 调用过程的度量；默认无操作。
+         *
+         * @see net.jrouter.rpc.metrics.DefaultRpcMetrics
+         */
+        private RpcMetrics metrics = RpcMetrics.NONE;
+
+        /**
+         * 协议帧数据的压缩；默认 null 不压缩，需对端支持解压缩。
+         *
+         * @see net.jrouter.rpc.serialize.compress.DeflateCompressor
+         * @see net.jrouter.rpc.serialize.compress.Lz4Compressor
+         */
+        private Compressor compressor = null;
+
+        /**
+         * 压缩协议帧数据的长度阈值（字节）；不大于 0 表示不压缩。
+         */
+        private int compressionThreshold = ProtocolSerialization.DEFAULT_COMPRESSION_THRESHOLD;
+
+    }
+
+    @Override
+    public <T> T getClient(Class<T> clientClass) {
+        return (T) clients.get(clientClass);
+    }
+
+    /**
+     * 通过指定{@code String}类型路径和参数，转换为{@link Protocol}协议对象发送{@code byte[]}类型消息。
+     *
+     * @param path 指定的路径。
+     * @param params 调用参数。
+     *
+     * @return 调用结果。
+     *
+     * @throws RpcException 如果发生调用错误。
+     */
+    @Override
+    public Object invokeAction(String path, Object... params) throws RpcException {
+        return invoke(path, null, params);
+    }
+
+    /**
+     * 由客户端代理方法调用，不创建{@link RpcClientContext}；
+     * 异步方法返回待完成的{@code CompletableFuture}：收到返回结果时完成（返回异常时以异常完成），
+     * 其后续的非 Async 阶段将在接收消息的线程中执行。
+     *
+     * @param method 代理方法的调用属性。
+     * @param params 调用参数。
+     *
+     * @return 调用结果。
+     *
+     * @throws RpcException 如果发生调用错误。
+     */
+    @Override
+    public Object invokeMethod(ClientMethod method, Object... params) throws RpcException {
+        return invoke(method.getPath(), method, params);
+    }
+
+    /**
+     * 由按参数位置生成的客户端代理方法调用，回调参数按位置传递，调用参数无需再逐个判断回调及传输层参数；
+     * 直接调用{@link #invoke(String, ClientMethod, Object[], ResultCallback)}，不经由{@link RpcClientContext}。
+     *
+     * @param method 代理方法的调用属性。
+     * @param callback 回调参数，可为 null。
+     * @param params 实际调用参数，可为 null。
+     *
+     * @return 调用结果。
+     *
+     * @throws RpcException 如果发生调用错误。
+     */
+    @Override
+    public Object invokeMethod(ClientMethod method, ResultCallback callback, Object[] params) throws RpcException {
+        return invoke(method.getPath(), method, params, callback);
+    }
+
+    /**
+     * 调用指定的路径。
+     *
+     * @param path 指定的路径。
+     * @param method 代理方法的调用属性，可为 null。
+     * @param params 调用参数；不含回调及传输层参数时直接作为协议参数发送，调用后不应再修改。
+     *
+     * @return 调用结果。
+     */
+    private Object invoke(String path, ClientMethod method, Object[] params) throws RpcException {
+        //实际参数
+        Object[] actualParams = params;
+        //callback
+        ResultCallback callback = null;
+        //rebuild parameters only if any callback or transport parameter
+        if (CollectionUtil.isNotEmpty(params)) {
+            int excluded = 0;
+            for (Object param : params) {
+                if (param instanceof ResultCallback) {
+                    callback = (ResultCallback) param;
+                    excluded++;
+                } else if (isTransportParameter(param)) {
+                    excluded++;
+                }
+            }
+            if (excluded > 0) {
+                actualParams = new Object[params.length - excluded];
+                int i = 0;
+                for (Object param : params) {
+                    if (!(param instanceof ResultCallback) && !isTransportParameter(param)) {
+                        actualParams[i++] = param;
+                    }
+                }
+            }
+        }
+        return invoke(path, method, actualParams, callback);
+    }
+
+    /**
+     * 以实际调用参数调用指定的路径；{@link #invokeAction}及客户端代理方法的调用均经由此方法，子类可覆盖以拦截调用。
+     *
+     * @param path 指定的路径。
+     * @param method 代理方法的调用属性，可为 null。
+     * @param actualParams 实际调用参数（不含回调及传输层参数），可为 null。
+     * @param callback 回调参数，可为 null。
+     *
+     * @return 调用结果。
+     *
+     * @throws RpcException 如果发生调用错误。
+     */
+    protected Object invoke(String path, ClientMethod method, Object[] actualParams, ResultCallback callback) throws RpcException {
+        boolean async = method != null && method.isAsync();
+        boolean streaming = method != null && method.isStreaming();
+        ResultCache cache = method == null || !path.equals(method.getPath()) ? null : method.getResultCache();
+        ResultCache.Key cacheKey = null;
+        if (cache != null) {
+            if (!async && callback == null) {
+                RpcClientContext context = RpcClientContext.peek();
+                if (context != null) {
+                    callback = context.getResultCallback();
+                }
+            }
+            //only if the result is received
+            if (async || callback != null) {
+                cacheKey = cacheKey(path, actualParams);
+            }
+            if (cacheKey != null) {
+                Object cached = cache.get(cacheKey);
+                metrics.onCache(path, cached != ResultCache.MISS);
+                if (cached != ResultCache.MISS) {
+                    RpcClientContext.remove();
+                    CompletableFuture<Object> result = CompletableFuture.completedFuture(cached);
+                    if (async) {
+                        return result;
+                    }
+                    callback.callback(result);
+                    return null;
+                }
+            }
+        }
+        S session = null;
+        try {
+            session = sessionProvider.getSession();
+        } catch (Exception ex) {
+            RpcClientContext.remove();
+            RpcException rpcEx = new RpcException("Unable to get Session from provider.", ex);
+            if (async) {
+                return failedFuture(rpcEx);
+            }
+            throw rpcEx;
+        }
+        if (session == null || !isSessionOpen(session)) {
+            log.error("Can't get session or session is not open.");
+            RpcClientContext.remove();
+            invalidateSession(session);
+            if (streaming) {
+                throw new RpcException("Can't get session or session is not open.");
+            }
+            return async ? failedFuture(new RpcException("Can't get session or session is not open.")) : null;
+        }
+        try {
+            final RpcProtocol protocol = new RpcProtocol();
+            final Long id = idGenerator.generateId();
+            protocol.setId(id);
+            if (pathIdEnabled && method != null && path.equals(method.getPath())) {
+                protocol.setPathId(method.getPathId());
+            } else {
+                protocol.setPath(path);
+            }
+            if (CollectionUtil.isNotEmpty(actualParams)) {
+                protocol.setParameters(actualParams);
+            }
+
+            if (async || streaming) {
+                final PendingCall pending = new PendingCall(id, true, session, path);
+                final long timeout = getCallbackTimeout(method);
+                if (cacheKey != null) {
+                    cacheResult(pending, cache, cacheKey);
+                }
+                if (streaming) {
+                    pending.stream = new StreamingResult<>(pending);
+                    pending.timeoutMillis = timeout;
+                }
+                final S s = session;
+                //register task first
+                registerPending(pending);
+                boolean permitted;
+                try {
+                    permitted = inFlightLimiter.acquire(session, () -> {
+                        if (pending.holdPermit()) {
+                            sendPending(s, protocol, pending, timeout);
+                        } else {
+                            //removed while queued
+                            inFlightLimiter.release(s);
+                        }
+                    });
+                } catch (RpcException ex) {
+                    removePending(id);
+                    pending.completeExceptionally(ex);
+                    return streaming ? getStreamingResult(pending, method) : pending;
+                }
+                if (!permitted) {
+                    //queued, limit the waiting time
+                    scheduleTimeout(pending, timeout);
+                } else if (pending.holdPermit()) {
+                    sendPending(session, protocol, pending, timeout);
+                } else {
+                    inFlightLimiter.release(session);
+                }
+                return streaming ? getStreamingResult(pending, method) : pending;
+            }
+
+            //其次判断当前线程副本存在
+            if (callback == null) {
+                RpcClientContext context = RpcClientContext.peek();
+                if (context != null && context.getResultCallback() != null) {
+                    callback = context.getResultCallback();
+                }
+            }
+
+            if (callback != null) {
+                final PendingCall pending = new PendingCall(id, false, session, path);
+                if (cacheKey != null) {
+                    cacheResult(pending, cache, cacheKey);
+                }
+                //register task first
+                registerPending(pending);
+                try {
+                    //block if limited, never queued
+                    inFlightLimiter.acquire(session, null);
+                } catch (RpcException ex) {
+                    removePending(id);
+                    throw ex;
+                }
+                if (!pending.holdPermit()) {
+                    inFlightLimiter.release(session);
+                }
+                try {
+                    sendProtocol(session, protocol, createSendListener(protocol, pending, getCallbackTimeout(method)));
+                } catch (RuntimeException ex) {
+                    //release the permit, no timeout scheduled
+                    removePending(id);
+                    throw ex;
+                }
+                try {
+                    //TODO callback blocks invoker thread, use async method instead
+                    callback.callback(pending);
+                } finally {
+                    removePending(id);
+                    pending.cancelTimeout();
+                }
+            } else {
+                sendProtocol(session, protocol, null);
+            }
+            return null;
+        } finally {
+            RpcClientContext.remove();
+            returnSession(session);
+        }
+    }
+
+    /**
+     * 由调用路径及序列化后的调用参数生成缓存键；调用参数无法序列化时返回 null（不缓存）。
+     */
+    private ResultCache.Key cacheKey(String path, Object[] actualParams) {
+        if (actualParams == null || actualParams.length == 0) {
+            return new ResultCache.Key(path, null);
+        }
+        try {
+            return new ResultCache.Key(path, protocolSerialization.serialize(actualParams));
+        } catch (RuntimeException ex) {
+            log.warn("Can't serialize parameters as cache key of [{}] : {}", path, ex.toString());
+            return null;
+        }
+    }
+
+    /**
+     * 调用成功返回时缓存返回结果；回调方式调用的异常结果不缓存。
+     */
+    private static void cacheResult(CompletableFuture<Object> pending, ResultCache cache, ResultCache.Key key) {
+        pending.whenComplete((Object result, Throwable ex) -> {
+            if (ex == null && !(result instanceof Throwable)) {
+                cache.put(key, result);
+            }
+        });
+    }
+
+    /**
+     * 获取流式调用的返回结果（{@code Iterator}或{@code Stream}）。
+     */
+    private Object getStreamingResult(PendingCall pending, ClientMethod method) {
+        return Stream.class == method.getMethod().getReturnType() ? pending.stream.stream() : pending.stream;
+    }
+
+    /**
+     * 发送异步方法的调用，发送失败时以异常完成。
+     */
+    private void sendPending(S session, Protocol<String> protocol, PendingCall pending, long timeoutMilliseconds) {
+        try {
+            sendProtocol(session, protocol, createSendListener(protocol, pending, timeoutMilliseconds));
+        } catch (RuntimeException ex) {
+            removePending(pending.id);
+            pending.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * 创建待回调任务的发送监听器：发送成功后开始超时计时，发送失败则移除（异步任务以异常完成）。
+     */
+    private SendListener createSendListener(Protocol<String> protocol, PendingCall pending, long timeoutMilliseconds) {
+        return (Throwable cause) -> {
+            metrics.onSend(pending.path, System.nanoTime() - pending.startNanos, cause);
+            if (cause == null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Send binary OK for [{}].", protocol);
+                }
+                scheduleTimeout(pending, timeoutMilliseconds);
+            } else {
+                if (removePending(pending.id) != null) {
+                    metrics.onComplete(pending.path, System.nanoTime() - pending.startNanos, cause);
+                }
+                log.error("Exception occured when using session to sent binary for [{}].", protocol, cause);
+                if (pending.async) {
+                    pending.completeExceptionally(cause);
+                }
+            }
+        };
+    }
+
+    /**
+     * 通知服务端取消流式调用：发送同一协议 Id 的结束帧，服务端停止发送流式返回结果；发送失败时仅记录日志。
+     */
+    private void cancelStream(PendingCall pending) {
+        RpcProtocol protocol = new RpcProtocol();
+        protocol.setId(pending.id);
+        protocol.setStreamType(ProtocolSerialization.PROTOCOL_TYPE_STREAM_END);
+        try {
+            sendProtocol(pending.session, protocol, (Throwable cause) -> {
+                if (cause != null) {
+                    log.warn("Exception occured when cancelling stream of [{}].", pending.id, cause);
+                }
+            });
+        } catch (RuntimeException ex) {
+            log.warn("Exception occured when cancelling stream of [{}].", pending.id, ex);
+        }
+    }
+
+    /**
+     * 获取代理方法的回调等待时间，未指定时使用{@link #defaultCallbackTimeoutMilliseconds}.
+     */
+    private long getCallbackTimeout(ClientMethod method) {
+        return method != null && method.getCallbackTimeoutMillis() > 0 ? method.getCallbackTimeoutMillis() : defaultCallbackTimeoutMilliseconds;
+    }
+
+    /**
+     * 开始待回调任务的超时计时；若任务已完成（返回结果先于发送监听器到达）或已开始计时（等待许可时）则不计时。
+     */
+    private void scheduleTimeout(PendingCall pending, long timeoutMilliseconds) {
+        if (pending.isDone() || pending.timeout != null) {
+            return;
+        }
+        pending.timeout = timeoutTimer.newTimeout(() -> expire(pending.id), timeoutMilliseconds, TimeUnit.MILLISECONDS);
+        //completed concurrently
+        if (pending.isDone()) {
+            pending.cancelTimeout();
+        }
+    }
+
+    /**
+     * 流式调用收到元素后重新开始超时计时（等待下一个元素的时间）；尚未开始计时则由发送监听器开始计时。
+     */
+    private void restartTimeout(PendingCall pending) {
+        HashedWheelTimer.Timeout t = pending.timeout;
+        if (t != null) {
+            t.cancel();
+            pending.timeout = null;
+            scheduleTimeout(pending, pending.timeoutMillis);
+        }
+    }
+
+    /**
+     * 移除超时的待回调任务，并以{@code TimeoutException}完成。
+     */
+    private void expire(Long id) {
+        PendingCall pending = removePending(id);
+        if (pending != null) {
+            if (log.isInfoEnabled()) {
+                log.info("Clean expired Task: [{}] ", id);
+            }
+            TimeoutException ex = new TimeoutException("Callback timeout for [" + id + "].");
+            metrics.onComplete(pending.path, System.nanoTime() - pending.startNanos, ex);
+            pending.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * 记录待回调任务。
+     */
+    private void registerPending(PendingCall pending) {
+        callbackTasks.put(pending.id, pending);
+        sessionProvider.onCallStarted(pending.session);
+    }
+
+    /**
+     * 移除待回调任务（发送失败、超时、取消等无有效响应的情形）。
+     */
+    private PendingCall removePending(Long id) {
+        return removePending(id, false);
+    }
+
+    /**
+     * 移除待回调任务；仅移除成功的一方通知{@code SessionProvider}调用结束，并释放其持有的许可。
+     * 仅正常返回结果的非流式调用向{@code SessionProvider}给出响应时间。
+     */
+    private PendingCall removePending(Long id, boolean responded) {
+        PendingCall pending = callbackTasks.remove(id);
+        if (pending != null) {
+            //response time of the whole stream is not comparable
+            sessionProvider.onCallCompleted(pending.session,
+                    responded && pending.stream == null ? System.nanoTime() - pending.startNanos : -1);
+            if (PERMIT_UPDATER.getAndSet(pending, PERMIT_RELEASED) == PERMIT_HELD) {
+                inFlightLimiter.release(pending.session);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * 归还{@code Session}至{@code SessionProvider}.
+     */
+    private void returnSession(S session) {
+        if (session == null) {
+            return;
+        }
+        try {
+            sessionProvider.returnSession(session);
+        } catch (Exception ex) {
+            log.error("Exception occured when returning session to the provider.", ex);
+            //ignore
+        }
+    }
+
+    /**
+     * 从{@code SessionProvider}中移除不可用的{@code Session}.
+     */
+    private void invalidateSession(S session) {
+        if (session == null) {
+            return;
+        }
+        inFlightLimiter.remove(session);
+        try {
+            sessionProvider.invalidateSession(session);
+        } catch (Exception ex) {
+            log.error("Exception occured when invalidating session of the provider.", ex);
+            //ignore
+        }
+    }
+
+    /**
+     * 以指定异常完成的{@code CompletableFuture}.
+     */
+    private static CompletableFuture<Object> failedFuture(Throwable cause) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        future.completeExceptionally(cause);
+        return future;
+    }
+
+    /**
+     * 判断{@code Session}是否可用。
+     *
+     * @param session {@code Session}对象。
+     *
+     * @return {@code Session}是否可用。
+     */
+    protected abstract boolean isSessionOpen(S session);
+
+    /**
+     * 通过{@code Session}异步发送{@link Protocol}协议对象。
+     *
+     * @param session {@code Session}对象。
+     * @param protocol {@code Protocol}对象。
+     * @param listener 发送完成的监听器，可为 null。
+     */
+    protected abstract void sendProtocol(S session, Protocol<String> protocol, SendListener listener);
+
+    /**
+     * 判断调用参数是否为传输层的参数（不作为{@code Protocol}的调用参数）；默认返回 false。
+     *
+     * @param param 调用参数。
+     *
+     * @return 是否为传输层的参数。
+     */
+    protected boolean isTransportParameter(Object param) {
+        return false;
+    }
+
+    /**
+     * 判断参数声明类型是否为传输层的参数类型，用于生成代理方法时确定实际调用参数的位置；默认返回 false。
+     *
+     * @param type 参数声明类型。
+     *
+     * @return 是否为传输层的参数类型。
+     *
+     * @see #isTransportParameter(Object)
+     */
+    protected boolean isTransportParameterType(Class<?> type) {
+        return false;
+    }
+
+    /**
+     * 消息发送完成的监听器。
+     */
+    @FunctionalInterface
+    protected interface SendListener {
+
+        /**
+         * 消息发送完成。
+         *
+         * @param cause 发送失败的异常；发送成功为 null。
+         */
+        void onComplete(Throwable cause);
+    }
+
+    /**
+     * 接收{@code byte[]}类型消息，转换至{@link Protocol}协议对象，
+     * 进而根据协议Id进行相应的回调处理。
+     *
+     * @param <T> type.
+     * @param messages bytes data.
+     * @param session RPC Session object.
+     *
+     * @return 调用结果。
+     *
+     * @throws RpcException 如果发生调用错误。
+     */
+    @Override
+    public <T> T onMessage(byte[] messages, S session) throws RpcException {
+        return onMessage(ByteBuffer.wrap(messages), session);
+    }
+
+    /**
+     * 接收{@code ByteBuffer}类型消息；批量帧拆分后依次回调其中的消息，返回 null.
+     *
+     * @see ProtocolSerialization#isBatch(ByteBuffer)
+     */
+    @Override
+    public <T> T onMessage(ByteBuffer messages, S session) throws RpcException {
+        metrics.onReceive(messages.remaining());
+        if (ProtocolSerialization.isBatch(messages)) {
+            for (ByteBuffer frame : ProtocolSerialization.splitBatch(messages)) {
+                onFrame(frame, session);
+            }
+            return null;
+        }
+        return onFrame(messages, session);
+    }
+
+    /**
+     * 处理单个协议帧。
+     */
+    private <T> T onFrame(ByteBuffer messages, S session) throws RpcException {
+        long start = System.nanoTime();
+        int bytes = messages.remaining();
+        Protocol<String> protocol = parseRpcProtocol(messages, session);
+        if (protocol != null) {
+            metrics.onDecode(getMetricsPath(protocol), bytes, System.nanoTime() - start);
+            if (log.isDebugEnabled()) {
+                log.debug("Received feedback protocol [{}].", protocol);
+            }
+            return onProtocol(protocol);
+        }
+        return null;
+    }
+
+    /**
+     * 子类继承，可实现不同{@code Protocol}在客户端的调用；默认回调等待的任务。
+     *
+     * @param <T> type.
+     * @param protocol {@code Protocol}.
+     *
+     * @return 调用结果。
+     */
+    protected <T> T onProtocol(Protocol<String> protocol) {
+        Long id = protocol.getId();
+        if (protocol instanceof RpcProtocol
+                && ((RpcProtocol) protocol).getStreamType() == ProtocolSerialization.PROTOCOL_TYPE_STREAM) {
+            //stream element, completed by the end-of-stream frame
+            PendingCall task = callbackTasks.get(id);
+            if (task != null) {
+                if (task.stream == null) {
+                    log.warn("Not a streaming call, ignore stream element of [{}].", id);
+                    return null;
+                }
+                task.stream.offer(protocol.getResult());
+                restartTimeout(task);
+            }
+            return (T) protocol.getResult();
+        }
+        Object res = protocol.getResult();
+        PendingCall task = removePending(id, !(res instanceof Throwable));
+        if (task != null) {
+            metrics.onComplete(task.path, System.nanoTime() - task.startNanos, res instanceof Throwable ? (Throwable) res : null);
+            if (task.async && res instanceof Throwable) {
+                task.completeExceptionally((Throwable) res);
+            } else {
+                task.complete(res);
+            }
+            task.cancelTimeout();
+            return (T) res;
+        }
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        clients.clear();
+        timeoutTimer.stop();
+        //fail all pending tasks
+        for (Long id : callbackTasks.keySet()) {
+            PendingCall pending = removePending(id);
+            if (pending != null) {
+                pending.completeExceptionally(new RpcException("Client has been cleared, discard task [" + id + "]."));
+            }
+        }
+        inFlightLimiter.clear();
+        if (sessionProvider != null) {
+            sessionProvider.close();
+        }
+    }
+
+    /**
+     * 清理回调任务记录的默认等待时间；此值必需大于0.
+     *
+     * @param defaultCallbackTimeoutMilliseconds 清理回调任务记录的默认等待时间。
+     */
+    public void setDefaultCallbackTimeoutMilliseconds(long defaultCallbackTimeoutMilliseconds) {
+        if (defaultCallbackTimeoutMilliseconds <= 0) {
+            throw new IllegalArgumentException("Value can't be zero or negative.");
+        }
+        this.defaultCallbackTimeoutMilliseconds = defaultCallbackTimeoutMilliseconds;
+    }
+
+    @Override
+    public ProtocolSerialization getObjectSerialization() {
+        return this.protocolSerialization;
+    }
+
+    /** PendingCall 许可状态：未获得、持有、已释放（任务已移除） */
+    private static final int PERMIT_NONE = 0, PERMIT_HELD = 1, PERMIT_RELEASED = 2;
+
+    /** PendingCall 许可状态 */
+    private static final AtomicIntegerFieldUpdater<AbstractRpcClientActionFactory.PendingCall> PERMIT_UPDATER
+            = AtomicIntegerFieldUpdater.newUpdater(AbstractRpcClientActionFactory.PendingCall.class, "permit");
+
+    /**
+     * 包含指定{@code Long}型Id的待回调任务。
+     */
+    private final class PendingCall extends CompletableFuture<Object> {
+
+        /**
+         * Id.
+         */
+        private final Long id;
+
+        /**
+         * 是否为异步方法的任务；非异步任务（{@link ResultCallback}）以返回的异常对象作为正常结果。
+         */
+        private final boolean async;
+
+        /**
+         * 超时计时，发送成功后设置。
+         */
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        /**
+         * 发送调用的{@code Session}.
+         */
+        private final S session;
+
+        /**
+         * 许可状态（{@link #PERMIT_UPDATER}）。
+         */
+        volatile int permit = PERMIT_NONE;
+
+        /**
+         * 调用路径。
+         */
+        private final String path;
+
+        /**
+         * 开始调用的时间（纳秒）。
+         */
+        private final long startNanos = System.nanoTime();
+
+        /**
+         * 流式调用的返回结果；非流式调用为 null.
+         */
+        private StreamingResult<Object> stream;
+
+        /**
+         * 流式调用等待每个元素的超时时间（毫秒）。
+         */
+        private long timeoutMillis;
+
+        /**
+         * Constructor.
+         */
+        PendingCall(Long id, boolean async, S session, String path) {
+            this.id = id;
+            this.async = async;
+            this.session = session;
+            this.path = path;
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            if (!async) {
+                throw new UnsupportedOperationException("Please use method get(long timeout, TimeUnit unit).");
+            }
+            return super.get();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (removePending(id) != null && stream != null) {
+                cancelStream(this);
+            }
+            cancelTimeout();
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        /**
+         * 记录已获得的许可。
+         *
+         * @return 是否记录成功；false 表示任务已移除，许可需立即释放。
+         */
+        boolean holdPermit() {
+            return PERMIT_UPDATER.compareAndSet(this, PERMIT_NONE, PERMIT_HELD);
+        }
+
+        /**
+         * 取消超时计时。
+         */
+        void cancelTimeout() {
+            HashedWheelTimer.Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+        }
+
+    }
+
+    /**
+     * 根据{@code Session}消息解析{@code Protocol}对象。
+     *
+     * @param messages byte[]类型消息。
+     * @param session {@code Session}对象。
+     *
+     * @return {@code Protocol}对象。
+     */
+    private Protocol<String> parseRpcProtocol(ByteBuffer messages, S session) {
+        try {
+            return getObjectSerialization().deserialize(messages, RpcProtocol.class);
+        } catch (Throwable t) {
+            log.error("Exception ocurred when parsing Rpc Protocol.", t);
+            Protocol<String> protocol = new RpcProtocol();
+            protocol = getObjectSerialization().fillProtocol(protocol, messages);
+            return protocol;
+        }
+    }
+
+    @Override
+    public void addActions(Object obj) {
+        Class<?> clientInterface = null;
+        //clinet only accpets interface
+        if (obj instanceof Class && ((clientInterface = (Class) obj)).isInterface()) {
+            if (clientAnnotatedClass != null && !clientInterface.isAnnotationPresent(clientAnnotatedClass)) {
+                throw new JRouterException(String.format("Client interface [%s] should has @%s", clientInterface, clientAnnotatedClass));
+            }
+            //因为需代理方法参数，方法名称需唯一
+            //create dynamic interface
+            Object exist = clients.put(clientInterface, clientObjectFactory.newInstance(clientInterface));
+            if (exist != null) {
+                throw new JRouterException("Client [" + clientInterface + "] already exists.");
+            }
+        } else {
+            log.warn("Only accepts interface types, ignore [{}]", obj == null ? "null" : obj.getClass());
+        }
+    }
+
+    /**
+     * 返回协议对象用于度量的调用路径；仅包含路径标识时由代理方法的路径标识查找。
+     *
+     * @param protocol {@code Protocol}对象。
+     *
+     * @return 调用路径，未找到时为 null.
+     */
+    protected String getMetricsPath(Protocol<String> protocol) {
+        String path = protocol.getPath();
+        if (path == null && protocol instanceof RpcProtocol) {
+            path = clientPaths.get(((RpcProtocol) protocol).getPathId());
+        }
+        return path;
+    }
+
+    /**
+     * 由指定的方法生成{@code String}型路径。
+     *
+     * @param targetClass 底层方法所表示的 {@code Class} 对象。
+     * @param method 指定的底层方法。
+     *
+     * @return 用于{@link #invokeAction}的{@code String}型调用路径。
+     *
+     * @see #clientObjectFactory
+     */
+    protected String parsePath(Class<?> targetClass, Method method) {
+        Namespace ns = getActionFilter().getNamespace(targetClass, method);
+        //trim empty and '/'
+        String namespace = ns == null ? Character.toString(getPathSeparator()) : getPathSeparator() + StringUtil.trim(ns.name(), getPathSeparator());
+        return buildActionPath(namespace, "", method);
+    }
+
+    /**
+     * RpcConsumerActionFilter.
+     *
+     * @see RpcConsumer
+     */
+    protected static class RpcConsumerActionFilter extends PathActionFactory.DefaultActionFilter {
+
+        /**
+         * 提供{@link RpcConsumer}至{@link Namespace}的转换。
+         */
+        @Override
+        public Namespace getNamespace(Object obj, Method method) {
+            Class<?> clazz = method.getDeclaringClass();
+            final RpcConsumer consumer = clazz.getAnnotation(RpcConsumer.class);
+            if (consumer != null) {
+                String namespace = consumer.namespace();
+                if (StringUtil.isBlank(namespace)) {
+                    namespace = clazz.getCanonicalName();
+                }
+                final String name = namespace;
+                return new Namespace() {
+                    @Override
+                    public String name() {
+                        return name;
+                    }
+
+                    @Override
+                    public String interceptorStack() {
+                        return consumer.interceptorStack();
+                    }
+
+                    @Override
+                    public String[] interceptors() {
+                        return consumer.interceptors();
+                    }
+
+                    @Override
+                    public boolean autoIncluded() {
+                        return consumer.autoIncluded();
+                    }
+
+                    @Override
+                    public Class<? extends Annotation> annotationType() {
+                        return RpcConsumer.class;
+                    }
+                };
+            }
+            return super.getNamespace(obj, method);
+        }
+    }
+}
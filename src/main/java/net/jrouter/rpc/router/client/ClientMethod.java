@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import net.jrouter.rpc.annotation.RpcCacheable;
+import net.jrouter.rpc.annotation.RpcProperties;
+import net.jrouter.rpc.router.ResultCallback;
+import net.jrouter.rpc.router.impl.PathIdTable;
+
+/**
+ * 客户端代理方法的调用属性，于生成代理类时创建。
+ *
+ * @see RpcClientActionFactory#invokeMethod
+ */
+@lombok.Getter
+@lombok.ToString(of = {"path", "pathId", "async", "streaming", "callbackTimeoutMillis"})
+public class ClientMethod {
+
+    /**
+     * 调用路径。
+     */
+    private final String path;
+
+    /**
+     * 调用路径的{@code int}型标识。
+     *
+     * @see PathIdTable#pathId(String)
+     */
+    private final int pathId;
+
+    /**
+     * 底层方法。
+     */
+    private final Method method;
+
+    /**
+     * 是否为异步方法（返回{@code CompletableFuture/CompletionStage/Future}），异步方法不阻塞调用线程。
+     */
+    private final boolean async;
+
+    /**
+     * 是否为流式返回结果的方法（返回{@code Iterator/Stream}），逐个接收服务端的流式帧。
+     *
+     * @see StreamingResult
+     */
+    private final boolean streaming;
+
+    /**
+     * 回调任务记录的等待时间（毫秒），由{@link RpcProperties#callbackTimeoutMillis()}指定；非正数表示使用默认值。
+     */
+    private final long callbackTimeoutMillis;
+
+    /**
+     * 调用请求的压缩阈值，由{@link RpcProperties#compressionThreshold()}指定；负数表示使用默认值。
+     */
+    private final int compressionThreshold;
+
+    /**
+     * 返回结果缓存，由{@link RpcCacheable}指定；null 表示不缓存。
+     */
+    private final ResultCache resultCache;
+
+    /**
+     * 回调参数（声明类型为{@link ResultCallback}）的位置；-1 表示无回调参数。
+     */
+    private final int callbackIndex;
+
+    /**
+     * 实际调用参数（去除回调及传输层参数）的位置；null 表示无法由声明类型确定，需在调用时逐个判断参数。
+     */
+    @lombok.Getter(lombok.AccessLevel.NONE)
+    private final int[] parameterIndexes;
+
+    /**
+     * Constructor.
+     *
+     * @param path 调用路径。
+     * @param method 底层方法。
+     */
+    public ClientMethod(String path, Method method) {
+        this(path, method, type -> false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param path 调用路径。
+     * @param method 底层方法。
+     * @param transportParameterType 判断参数声明类型是否为传输层的参数类型。
+     */
+    public ClientMethod(String path, Method method, Predicate<Class<?>> transportParameterType) {
+        this.path = path;
+        this.pathId = PathIdTable.pathId(path);
+        this.method = method;
+        this.async = isAsyncType(method.getReturnType());
+        this.streaming = isStreamingType(method.getReturnType());
+        RpcProperties properties = method.getAnnotation(RpcProperties.class);
+        this.callbackTimeoutMillis = properties == null ? -1 : properties.callbackTimeoutMillis();
+        this.compressionThreshold = properties == null ? -1 : properties.compressionThreshold();
+        RpcCacheable cacheable = method.getAnnotation(RpcCacheable.class);
+        this.resultCache = cacheable == null || streaming ? null : new ResultCache(cacheable);
+
+        int callback = -1;
+        boolean positional = true;
+        Class<?>[] types = method.getParameterTypes();
+        int[] indexes = new int[types.length];
+        int size = 0;
+        for (int i = 0; i < types.length; i++) {
+            Class<?> type = types[i];
+            if (ResultCallback.class.isAssignableFrom(type)) {
+                //only one callback parameter
+                positional &= callback == -1;
+                callback = i;
+            } else if (transportParameterType.test(type)) {
+                continue;
+            } else if (type.isAssignableFrom(ResultCallback.class)) {
+                //may be a callback or transport parameter at runtime, e.g. Object
+                positional = false;
+            } else {
+                indexes[size++] = i;
+            }
+        }
+        this.callbackIndex = positional ? callback : -1;
+        this.parameterIndexes = positional ? Arrays.copyOf(indexes, size) : null;
+    }
+
+    /**
+     * 是否可由参数声明类型确定实际调用参数及回调参数的位置。
+     *
+     * @return 是否按参数位置调用。
+     *
+     * @see RpcClientActionFactory#invokeMethod(ClientMethod, ResultCallback, Object[])
+     */
+    public boolean isPositional() {
+        return parameterIndexes != null;
+    }
+
+    /**
+     * 获取实际调用参数（去除回调及传输层参数）的位置。
+     *
+     * @return 实际调用参数的位置；非{@link #isPositional()}时返回 null。
+     */
+    public int[] getParameterIndexes() {
+        return parameterIndexes == null ? null : parameterIndexes.clone();
+    }
+
+    /**
+     * 获取实际调用参数（去除回调及传输层参数）的个数。
+     *
+     * @return 实际调用参数的个数；非{@link #isPositional()}时返回 -1。
+     */
+    public int getParameterCount() {
+        return parameterIndexes == null ? -1 : parameterIndexes.length;
+    }
+
+    /**
+     * 判断返回类型是否为异步类型（可由{@code CompletableFuture}赋值，{@code Object}除外）。
+     *
+     * @param type 返回类型。
+     *
+     * @return 是否为异步类型。
+     */
+    public static boolean isAsyncType(Class<?> type) {
+        return type != Object.class && type.isAssignableFrom(CompletableFuture.class);
+    }
+
+    /**
+     * 判断返回类型是否为流式返回结果的类型（{@code Iterator}或{@code Stream}）。
+     *
+     * @param type 返回类型。
+     *
+     * @return 是否为流式返回结果的类型。
+     */
+    public static boolean isStreamingType(Class<?> type) {
+        return type == Iterator.class || type == Stream.class;
+    }
+}
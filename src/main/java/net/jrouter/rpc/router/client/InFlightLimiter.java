@@ -0,0 +1,360 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import net.jrouter.rpc.RpcException;
+
+/**
+ * 客户端待回调调用（in-flight）的数量限制：包括全局的限制及每个{@code Session}的限制，达到限制时的处理见{@link Policy}.
+ * 调用发出前获取许可，调用结束（返回结果、超时或发送失败）后释放许可。
+ *
+ * @param <S> RPC相关联的Session.
+ */
+@Slf4j
+public class InFlightLimiter<S> {
+
+    /**
+     * 达到限制时的处理策略。
+     */
+    public enum Policy {
+
+        /**
+         * 阻塞调用线程，直至获得许可或等待超时（抛出{@code RpcException}）。
+         */
+        BLOCK,
+        /**
+         * 立即失败（抛出{@code RpcException}；异步方法返回以异常完成的{@code CompletableFuture}）。
+         */
+        FAIL_FAST,
+        /**
+         * 异步方法的调用加入有界等待队列，获得许可后发出，队列已满时立即失败；非异步的调用同{@link #BLOCK}.
+         */
+        QUEUE
+    }
+
+    /**
+     * 全局的最大待回调调用数；不大于 0 表示不限制。
+     */
+    @lombok.Getter
+    private final int maxInFlight;
+
+    /**
+     * 每个{@code Session}的最大待回调调用数；不大于 0 表示不限制。
+     */
+    @lombok.Getter
+    private final int maxInFlightPerSession;
+
+    /**
+     * 达到限制时的处理策略。
+     */
+    @lombok.Getter
+    private final Policy policy;
+
+    /**
+     * {@link Policy#BLOCK}的最大等待时间（毫秒）。
+     */
+    @lombok.Getter
+    private final long maxWaitMillis;
+
+    /**
+     * {@link Policy#QUEUE}的最大队列长度。
+     */
+    @lombok.Getter
+    private final int maxQueueSize;
+
+    /** 全局的待回调调用数 */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /** 每个{@code Session}的待回调调用数 */
+    private final Map<S, AtomicInteger> sessionInFlight = new ConcurrentHashMap<>();
+
+    /** 等待许可的调用 */
+    private final Queue<Deferred<S>> queue = new ConcurrentLinkedQueue<>();
+
+    /** 等待队列的长度 */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /** 是否正在处理等待队列 */
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    /** 阻塞等待许可的线程数 */
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /** 阻塞等待的锁 */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** 许可已释放 */
+    private final Condition released = lock.newCondition();
+
+    /**
+     * Constructor.
+     *
+     * @param maxInFlight 全局的最大待回调调用数，不大于 0 表示不限制。
+     * @param maxInFlightPerSession 每个{@code Session}的最大待回调调用数，不大于 0 表示不限制。
+     * @param policy 达到限制时的处理策略。
+     * @param maxWaitMillis {@link Policy#BLOCK}的最大等待时间（毫秒）。
+     * @param maxQueueSize {@link Policy#QUEUE}的最大队列长度。
+     */
+    public InFlightLimiter(int maxInFlight, int maxInFlightPerSession, Policy policy, long maxWaitMillis, int maxQueueSize) {
+        this.maxInFlight = maxInFlight;
+        this.maxInFlightPerSession = maxInFlightPerSession;
+        this.policy = policy == null ? Policy.BLOCK : policy;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    /**
+     * 获取许可；未能立即获得许可时根据处理策略阻塞、失败或加入等待队列。
+     *
+     * @param session {@code Session}对象。
+     * @param deferred 加入等待队列时，获得许可后执行的任务；为 null 时{@link Policy#QUEUE}同{@link Policy#BLOCK}.
+     *
+     * @return 是否已获得许可；false 表示已加入等待队列。
+     *
+     * @throws RpcException 如果达到限制且无法获得许可。
+     */
+    public boolean acquire(S session, Runnable deferred) throws RpcException {
+        if (tryAcquire(session)) {
+            return true;
+        }
+        switch (policy) {
+            case FAIL_FAST:
+                throw limitExceeded(session);
+            case QUEUE:
+                if (deferred != null) {
+                    if (queued.incrementAndGet() > maxQueueSize) {
+                        queued.decrementAndGet();
+                        throw new RpcException("In-flight queue is full (" + maxQueueSize + ").");
+                    }
+                    queue.offer(new Deferred<>(session, deferred));
+                    //released before offered
+                    drain();
+                    return false;
+                }
+            //block if not deferred
+            default:
+                if (await(session)) {
+                    return true;
+                }
+                throw limitExceeded(session);
+        }
+    }
+
+    /**
+     * 尝试立即获取许可。
+     *
+     * @param session {@code Session}对象。
+     *
+     * @return 是否获得许可。
+     */
+    public boolean tryAcquire(S session) {
+        if (!increment(inFlight, maxInFlight)) {
+            return false;
+        }
+        if (session != null && !increment(counter(session), maxInFlightPerSession)) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 释放许可，并处理等待的调用。
+     *
+     * @param session {@code Session}对象。
+     */
+    public void release(S session) {
+        if (session != null) {
+            AtomicInteger count = sessionInFlight.get(session);
+            if (count != null) {
+                count.decrementAndGet();
+            }
+        }
+        inFlight.decrementAndGet();
+        if (!queue.isEmpty()) {
+            drain();
+        }
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 移除{@code Session}的计数（如{@code Session}已不可用）。
+     *
+     * @param session {@code Session}对象。
+     */
+    public void remove(S session) {
+        if (session != null) {
+            sessionInFlight.remove(session);
+        }
+    }
+
+    /**
+     * 清空计数及等待队列（等待的调用不再执行）。
+     */
+    public void clear() {
+        queue.clear();
+        queued.set(0);
+        sessionInFlight.clear();
+    }
+
+    /**
+     * 获取全局的待回调调用数。
+     *
+     * @return 待回调调用数。
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * 获取指定{@code Session}的待回调调用数。
+     *
+     * @param session {@code Session}对象。
+     *
+     * @return 待回调调用数。
+     */
+    public int getInFlightCount(S session) {
+        AtomicInteger count = sessionInFlight.get(session);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * 获取等待队列的长度。
+     *
+     * @return 等待队列的长度。
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    //get or create session counter
+    private AtomicInteger counter(S session) {
+        AtomicInteger count = sessionInFlight.get(session);
+        if (count == null) {
+            count = sessionInFlight.computeIfAbsent(session, k -> new AtomicInteger());
+        }
+        return count;
+    }
+
+    //increment if less than max (max <= 0 means unlimited)
+    private static boolean increment(AtomicInteger count, int max) {
+        if (max <= 0) {
+            count.incrementAndGet();
+            return true;
+        }
+        for (;;) {
+            int current = count.get();
+            if (current >= max) {
+                return false;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    //wait for permit until timeout
+    private boolean await(S session) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        waiters.incrementAndGet();
+        lock.lock();
+        try {
+            while (!tryAcquire(session)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = released.awaitNanos(nanos);
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RpcException("Interrupted while waiting for in-flight permit.", ex);
+        } finally {
+            lock.unlock();
+            waiters.decrementAndGet();
+        }
+    }
+
+    //run deferred tasks in order while permits are available
+    private void drain() {
+        while (draining.compareAndSet(false, true)) {
+            try {
+                Deferred<S> task;
+                while ((task = queue.peek()) != null && tryAcquire(task.session)) {
+                    //single consumer
+                    queue.poll();
+                    queued.decrementAndGet();
+                    try {
+                        task.task.run();
+                    } catch (RuntimeException ex) {
+                        log.error("Exception occured when running deferred call.", ex);
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            //offered or released after last check
+            Deferred<S> head = queue.peek();
+            if (head == null || !canAcquire(head.session)) {
+                return;
+            }
+        }
+    }
+
+    //whether a permit is available now (without acquiring)
+    private boolean canAcquire(S session) {
+        return (maxInFlight <= 0 || inFlight.get() < maxInFlight)
+                && (maxInFlightPerSession <= 0 || session == null || counter(session).get() < maxInFlightPerSession);
+    }
+
+    private RpcException limitExceeded(S session) {
+        return new RpcException("In-flight limit exceeded, global [" + inFlight.get() + "/" + maxInFlight
+                + "], session [" + getInFlightCount(session) + "/" + maxInFlightPerSession + "].");
+    }
+
+    /**
+     * 等待许可的调用。
+     */
+    private static final class Deferred<S> {
+
+        private final S session;
+
+        private final Runnable task;
+
+        Deferred(S session, Runnable task) {
+            this.session = session;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 多个服务端点的{@code SessionProvider}：每个服务端点由各自的{@code SessionProvider}提供{@code Session}
+ * （如连接至不同{@code URI}的{@link MultiplexedSessionProvider}），每次调用由{@link LoadBalancer}选择服务端点。
+ *
+ * 各服务端点记录待回调的调用数及响应时间的指数加权移动平均值（{@link #onCallCompleted(Object, long)}），
+ * 移动平均值的可信度随无响应的时间衰减（{@link LoadBalancer.Endpoint#getLatencyWeight()}），使响应变慢的服务端点于一段时间后重新获得调用。
+ * 仅正常返回结果的调用计入响应时间；发送失败、超时、取消及返回异常的调用不计入。
+ * 无法获取{@code Session}的服务端点于{@link #retryDelayMillis}内不再选择，期间改选其他服务端点。
+ *
+ * @param <S> RPC相关联的Session.
+ */
+@Slf4j
+public class LoadBalancedSessionProvider<S> implements SessionProvider<S> {
+
+    /**
+     * 负载均衡策略。
+     */
+    @lombok.Getter
+    private final LoadBalancer loadBalancer;
+
+    /**
+     * 服务端点。
+     */
+    private final List<Node<S>> nodes;
+
+    /**
+     * {@code Session}:服务端点 映射；服务端点的{@code SessionProvider}可能自行重建{@code Session}，弱引用持有。
+     * 失效的{@code Session}仍保留映射，其未完成的调用完成时仍需更新服务端点的负载状态。
+     */
+    private final Map<S, Node<S>> sessions = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * 移动平均值中新响应时间的权重，(0, 1].
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private volatile double ewmaAlpha = 0.3;
+
+    /**
+     * 移动平均值的可信度随无响应的时间衰减的时间常数（毫秒）；不大于 0 表示不衰减。
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private volatile long decayMillis = 10000;
+
+    /**
+     * 无法获取{@code Session}的服务端点的重试间隔（毫秒）。
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private volatile long retryDelayMillis = 1000;
+
+    /**
+     * 是否已关闭。
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param providers 各服务端点的{@code SessionProvider}.
+     * @param loadBalancer 负载均衡策略。
+     */
+    public LoadBalancedSessionProvider(List<? extends SessionProvider<S>> providers, LoadBalancer loadBalancer) {
+        if (providers == null || providers.isEmpty()) {
+            throw new IllegalArgumentException("SessionProviders must not be empty.");
+        }
+        this.loadBalancer = loadBalancer;
+        List<Node<S>> list = new ArrayList<>(providers.size());
+        for (SessionProvider<S> provider : providers) {
+            list.add(new Node<>(this, provider));
+        }
+        this.nodes = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Constructor with power of two choices strategy.
+     *
+     * @param providers 各服务端点的{@code SessionProvider}.
+     */
+    public LoadBalancedSessionProvider(List<? extends SessionProvider<S>> providers) {
+        this(providers, new LoadBalancer.PowerOfTwoChoices());
+    }
+
+    /**
+     * 选择服务端点并获取其{@code Session}；失败时改选其他可用的服务端点，均失败时抛出最后的异常。
+     */
+    @Override
+    public S getSession() throws Exception {
+        if (closed) {
+            throw new IllegalStateException("SessionProvider has been closed.");
+        }
+        Exception last = null;
+        for (int i = 0, len = nodes.size(); i < len; i++) {
+            Node<S> node = select();
+            try {
+                S session = node.provider.getSession();
+                if (session != null) {
+                    sessions.put(session, node);
+                    node.downUntilNanos = 0;
+                    return session;
+                }
+            } catch (Exception ex) {
+                last = ex;
+                log.warn("Can't get session from endpoint [{}] : {}", node.provider, ex.toString());
+            }
+            //non-zero
+            node.downUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryDelayMillis) | 1;
+        }
+        if (last != null) {
+            throw last;
+        }
+        return null;
+    }
+
+    /**
+     * 由负载均衡策略选择可用的服务端点；均不可用时于所有服务端点中选择。
+     */
+    private Node<S> select() {
+        long now = System.nanoTime();
+        List<Node<S>> available = nodes;
+        for (Node<S> node : nodes) {
+            if (!node.isAvailable(now)) {
+                available = new ArrayList<>(nodes.size());
+                for (Node<S> n : nodes) {
+                    if (n.isAvailable(now)) {
+                        available.add(n);
+                    }
+                }
+                if (available.isEmpty()) {
+                    available = nodes;
+                }
+                break;
+            }
+        }
+        return available.size() == 1 ? available.get(0) : available.get(loadBalancer.select(available));
+    }
+
+    @Override
+    public void returnSession(S session) throws Exception {
+        Node<S> node = sessions.get(session);
+        if (node != null) {
+            node.provider.returnSession(session);
+        }
+    }
+
+    @Override
+    public void invalidateSession(S session) throws Exception {
+        //keep the mapping for pending calls
+        Node<S> node = sessions.get(session);
+        if (node != null) {
+            node.provider.invalidateSession(session);
+        }
+    }
+
+    @Override
+    public void onCallStarted(S session) {
+        Node<S> node = sessions.get(session);
+        if (node != null) {
+            node.pending.incrementAndGet();
+            node.provider.onCallStarted(session);
+        }
+    }
+
+    @Override
+    public void onCallCompleted(S session) {
+        onCallCompleted(session, -1);
+    }
+
+    /**
+     * 记录服务端点的响应时间并更新其移动平均值。
+     */
+    @Override
+    public void onCallCompleted(S session, long nanos) {
+        Node<S> node = sessions.get(session);
+        if (node != null) {
+            node.pending.decrementAndGet();
+            if (nanos >= 0) {
+                node.record(nanos);
+            }
+            node.provider.onCallCompleted(session, nanos);
+        }
+    }
+
+    /**
+     * 返回各服务端点的负载状态，与构造时的{@code SessionProvider}顺序一致。
+     *
+     * @return 各服务端点的负载状态。
+     */
+    public List<? extends LoadBalancer.Endpoint> getEndpoints() {
+        return nodes;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Node<S> node : nodes) {
+            try {
+                node.provider.close();
+            } catch (RuntimeException ex) {
+                log.error("Exception occured when closing endpoint [{}].", node.provider, ex);
+            }
+        }
+        sessions.clear();
+    }
+
+    /**
+     * 服务端点。
+     */
+    private static final class Node<S> implements LoadBalancer.Endpoint {
+
+        /** 所属的{@code LoadBalancedSessionProvider} */
+        private final LoadBalancedSessionProvider<S> owner;
+
+        /** 服务端点的{@code SessionProvider} */
+        private final SessionProvider<S> provider;
+
+        /** 待回调的调用数 */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /** 响应时间的移动平均值，于 this 锁下更新 */
+        private volatile double ewma;
+
+        /** 最近一次响应的{@code System.nanoTime()} */
+        private volatile long lastNanos;
+
+        /** 不可用至此{@code System.nanoTime()}；0 表示可用 */
+        private volatile long downUntilNanos;
+
+        Node(LoadBalancedSessionProvider<S> owner, SessionProvider<S> provider) {
+            this.owner = owner;
+            this.provider = provider;
+        }
+
+        boolean isAvailable(long now) {
+            long until = downUntilNanos;
+            return until == 0 || now - until >= 0;
+        }
+
+        synchronized void record(long nanos) {
+            double value = ewma;
+            ewma = lastNanos == 0 ? nanos : value + owner.ewmaAlpha * (nanos - value);
+            //non-zero
+            lastNanos = System.nanoTime() | 1;
+        }
+
+        @Override
+        public int getPending() {
+            return Math.max(0, pending.get());
+        }
+
+        @Override
+        public double getLatencyNanos() {
+            return ewma;
+        }
+
+        @Override
+        public double getLatencyWeight() {
+            long last = lastNanos;
+            if (last == 0) {
+                return 0;
+            }
+            long decay = owner.decayMillis;
+            if (decay <= 0) {
+                return 1;
+            }
+            long idle = System.nanoTime() - last;
+            return idle <= 0 ? 1 : Math.exp(-(double) idle / TimeUnit.MILLISECONDS.toNanos(decay));
+        }
+
+        @Override
+        public String toString() {
+            return "Endpoint{" + "provider=" + provider + ", pending=" + getPending()
+                    + ", latencyNanos=" + (long) getLatencyNanos() + ", latencyWeight=" + getLatencyWeight() + '}';
+        }
+    }
+}
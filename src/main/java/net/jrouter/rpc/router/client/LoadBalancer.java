@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多个服务端点的负载均衡策略，由{@link LoadBalancedSessionProvider}于每次调用时选择服务端点。
+ *
+ * @see RoundRobin
+ * @see LeastPending
+ * @see PowerOfTwoChoices
+ */
+@FunctionalInterface
+public interface LoadBalancer {
+
+    /**
+     * 选择服务端点。
+     *
+     * @param endpoints 可用的服务端点，不为空。
+     *
+     * @return 选中的服务端点的位置。
+     */
+    int select(List<? extends Endpoint> endpoints);
+
+    /**
+     * 服务端点的负载状态。
+     */
+    interface Endpoint {
+
+        /**
+         * 待回调的调用数。
+         *
+         * @return 待回调的调用数。
+         */
+        int getPending();
+
+        /**
+         * 响应时间（纳秒）的指数加权移动平均值；尚无响应时为 0.
+         *
+         * @return 响应时间的移动平均值。
+         */
+        double getLatencyNanos();
+
+        /**
+         * 响应时间的移动平均值的可信度，[0, 1]；随无响应的时间衰减，尚无响应时为 0.
+         *
+         * @return 响应时间的移动平均值的可信度。
+         */
+        default double getLatencyWeight() {
+            return getLatencyNanos() > 0 ? 1 : 0;
+        }
+    }
+
+    /**
+     * 轮询。
+     */
+    final class RoundRobin implements LoadBalancer {
+
+        /** 轮询计数 */
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public int select(List<? extends Endpoint> endpoints) {
+            return (counter.getAndIncrement() & Integer.MAX_VALUE) % endpoints.size();
+        }
+    }
+
+    /**
+     * 待回调调用数最少；相同时自轮询的位置起选择。
+     */
+    final class LeastPending implements LoadBalancer {
+
+        /** 轮询计数 */
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public int select(List<? extends Endpoint> endpoints) {
+            int len = endpoints.size();
+            int start = (counter.getAndIncrement() & Integer.MAX_VALUE) % len;
+            int selected = start;
+            int min = endpoints.get(start).getPending();
+            for (int i = 1; i < len && min > 0; i++) {
+                int index = (start + i) % len;
+                int pending = endpoints.get(index).getPending();
+                if (pending < min) {
+                    min = pending;
+                    selected = index;
+                }
+            }
+            return selected;
+        }
+    }
+
+    /**
+     * 随机选取两个服务端点，选择负载（响应时间 x (待回调调用数 + 1)）较低者。
+     * 响应时间按可信度在移动平均值与所有服务端点的加权平均响应时间（中性先验值）之间取值，
+     * 尚无响应或长时间无响应的服务端点趋于平均响应时间，其待回调调用数仍计入负载；所有服务端点均无响应时按待回调调用数选择。
+     */
+    final class PowerOfTwoChoices implements LoadBalancer {
+
+        @Override
+        public int select(List<? extends Endpoint> endpoints) {
+            int len = endpoints.size();
+            if (len == 1) {
+                return 0;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int a = random.nextInt(len);
+            int b = random.nextInt(len - 1);
+            if (b >= a) {
+                b++;
+            }
+            Endpoint ea = endpoints.get(a);
+            Endpoint eb = endpoints.get(b);
+            double prior = Double.NaN;
+            if (ea.getLatencyWeight() < 1 || eb.getLatencyWeight() < 1) {
+                prior = prior(endpoints);
+            }
+            double ca = cost(ea, prior);
+            double cb = cost(eb, prior);
+            if (ca == cb) {
+                return ea.getPending() <= eb.getPending() ? a : b;
+            }
+            return ca < cb ? a : b;
+        }
+
+        //latency weighted by pending calls
+        private static double cost(Endpoint endpoint, double prior) {
+            double weight = endpoint.getLatencyWeight();
+            double latency = weight >= 1 ? endpoint.getLatencyNanos()
+                    : weight * endpoint.getLatencyNanos() + (1 - weight) * prior;
+            return latency * (endpoint.getPending() + 1);
+        }
+
+        //weighted mean latency of all endpoints, 1 if none has responded
+        private static double prior(List<? extends Endpoint> endpoints) {
+            double sum = 0;
+            double weights = 0;
+            for (Endpoint e : endpoints) {
+                double weight = e.getLatencyWeight();
+                if (weight > 0) {
+                    sum += weight * e.getLatencyNanos();
+                    weights += weight;
+                }
+            }
+            return weights > 0 && sum > 0 ? sum / weights : 1;
+        }
+    }
+}
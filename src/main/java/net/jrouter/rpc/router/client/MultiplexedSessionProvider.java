@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+
+/**
+ * 多路复用的{@code SessionProvider}：维持固定数量的长连接{@code Session}，
+ * 并发的调用共享{@code Session}（以协议 Id 区分返回结果），无需独占借出及归还。
+ *
+ * {@code Session}于首次使用时创建，不可用时（{@link PooledObjectFactory#validateObject}）重新创建。
+ * 共享的{@code Session}需支持并发发送消息。
+ *
+ * @param <S> RPC相关联的Session.
+ */
+@Slf4j
+public class MultiplexedSessionProvider<S> implements SessionProvider<S> {
+
+    /**
+     * {@code Session}的选择策略。
+     */
+    public enum Strategy {
+
+        /**
+         * 轮询。
+         */
+        ROUND_ROBIN,
+        /**
+         * 待回调调用数最少。
+         */
+        LEAST_PENDING
+    }
+
+    /**
+     * 创建/校验/销毁{@code Session}.
+     */
+    private final PooledObjectFactory<S> factory;
+
+    /**
+     * 选择策略。
+     */
+    @lombok.Getter
+    private final Strategy strategy;
+
+    /**
+     * Session slots.
+     */
+    private final Slot<S>[] slots;
+
+    /**
+     * 轮询计数。
+     */
+    private final AtomicInteger counter = new AtomicInteger();
+
+    /**
+     * 是否已关闭。
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor.
+     *
+     * @param factory 创建{@code Session}的工厂。
+     * @param size {@code Session}的数量。
+     * @param strategy 选择策略。
+     */
+    @SuppressWarnings("unchecked")
+    public MultiplexedSessionProvider(PooledObjectFactory<S> factory, int size, Strategy strategy) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be greater than 0: " + size);
+        }
+        this.factory = factory;
+        this.strategy = strategy;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot<>();
+        }
+    }
+
+    /**
+     * Constructor with round robin strategy.
+     *
+     * @param factory 创建{@code Session}的工厂。
+     * @param size {@code Session}的数量。
+     */
+    public MultiplexedSessionProvider(PooledObjectFactory<S> factory, int size) {
+        this(factory, size, Strategy.ROUND_ROBIN);
+    }
+
+    @Override
+    public S getSession() throws Exception {
+        if (closed) {
+            throw new IllegalStateException("SessionProvider has been closed.");
+        }
+        Slot<S> slot = select();
+        PooledObject<S> pooled = slot.pooled;
+        if (pooled != null && factory.validateObject(pooled)) {
+            return pooled.getObject();
+        }
+        //lock instead of synchronized, avoid pinning virtual thread when connecting
+        slot.lock.lock();
+        try {
+            pooled = slot.pooled;
+            if (pooled == null || !factory.validateObject(pooled)) {
+                if (pooled != null) {
+                    destroy(pooled);
+                }
+                pooled = factory.makeObject();
+                slot.pending.set(0);
+                slot.pooled = pooled;
+            }
+        } finally {
+            slot.lock.unlock();
+        }
+        return pooled.getObject();
+    }
+
+    /**
+     * 根据选择策略选择{@code Session} slot.
+     */
+    private Slot<S> select() {
+        int len = slots.length;
+        int start = (counter.getAndIncrement() & Integer.MAX_VALUE) % len;
+        if (strategy == Strategy.LEAST_PENDING && len > 1) {
+            Slot<S> selected = slots[start];
+            int min = selected.pending.get();
+            for (int i = 1; i < len && min > 0; i++) {
+                Slot<S> slot = slots[(start + i) % len];
+                int pending = slot.pending.get();
+                if (pending < min) {
+                    min = pending;
+                    selected = slot;
+                }
+            }
+            return selected;
+        }
+        return slots[start];
+    }
+
+    /**
+     * 共享的{@code Session}无需归还。
+     */
+    @Override
+    public void returnSession(S session) {
+        //No Op
+    }
+
+    @Override
+    public void invalidateSession(S session) throws Exception {
+        Slot<S> slot = find(session);
+        if (slot != null) {
+            PooledObject<S> pooled = null;
+            slot.lock.lock();
+            try {
+                if (slot.pooled != null && slot.pooled.getObject() == session) {
+                    pooled = slot.pooled;
+                    slot.pooled = null;
+                }
+            } finally {
+                slot.lock.unlock();
+            }
+            if (pooled != null) {
+                factory.destroyObject(pooled);
+            }
+        }
+    }
+
+    @Override
+    public void onCallStarted(S session) {
+        Slot<S> slot = find(session);
+        if (slot != null) {
+            slot.pending.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onCallCompleted(S session) {
+        Slot<S> slot = find(session);
+        if (slot != null) {
+            slot.pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * 获取{@code Session}所在的 slot；{@code Session}数量较少，直接遍历。
+     */
+    private Slot<S> find(S session) {
+        if (session != null) {
+            for (Slot<S> slot : slots) {
+                PooledObject<S> pooled = slot.pooled;
+                if (pooled != null && pooled.getObject() == session) {
+                    return slot;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取指定{@code Session}待回调的调用数；不存在返回 -1.
+     *
+     * @param session {@code Session}对象。
+     *
+     * @return 待回调的调用数。
+     */
+    public int getPendingCount(S session) {
+        Slot<S> slot = find(session);
+        return slot == null ? -1 : slot.pending.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Slot<S> slot : slots) {
+            PooledObject<S> pooled;
+            slot.lock.lock();
+            try {
+                pooled = slot.pooled;
+                slot.pooled = null;
+            } finally {
+                slot.lock.unlock();
+            }
+            if (pooled != null) {
+                destroy(pooled);
+            }
+        }
+    }
+
+    //destroy and ignore exception
+    private void destroy(PooledObject<S> pooled) {
+        try {
+            factory.destroyObject(pooled);
+        } catch (Exception ex) {
+            log.error("Exception occured when destroying session [{}].", pooled.getObject(), ex);
+        }
+    }
+
+    /**
+     * {@code Session} slot.
+     */
+    private static final class Slot<S> {
+
+        /** 当前的{@code Session}，于 lock 下修改 */
+        private volatile PooledObject<S> pooled;
+
+        /** 创建/移除{@code Session}的锁 */
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /** 待回调的调用数 */
+        private final AtomicInteger pending = new AtomicInteger();
+    }
+}
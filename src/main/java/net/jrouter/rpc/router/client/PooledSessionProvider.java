@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import org.apache.commons.pool2.ObjectPool;
+
+/**
+ * 基于{@code ObjectPool}的{@code SessionProvider}：每次调用独占借出的{@code Session}，发送后归还。
+ *
+ * @param <S> RPC相关联的Session.
+ */
+public class PooledSessionProvider<S> implements SessionProvider<S> {
+
+    /**
+     * Session Pool.
+     */
+    @lombok.Getter
+    private final ObjectPool<S> sessionPool;
+
+    /**
+     * Constructor.
+     *
+     * @param sessionPool Session pool.
+     */
+    public PooledSessionProvider(ObjectPool<S> sessionPool) {
+        this.sessionPool = sessionPool;
+    }
+
+    @Override
+    public S getSession() throws Exception {
+        return sessionPool.borrowObject();
+    }
+
+    @Override
+    public void returnSession(S session) throws Exception {
+        sessionPool.returnObject(session);
+    }
+
+    @Override
+    public void invalidateSession(S session) throws Exception {
+        sessionPool.invalidateObject(session);
+    }
+
+    @Override
+    public void close() {
+        if (sessionPool != null) {
+            sessionPool.close();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import net.jrouter.rpc.annotation.RpcCacheable;
+
+/**
+ * 客户端代理方法的返回结果缓存（{@link RpcCacheable}），以调用路径及序列化后的调用参数为键。
+ *
+ * 超出最大数量时淘汰最近最少使用（LRU）的结果；过期的结果于访问时移除。
+ * 读取会调整访问顺序，各操作以同一锁同步，适用于数量有限的热点键。
+ */
+public class ResultCache {
+
+    /**
+     * 未命中时{@link #get(Key)}的返回值，区别于缓存的 null 结果。
+     */
+    public static final Object MISS = new Object();
+
+    /**
+     * 缓存结果的有效时间（毫秒）；非正数表示不过期。
+     */
+    @lombok.Getter
+    private final long ttlMillis;
+
+    /**
+     * 缓存结果的最大数量。
+     */
+    @lombok.Getter
+    private final int maxSize;
+
+    /** 访问顺序的缓存结果 */
+    private final LinkedHashMap<Key, Entry> entries;
+
+    /** 命中数 */
+    private final LongAdder hits = new LongAdder();
+
+    /** 未命中数（包括已过期） */
+    private final LongAdder misses = new LongAdder();
+
+    /** 超出最大数量的淘汰数 */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param ttlMillis 缓存结果的有效时间（毫秒）；非正数表示不过期。
+     * @param maxSize 缓存结果的最大数量。
+     */
+    public ResultCache(long ttlMillis, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Illegal max size : " + maxSize);
+        }
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Key, Entry>(Math.min(maxSize, 64), 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ResultCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param cacheable 缓存属性。
+     */
+    public ResultCache(RpcCacheable cacheable) {
+        this(cacheable.ttlMillis(), cacheable.maxSize());
+    }
+
+    /**
+     * 获取未过期的缓存结果。
+     *
+     * @param key 缓存键。
+     *
+     * @return 缓存结果，可为 null；未命中时返回{@link #MISS}.
+     */
+    public Object get(Key key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired(System.nanoTime())) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return MISS;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * 缓存返回结果。
+     *
+     * @param key 缓存键。
+     * @param value 返回结果，可为 null.
+     */
+    public void put(Key key, Object value) {
+        Entry entry = new Entry(value, ttlMillis > 0 ? System.nanoTime() + ttlMillis * 1000000L : 0);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * 移除缓存结果。
+     *
+     * @param key 缓存键。
+     */
+    public void invalidate(Key key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * 移除已过期的缓存结果。
+     */
+    public void cleanUp() {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+                if (it.next().isExpired(now)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 清空缓存结果。
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * 缓存结果的数量（包括未移除的已过期结果）。
+     *
+     * @return 缓存结果的数量。
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * 命中率；无访问时为 0.
+     *
+     * @return 命中率。
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache{" + "ttlMillis=" + ttlMillis + ", maxSize=" + maxSize + ", size=" + size()
+                + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() + '}';
+    }
+
+    /**
+     * 缓存键：调用路径及序列化后的调用参数。
+     */
+    public static final class Key {
+
+        /** 调用路径 */
+        private final String path;
+
+        /** 序列化后的调用参数 */
+        private final byte[] parameters;
+
+        /** hash code */
+        private final int hash;
+
+        /**
+         * Constructor.
+         *
+         * @param path 调用路径。
+         * @param parameters 序列化后的调用参数，可为 null（无调用参数）。
+         */
+        public Key(String path, byte[] parameters) {
+            this.path = path;
+            this.parameters = parameters == null ? new byte[0] : parameters;
+            this.hash = 31 * path.hashCode() + Arrays.hashCode(this.parameters);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && path.equals(other.path) && Arrays.equals(parameters, other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 缓存结果及其过期时间。
+     */
+    private static final class Entry {
+
+        /** 返回结果 */
+        private final Object value;
+
+        /** 过期的{@code System.nanoTime()}；0 表示不过期 */
+        private final long expireNanos;
+
+        Entry(Object value, long expireNanos) {
+            this.value = value;
+            this.expireNanos = expireNanos;
+        }
+
+        boolean isExpired(long now) {
+            return expireNanos != 0 && now - expireNanos >= 0;
+        }
+    }
+}
@@ -16,7 +16,10 @@
  */
 package net.jrouter.rpc.router.client;
 
+import java.util.Arrays;
+import net.jrouter.rpc.RpcException;
 import net.jrouter.rpc.router.ClientFactory;
+import net.jrouter.rpc.router.ResultCallback;
 import net.jrouter.rpc.router.RpcActionFactory;
 
 /**
@@ -25,4 +28,41 @@ import net.jrouter.rpc.router.RpcActionFactory;
  * @param <S> RPC相关联的Session.
  */
 public interface RpcClientActionFactory<S> extends ClientFactory, RpcActionFactory<S> {
+
+    /**
+     * 由客户端代理方法调用；异步方法（{@link ClientMethod#isAsync()}）返回待完成的{@code CompletableFuture}，不阻塞调用线程；
+     * 流式方法（{@link ClientMethod#isStreaming()}）返回逐个接收元素的{@link StreamingResult}（或其{@code Stream}）。
+     *
+     * @param method 代理方法的调用属性。
+     * @param params 调用参数。
+     *
+     * @return 调用结果。
+     *
+     * @throws RpcException 如果发生调用错误。
+     */
+    Object invokeMethod(ClientMethod method, Object... params) throws RpcException;
+
+    /**
+     * 由按参数位置生成的客户端代理方法调用（{@link ClientMethod#isPositional()}）；
+     * 调用参数已去除回调及传输层参数，回调参数按声明位置单独传递；默认合并参数后调用{@link #invokeMethod(ClientMethod, Object...)}。
+     *
+     * @param method 代理方法的调用属性。
+     * @param callback 回调参数，可为 null。
+     * @param params 实际调用参数，可为 null。
+     *
+     * @return 调用结果。
+     *
+     * @throws RpcException 如果发生调用错误。
+     */
+    default Object invokeMethod(ClientMethod method, ResultCallback callback, Object[] params) throws RpcException {
+        if (callback == null) {
+            return invokeMethod(method, params == null ? new Object[0] : params);
+        }
+        if (params == null) {
+            return invokeMethod(method, callback);
+        }
+        Object[] all = Arrays.copyOf(params, params.length + 1);
+        all[params.length] = callback;
+        return invokeMethod(method, all);
+    }
 }
@@ -21,19 +21,15 @@ import net.jrouter.rpc.router.ResultCallback;
 /**
  * 使用 {@link ThreadLocal} 变量存取变量，达到减少方法参数的目的。
  *
- * @see WebSocketClientActionFactory#invokeAction
+ * 上下文仅在单次调用期间有效，调用结束后即移除，不依赖线程的复用；因此适用于线程池线程及虚拟线程（每个调用一个线程）。
+ * 未设置上下文的调用（包括客户端代理方法的调用）不创建上下文对象（{@link #peek()}）。
+ *
+ * @see AbstractRpcClientActionFactory#invokeAction
  */
 public final class RpcClientContext {
 
     /** Thread Safe */
-    private static final ThreadLocal<RpcClientContext> THREAD_LOCAL = new ThreadLocal<RpcClientContext>() {
-
-        @Override
-        protected RpcClientContext initialValue() {
-            return new RpcClientContext();
-        }
-
-    };
+    private static final ThreadLocal<RpcClientContext> THREAD_LOCAL = new ThreadLocal<>();
 
     /** 记录当前调用方法（多个调用方法覆盖）对应的回调方法 */
     @lombok.Getter
@@ -52,6 +48,20 @@ public final class RpcClientContext {
      * @return 前线程副本中的ThreadLocalContext。
      */
     public static RpcClientContext get() {
+        RpcClientContext context = THREAD_LOCAL.get();
+        if (context == null) {
+            context = new RpcClientContext();
+            THREAD_LOCAL.set(context);
+        }
+        return context;
+    }
+
+    /**
+     * 获取当前线程副本中已存在的ThreadLocalContext，不存在时不创建。
+     *
+     * @return 前线程副本中的ThreadLocalContext，不存在返回 null.
+     */
+    public static RpcClientContext peek() {
         return THREAD_LOCAL.get();
     }
 
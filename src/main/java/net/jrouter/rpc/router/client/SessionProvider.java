@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+/**
+ * 为客户端的调用提供{@code Session}.
+ *
+ * @param <S> RPC相关联的Session.
+ *
+ * @see PooledSessionProvider
+ * @see MultiplexedSessionProvider
+ * @see LoadBalancedSessionProvider
+ */
+public interface SessionProvider<S> {
+
+    /**
+     * 获取用于发送调用消息的{@code Session}；调用消息发送后需经由{@link #returnSession}归还。
+     *
+     * @return {@code Session}对象。
+     *
+     * @throws Exception 如果无法获取{@code Session}.
+     */
+    S getSession() throws Exception;
+
+    /**
+     * 归还{@code Session}.
+     *
+     * @param session {@code Session}对象。
+     *
+     * @throws Exception 如果发生错误。
+     */
+    void returnSession(S session) throws Exception;
+
+    /**
+     * 移除不可用的{@code Session}.
+     *
+     * @param session {@code Session}对象。
+     *
+     * @throws Exception 如果发生错误。
+     */
+    void invalidateSession(S session) throws Exception;
+
+    /**
+     * 通过{@code Session}发出待回调的调用；默认无操作。
+     *
+     * @param session {@code Session}对象。
+     */
+    default void onCallStarted(S session) {
+    }
+
+    /**
+     * 通过{@code Session}发出的待回调调用已结束（返回结果、超时或发送失败）；默认无操作。
+     *
+     * @param session {@code Session}对象。
+     */
+    default void onCallCompleted(S session) {
+    }
+
+    /**
+     * 通过{@code Session}发出的待回调调用已结束，并给出自发出调用至结束的耗时；默认调用{@link #onCallCompleted(Object)}.
+     *
+     * @param session {@code Session}对象。
+     * @param nanos 调用耗时（纳秒）；负数表示无有效的响应时间（流式调用、发送失败、超时、取消或返回异常）。
+     */
+    default void onCallCompleted(S session, long nanos) {
+        onCallCompleted(session);
+    }
+
+    /**
+     * 关闭并释放所有{@code Session}.
+     */
+    void close();
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.jrouter.rpc.router.client;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import net.jrouter.rpc.RpcException;
+
+/**
+ * 服务端流式返回结果在客户端的迭代器：随流式帧的到达逐个获取结果元素，收到结束帧后结束迭代；
+ * 等待元素时阻塞调用线程，结束帧返回的异常、等待超时、发送失败等以{@link RpcException}抛出。
+ * 提前结束迭代时需调用{@link #close()}：通知服务端停止发送（同一协议 Id 的结束帧），其后到达的帧将被丢弃。
+ *
+ * @param <T> 元素类型。
+ *
+ * @see ClientMethod#isStreaming()
+ */
+public final class StreamingResult<T> implements Iterator<T>, AutoCloseable {
+
+    /** 结束标识 */
+    private static final Object END = new Object();
+
+    /** null 元素 */
+    private static final Object NULL = new Object();
+
+    /**
+     * 已到达的元素。
+     */
+    private final BlockingQueue<Object> elements = new LinkedBlockingQueue<>();
+
+    /**
+     * 流式调用的完成状态，收到结束帧时完成。
+     */
+    private final CompletableFuture<?> completion;
+
+    /**
+     * 异常结束的原因。
+     */
+    private volatile Throwable failure;
+
+    /**
+     * 是否已关闭。
+     */
+    private volatile boolean closed;
+
+    /**
+     * 已获取待返回的元素。
+     */
+    private Object next;
+
+    /**
+     * 是否已迭代结束。
+     */
+    private boolean ended;
+
+    /**
+     * Constructor.
+     *
+     * @param completion 流式调用的完成状态。
+     */
+    StreamingResult(CompletableFuture<?> completion) {
+        this.completion = completion;
+        completion.whenComplete((Object result, Throwable ex) -> {
+            failure = ex;
+            elements.offer(END);
+        });
+    }
+
+    /**
+     * 添加到达的元素。
+     *
+     * @param element 结果元素。
+     */
+    void offer(Object element) {
+        if (!closed) {
+            elements.offer(element == null ? NULL : element);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (next != null) {
+            return true;
+        }
+        if (ended) {
+            return false;
+        }
+        Object element;
+        try {
+            element = elements.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RpcException("Interrupted when waiting for stream result.", e);
+        }
+        if (element == END) {
+            ended = true;
+            Throwable t = failure;
+            if (t != null) {
+                throw t instanceof RpcException ? (RpcException) t : new RpcException(t);
+            }
+            return false;
+        }
+        next = element;
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object element = next;
+        next = null;
+        return element == NULL ? null : (T) element;
+    }
+
+    /**
+     * 结束流式调用并通知服务端停止发送，丢弃未到达的元素。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        completion.cancel(false);
+    }
+
+    /**
+     * 转换为顺序的{@code Stream}，关闭{@code Stream}时结束流式调用。
+     *
+     * @return {@code Stream}对象。
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false).onClose(this::close);
+    }
+}
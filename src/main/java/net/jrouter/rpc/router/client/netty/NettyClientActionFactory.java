@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import lombok.extern.slf4j.Slf4j;
+import net.jrouter.rpc.metrics.RpcMetrics;
+import net.jrouter.rpc.protocol.Protocol;
+import net.jrouter.rpc.router.client.AbstractRpcClientActionFactory;
+import net.jrouter.rpc.router.client.SessionProvider;
+import net.jrouter.rpc.transport.netty.ProtocolEncoder;
+import org.apache.commons.pool2.ObjectPool;
+
+/**
+ * 提供接收 netty TCP 消息，基于{@code String}型路径调用的{@code RpcClientActionFactory}实现。
+ *
+ * @see net.jrouter.rpc.transport.netty.NettyChannelInitializer
+ */
+@Slf4j
+public class NettyClientActionFactory extends AbstractRpcClientActionFactory<Channel> {
+
+    /**
+     * Constructor.
+     *
+     * @param pool Channel pool.
+     * @param properties Properties.
+     */
+    public NettyClientActionFactory(ObjectPool<Channel> pool, Properties properties) {
+        super(pool, properties);
+    }
+
+    /**
+     * Constructor；参数顺序区别于{@code (ObjectPool, Properties)}，避免{@code new NettyClientActionFactory(null, properties)}的重载歧义。
+     *
+     * @param properties Properties.
+     * @param sessionProvider Channel provider.
+     *
+     * @see #withSessionProvider(SessionProvider, Properties)
+     */
+    protected NettyClientActionFactory(Properties properties, SessionProvider<Channel> sessionProvider) {
+        super(sessionProvider, properties);
+    }
+
+    /**
+     * 创建由{@code SessionProvider}提供{@code Channel}的{@code NettyClientActionFactory}（如{@link net.jrouter.rpc.router.client.MultiplexedSessionProvider}）。
+     *
+     * @param sessionProvider Channel provider.
+     * @param properties Properties.
+     *
+     * @return {@code NettyClientActionFactory}对象。
+     */
+    public static NettyClientActionFactory withSessionProvider(SessionProvider<Channel> sessionProvider, Properties properties) {
+        return new NettyClientActionFactory(properties, sessionProvider);
+    }
+
+    @Override
+    protected boolean isSessionOpen(Channel channel) {
+        return channel.isActive();
+    }
+
+    @Override
+    protected void sendProtocol(Channel channel, Protocol<String> protocol, SendListener listener) {
+        long start = System.nanoTime();
+        ByteBuf buf = ProtocolEncoder.encode(channel.alloc(), getObjectSerialization(), protocol);
+        if (getMetrics() != RpcMetrics.NONE) {
+            getMetrics().onEncode(getMetricsPath(protocol), buf.readableBytes(), System.nanoTime() - start);
+        }
+        ChannelFuture future = channel.writeAndFlush(buf);
+        if (listener != null) {
+            future.addListener((ChannelFuture f) -> listener.onComplete(f.isSuccess() ? null : f.cause()));
+        }
+    }
+}
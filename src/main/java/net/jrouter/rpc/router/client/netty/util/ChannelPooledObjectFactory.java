@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client.netty.util;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import java.net.SocketAddress;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.PooledObjectFactory;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+
+/**
+ * {@code PooledObjectFactory} for netty {@code Channel}.
+ */
+public class ChannelPooledObjectFactory implements PooledObjectFactory<Channel> {
+
+    /** Bootstrap */
+    private final Bootstrap bootstrap;
+
+    /** remote address */
+    private final SocketAddress remoteAddress;
+
+    public ChannelPooledObjectFactory(Bootstrap bootstrap, SocketAddress remoteAddress) {
+        this.bootstrap = bootstrap;
+        this.remoteAddress = remoteAddress;
+    }
+
+    @Override
+    public PooledObject<Channel> makeObject() throws Exception {
+        Channel channel = bootstrap.connect(remoteAddress).sync().channel();
+        return new DefaultPooledObject<>(channel);
+    }
+
+    @Override
+    public boolean validateObject(PooledObject<Channel> p) {
+        Channel channel = p.getObject();
+        return channel != null && channel.isActive();
+    }
+
+    @Override
+    public void destroyObject(PooledObject<Channel> p) throws Exception {
+        Channel channel = p.getObject();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    @Override
+    public void activateObject(PooledObject<Channel> p) throws Exception {
+        //No Op
+    }
+
+    @Override
+    public void passivateObject(PooledObject<Channel> p) throws Exception {
+        //No Op
+    }
+
+}
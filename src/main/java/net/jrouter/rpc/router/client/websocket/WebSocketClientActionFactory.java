@@ -16,128 +16,46 @@
  */
 package net.jrouter.rpc.router.client.websocket;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.DelayQueue;
-import java.util.concurrent.Delayed;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
-import java.util.concurrent.TimeUnit;
+import java.nio.ByteBuffer;
 import javax.websocket.SendHandler;
 import javax.websocket.SendResult;
 import javax.websocket.Session;
-import jrouter.JRouterException;
-import jrouter.ObjectFactory;
-import jrouter.annotation.Namespace;
-import jrouter.impl.PathActionFactory;
+import lombok.extern.slf4j.Slf4j;
 import net.jrouter.rpc.RpcException;
-import net.jrouter.rpc.annotation.RpcConsumer;
+import net.jrouter.rpc.metrics.RpcMetrics;
 import net.jrouter.rpc.protocol.Protocol;
-import net.jrouter.rpc.protocol.RpcProtocol;
-import net.jrouter.rpc.router.ResultCallback;
-import net.jrouter.rpc.router.bytecode.javassist.JavassistObjectFactory;
-import net.jrouter.rpc.router.client.RpcClientActionFactory;
-import net.jrouter.rpc.router.client.RpcClientContext;
-import net.jrouter.rpc.router.impl.ProtocolSerialization;
-import net.jrouter.rpc.util.Constants;
-import jrouter.util.CollectionUtil;
-import jrouter.util.StringUtil;
-import lombok.extern.slf4j.Slf4j;
-import net.jrouter.id.IdGenerator;
-import net.jrouter.id.impl.IdGenerator2018;
+import net.jrouter.rpc.router.client.AbstractRpcClientActionFactory;
+import net.jrouter.rpc.router.client.SessionProvider;
+import net.jrouter.rpc.transport.http.websocket.WebSocketSender;
 import org.apache.commons.pool2.ObjectPool;
-import net.jrouter.rpc.serialize.ObjectSerialization;
 
 /**
- * 提供接收 WebSocket 消息，基于{@code String}型路径调用的{@code RpcClientActionFactory}抽象类。
+ * 提供接收 WebSocket 消息，基于{@code String}型路径调用的{@code RpcClientActionFactory}实现。
+ *
+ * 消息经由每个{@code Session}的发送队列（{@link WebSocketSender}）依次发送，
+ * 因此{@code Session}可由多个调用共享（{@link net.jrouter.rpc.router.client.MultiplexedSessionProvider}）。
+ * 连接多个服务端点时，由{@link net.jrouter.rpc.router.client.LoadBalancedSessionProvider}组合各服务端点的{@code SessionProvider}.
  */
 @Slf4j
-public class WebSocketClientActionFactory extends PathActionFactory implements RpcClientActionFactory<Session> {
-
-    /**
-     * {@code Protocol} 序列/反序列化工具。
-     */
-    private final ProtocolSerialization protocolSerialization;
-
-    /**
-     * {@code Long}型Id生成器。
-     */
-    @lombok.Getter
-    @lombok.Setter
-    private IdGenerator<Long> idGenerator = new IdGenerator2018(0);
+public class WebSocketClientActionFactory extends AbstractRpcClientActionFactory<Session> {
 
     /**
-     * 代理接口必须包含的注解类；默认为{@link RpcConsumer}。
-     */
-    @lombok.Getter
-    @lombok.Setter
-    private Class<? extends Annotation> clientAnnotatedClass = RpcConsumer.class;
-
-    /**
-     * 由{@code Class}生成的客户端代理对象映射。
+     * 合并发送的批量帧的最大数据长度；不大于 0 表示不合并发送（默认），服务端需支持批量帧。
      *
-     * @see #getClient
-     */
-    @lombok.Getter
-    private Map<Class, Object> clients = null;
-
-    /**
-     * Session Pool.
-     */
-    @lombok.Getter
-    private ObjectPool<Session> sessionPool = null;
-
-////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-    /**
-     * 记录异步回调任务（id:task 映射）。
-     */
-    private final Map<Long, FutureTaskDelegate<?>> callbackTasks = new ConcurrentHashMap<>(128);
-
-    /**
-     * 回调任务延迟清理队列。
-     */
-    private final DelayQueue<CallBackTask<Long>> evictCallBackTaskQueue = new DelayQueue();
-
-    /**
-     * 清理超时任务的线程。
-     */
-    private final CleanerThread cleanerThread = new CleanerThread();
-
-    /**
-     * 10s timeout to clean expired task.
-     */
-    public static final long DEFAULT_TIMEOUT_MILLISECONDS = 10000;
-
-    /**
-     * 清理回调任务记录的默认等待时间（超过此时间将清理回调记录，清理后即使有回调返回值也无法调用回调方法）。
-     * 推荐任何异步回调等待都必需设置超时时间，避免无限等待。
+     * @see WebSocketSender#setMaxBatchBytes(int)
      */
     @lombok.Getter
-    private long defaultCallbackTimeoutMilliseconds = DEFAULT_TIMEOUT_MILLISECONDS;
-
-    /**
-     * 返回空值的{@code Callable}.
-     */
-    private static final Callable<Void> NULL_CALLABLE = () -> null;
+    @lombok.Setter
+    private int batchMaxBytes = 0;
 
     /**
-     * 基于javassist的对象工厂.
+     * 分片发送的单个分片的最大长度；不大于 0 表示不分片发送（默认），服务端需支持分片消息的重组。
      *
-     * TODO. (put in Properties)
+     * @see WebSocketSender#setFragmentBytes(int)
      */
     @lombok.Getter
-    private ObjectFactory clientObjectFactory = new JavassistObjectFactory(WebSocketClientActionFactory.this) {
-        @Override
-        public String parsePath(Class<?> targetClass, Method method) {
-            return WebSocketClientActionFactory.this.parsePath(targetClass, method);
-        }
-    };
+    @lombok.Setter
+    private int fragmentBytes = 0;
 
     /**
      * Constructor.
@@ -146,468 +64,65 @@ public class WebSocketClientActionFactory extends PathActionFactory implements R
      * @param properties Properties.
      */
     public WebSocketClientActionFactory(ObjectPool<Session> pool, Properties properties) {
-        super(properties);
-        this.sessionPool = pool;
-        this.protocolSerialization = new ProtocolSerialization(properties.objectSerialization, properties.supportedObjectSerializations);
-        log.info("Use protocolSerialization : {}", protocolSerialization);
-        //TODO
-//        clientObjectFactory = properties.clientObjectFactory;
-//        log.info("Use clientObjectFactory : {}", clientObjectFactory);
-        clients = new HashMap<>();
-        cleanerThread.setName(this.getClass().getName() + "-" + cleanerThread.getClass().getSimpleName());
-        cleanerThread.setDaemon(false);
-        cleanerThread.start();
-    }
-
-    /**
-     * WebSocketClientActionFactory 属性.
-     */
-    @lombok.Getter
-    @lombok.Setter
-    public static class Properties extends PathActionFactory.Properties {
-
-        /**
-         * Default Constructor.
-         */
-        public Properties() {
-            super();
-            //default RpcProviderActionFilter
-            setActionFilter(new RpcConsumerActionFilter());
-        }
-
-        /**
-         * @see DispatchServerActionFactory#protocolSerialization
-         */
-        private ObjectSerialization objectSerialization = Constants.DEFAULT_OBJECT_SERIALIZATION;
-
-        /**
-         * @see DispatchServerActionFactory#protocolSerialization
-         */
-        private Map<Byte, ObjectSerialization> supportedObjectSerializations = Constants.SUPPORTED_OBJECT_SERIALIZATIONS;
-
-        /**
-         * 基于javassist的对象工厂.
-         */
-        private ObjectFactory clientObjectFactory = null;
-
-    }
-
-    @Override
-    public <T> T getClient(Class<T> clientClass) {
-        return (T) clients.get(clientClass);
-    }
-
-    /**
-     * 通过指定{@code String}类型路径和参数，转换为{@link Protocol}协议对象发送 WebSocket {@code byte[]}类型消息。
-     *
-     * @param path 指定的路径。
-     * @param params 调用参数。
-     *
-     * @return 调用结果。
-     *
-     * @throws RpcException 如果发生调用错误。
-     */
-    @Override
-    public Object invokeAction(String path, Object... params) throws RpcException {
-        Session session = null;
-        try {
-            session = sessionPool.borrowObject();
-        } catch (Exception ex) {
-            throw new RpcException("Unable to borrow Session from pool.", ex);
-        }
-        if (session == null || !session.isOpen()) {
-            log.error("Can't get WebSocket session or session is not open.");
-            return null;
-        }
-        try {
-            //实际参数
-            List<Object> actualParams = null;
-            //callback
-            ResultCallback callback = null;
-            //TODO
-            //customized SendHandler
-            SendHandler customizedSendHandler = null;
-            //rebuild parameters
-            if (CollectionUtil.isNotEmpty(params)) {
-                actualParams = new ArrayList<>(params.length);
-                for (Object param : params) {
-                    if (param instanceof ResultCallback) {
-                        callback = (ResultCallback) param;
-                        continue;
-                    }
-                    if (param instanceof SendHandler) {
-                        customizedSendHandler = (SendHandler) param;
-                        continue;
-                    }
-                    actualParams.add(param);
-                }
-            }
-
-            final RpcProtocol protocol = new RpcProtocol();
-            final Long id = idGenerator.generateId();
-            protocol.setId(id);
-            protocol.setPath(path);
-            if (CollectionUtil.isNotEmpty(actualParams)) {
-                protocol.setParameters(actualParams.toArray());
-            }
-
-            //其次判断当前线程副本存在
-            if (callback == null) {
-                ResultCallback cb = RpcClientContext.get().getResultCallback();
-                if (cb != null) {
-                    callback = cb;
-                }
-            }
-
-            if (callback != null) {
-                final FutureTaskDelegate<?> callBackTaskDelegate = new FutureTaskDelegate(id, NULL_CALLABLE);
-                //register task first
-                callbackTasks.put(id, callBackTaskDelegate);
-                SendHandler sendHandler = (SendResult result) -> {
-                    if (result.isOK()) {
-                        if (log.isDebugEnabled()) {
-                            log.debug("Send WebSocket binary OK for [{}].", protocol);
-                        }
-                        //TODO customized callback timeout
-                        evictCallBackTaskQueue.offer(new CallBackTask(System.currentTimeMillis() + defaultCallbackTimeoutMilliseconds, id));
-                    } else {
-                        callbackTasks.remove(id);
-                        log.error("Exception occured when using WebSocket session to sent binary for [{}].", protocol);
-                    }
-                };
-                session.getAsyncRemote().sendBinary(getObjectSerialization().serializeByteBuffer(protocol), sendHandler);
-                try {
-                    //TODO callback blocks invoker thread
-                    callback.callback(callBackTaskDelegate);
-                } finally {
-                    callbackTasks.remove(id);
-                }
-            } else {
-                session.getAsyncRemote().sendBinary(getObjectSerialization().serializeByteBuffer(protocol));
-            }
-            return null;
-        } finally {
-            RpcClientContext.remove();
-            try {
-                sessionPool.returnObject(session);
-            } catch (Exception ex) {
-                log.error("Exception occured when returning session to the pool.", ex);
-                //ignore
-            }
-        }
+        super(pool, properties);
     }
 
     /**
-     * 接收 WebSocket {@code byte[]}类型消息，转换至{@link Protocol}协议对象，
-     * 进而根据协议Id进行相应的回调处理。
-     *
-     * @param <T> type.
-     * @param messages bytes data.
-     * @param session WebSocket Session object.
+     * Constructor；参数顺序区别于{@code (ObjectPool, Properties)}，避免{@code new WebSocketClientActionFactory(null, properties)}的重载歧义。
      *
-     * @return 调用结果。
+     * @param properties Properties.
+     * @param sessionProvider Session provider.
      *
-     * @throws RpcException 如果发生调用错误。
+     * @see #withSessionProvider(SessionProvider, Properties)
      */
-    @Override
-    public <T> T onMessage(byte[] messages, Session session) throws RpcException {
-        Protocol<String> protocol = parseRpcProtocol(messages, session);
-        if (protocol != null) {
-            if (log.isDebugEnabled()) {
-                log.debug("Received feedback protocol [{}].", protocol);
-            }
-            return onProtocol(protocol);
-        }
-        return null;
+    protected WebSocketClientActionFactory(Properties properties, SessionProvider<Session> sessionProvider) {
+        super(sessionProvider, properties);
     }
 
     /**
-     * 子类继承，可实现不同{@code Protocol}在客户端的调用；默认回调等待的任务。
+     * 创建由{@code SessionProvider}提供{@code Session}的{@code WebSocketClientActionFactory}（如{@link net.jrouter.rpc.router.client.MultiplexedSessionProvider}）。
      *
-     * @param <T> type.
-     * @param protocol {@code Protocol}.
+     * @param sessionProvider Session provider.
+     * @param properties Properties.
      *
-     * @return 调用结果。
+     * @return {@code WebSocketClientActionFactory}对象。
      */
-    protected <T> T onProtocol(Protocol<String> protocol) {
-        Long id = protocol.getId();
-        FutureTaskDelegate task = callbackTasks.remove(id);
-        if (task != null) {
-            Object res = null;
-            task.set(res = protocol.getResult());
-            //use thread pool run task???
-            task.run();
-            //TODO
-            //evictCallBackTaskQueue.remove(id);
-            return (T) res;
-        }
-        return null;
+    public static WebSocketClientActionFactory withSessionProvider(SessionProvider<Session> sessionProvider, Properties properties) {
+        return new WebSocketClientActionFactory(properties, sessionProvider);
     }
 
     @Override
-    public void clear() {
-        super.clear();
-        clients.clear();
-        if (cleanerThread != null) {
-            log.info("Shutdown thread [{}].", cleanerThread.getName());
-            cleanerThread.shutdown();
-            try {
-                cleanerThread.join();
-            } catch (InterruptedException ex) {
-                Thread.currentThread().interrupt();
-                //ignore
-            }
-        }
-        callbackTasks.clear();
-        evictCallBackTaskQueue.clear();
-        if (sessionPool != null) {
-            sessionPool.close();
-        }
-    }
-
-    /**
-     * 清理回调任务记录的默认等待时间；此值必需大于0.
-     *
-     * @param defaultCallbackTimeoutMilliseconds 清理回调任务记录的默认等待时间。
-     */
-    public void setDefaultCallbackTimeoutMilliseconds(long defaultCallbackTimeoutMilliseconds) {
-        if (defaultCallbackTimeoutMilliseconds <= 0) {
-            throw new IllegalArgumentException("Value can't be zero or negative.");
-        }
-        this.defaultCallbackTimeoutMilliseconds = defaultCallbackTimeoutMilliseconds;
+    protected boolean isSessionOpen(Session session) {
+        return session.isOpen();
     }
 
     @Override
-    public ProtocolSerialization getObjectSerialization() {
-        return this.protocolSerialization;
-    }
-
-    /**
-     * 包含指定{@code Long}型Id的{@code FutureTask}.
-     *
-     * @param <V> Value data.
-     */
-    private final class FutureTaskDelegate<V> extends FutureTask<V> {
-
-        /**
-         * Id.
-         */
-        private final Long id;
-
-        /**
-         * Constructor.
-         */
-        public FutureTaskDelegate(Long id, Callable<V> callable) {
-            super(callable);
-            this.id = id;
-        }
-
-        @Override
-        public V get() throws InterruptedException, ExecutionException {
-            throw new UnsupportedOperationException("Please use method get(long timeout, TimeUnit unit).");
-        }
-
-        @Override
-        protected void set(V v) {
-            super.set(v);
-        }
-
-        @Override
-        protected void done() {
-            callbackTasks.remove(id);
-        }
-
-    }
-
-    /**
-     * 给定延迟时间之后执行的回调对象。
-     *
-     * @param <T> data type.
-     */
-    private static final class CallBackTask<T> implements Delayed {
-
-        /** The time the task is enabled to execute in milliseconds Time units */
-        private volatile long time;
-
-        /** Data object */
-        private final T data;
-
-        /**
-         * Constructor.
-         */
-        public CallBackTask(long time, T data) {
-            this.time = time;
-            this.data = data;
-        }
-
-        @Override
-        public long getDelay(TimeUnit unit) {
-            return unit.convert(time - now(), TimeUnit.MILLISECONDS);
-        }
-
-        //time now
-        private long now() {
-            return System.currentTimeMillis();
-        }
-
-        @Override
-        public int compareTo(Delayed other) {
-            // compare zero ONLY if same object
-            if (other == this) {
-                return 0;
-            }
-            if (other instanceof CallBackTask) {
-                CallBackTask x = (CallBackTask) other;
-                long diff = time - x.time;
-                return (diff == 0) ? 0 : ((diff < 0) ? -1 : 1);
-            }
-            long d = (getDelay(TimeUnit.NANOSECONDS)
-                    - other.getDelay(TimeUnit.NANOSECONDS));
-            return (d == 0) ? 0 : ((d < 0) ? -1 : 1);
-        }
-
-    }
-
-    /**
-     * Cleaner Thread.
-     */
-    private class CleanerThread extends Thread {
-
-        //running flag
-        private volatile boolean running = true;
-
-        @Override
-        public void run() {
-            log.info("Start thread [{}].", this.getName());
-            while (running) {
-                try {
-                    CallBackTask<Long> task = evictCallBackTaskQueue.take();
-                    if (task.data != null) {
-                        if (log.isInfoEnabled()) {
-                            log.info("Clean expired Task: [{}] ", task.data);
-                        }
-                        callbackTasks.remove(task.data);
-                    }
-                } catch (Throwable ex) {
-                    log.error("Throwable occured.", ex);
-                }
-            }
-            log.info("Finish thread [{}].", this.getName());
-        }
-
-        /**
-         * Stop thread task.
-         */
-        public void shutdown() {
-            running = false;
-            //offer an immediate end task if queue is empty
-            evictCallBackTaskQueue.offer(new CallBackTask(System.currentTimeMillis(), null));
+    protected void sendProtocol(Session session, Protocol<String> protocol, SendListener listener) {
+        long start = System.nanoTime();
+        ByteBuffer buffer = getObjectSerialization().serializeByteBuffer(protocol);
+        if (getMetrics() != RpcMetrics.NONE) {
+            getMetrics().onEncode(getMetricsPath(protocol), buffer.remaining(), System.nanoTime() - start);
         }
+        WebSocketSender.get(session, batchMaxBytes, fragmentBytes).send(buffer,
+                listener == null ? null : (SendResult result) -> listener.onComplete(result.isOK() ? null
+                : (result.getException() == null ? new RpcException("Send WebSocket binary failed.") : result.getException())));
     }
 
     /**
-     * 根据{@code Session}消息解析{@code Protocol}对象。
+     * 忽略{@code SendHandler}类型的调用参数。
      *
-     * @param messages byte[]类型消息。
-     * @param session {@code Session}对象。
-     *
-     * @return {@code Protocol}对象。
+     * TODO customized SendHandler
      */
-    private Protocol<String> parseRpcProtocol(byte[] messages, Session session) {
-        try {
-            return getObjectSerialization().deserialize(messages, RpcProtocol.class);
-        } catch (Throwable t) {
-            log.error("Exception ocurred when parsing Rpc Protocol.", t);
-            Protocol<String> protocol = new RpcProtocol();
-            protocol = getObjectSerialization().fillProtocol(protocol, messages);
-            return protocol;
-        }
-    }
-
     @Override
-    public void addActions(Object obj) {
-        Class<?> clientInterface = null;
-        //clinet only accpets interface
-        if (obj instanceof Class && ((clientInterface = (Class) obj)).isInterface()) {
-            if (clientAnnotatedClass != null && !clientInterface.isAnnotationPresent(clientAnnotatedClass)) {
-                throw new JRouterException(String.format("Client interface [%s] should has @%s", clientInterface, clientAnnotatedClass));
-            }
-            //因为需代理方法参数，方法名称需唯一
-            //create dynamic interface
-            Object exist = clients.put(clientInterface, clientObjectFactory.newInstance(clientInterface));
-            if (exist != null) {
-                throw new JRouterException("Client [" + clientInterface + "] already exists.");
-            }
-        } else {
-            log.warn("Only accepts interface types, ignore [{}]", obj == null ? "null" : obj.getClass());
-        }
-    }
-
-    /**
-     * 由指定的方法生成{@code String}型路径。
-     *
-     * @param targetClass 底层方法所表示的 {@code Class} 对象。
-     * @param method 指定的底层方法。
-     *
-     * @return 用于{@link #invokeAction}的{@code String}型调用路径。
-     *
-     * @see #clientObjectFactory
-     */
-    protected String parsePath(Class<?> targetClass, Method method) {
-        Namespace ns = getActionFilter().getNamespace(targetClass, method);
-        //trim empty and '/'
-        String namespace = ns == null ? Character.toString(getPathSeparator()) : getPathSeparator() + StringUtil.trim(ns.name(), getPathSeparator());
-        return buildActionPath(namespace, "", method);
+    protected boolean isTransportParameter(Object param) {
+        return param instanceof SendHandler;
     }
 
     /**
-     * RpcConsumerActionFilter.
-     *
-     * @see RpcConsumer
+     * 忽略{@code SendHandler}类型的调用参数。
      */
-    protected static class RpcConsumerActionFilter extends PathActionFactory.DefaultActionFilter {
-
-        /**
-         * 提供{@link RpcConsumer}至{@link Namespace}的转换。
-         */
-        @Override
-        public Namespace getNamespace(Object obj, Method method) {
-            Class<?> clazz = method.getDeclaringClass();
-            final RpcConsumer consumer = clazz.getAnnotation(RpcConsumer.class);
-            if (consumer != null) {
-                String namespace = consumer.namespace();
-                if (StringUtil.isBlank(namespace)) {
-                    namespace = clazz.getCanonicalName();
-                }
-                final String name = namespace;
-                return new Namespace() {
-                    @Override
-                    public String name() {
-                        return name;
-                    }
-
-                    @Override
-                    public String interceptorStack() {
-                        return consumer.interceptorStack();
-                    }
-
-                    @Override
-                    public String[] interceptors() {
-                        return consumer.interceptors();
-                    }
-
-                    @Override
-                    public boolean autoIncluded() {
-                        return consumer.autoIncluded();
-                    }
-
-                    @Override
-                    public Class<? extends Annotation> annotationType() {
-                        return RpcConsumer.class;
-                    }
-                };
-            }
-            return super.getNamespace(obj, method);
-        }
+    @Override
+    protected boolean isTransportParameterType(Class<?> type) {
+        return SendHandler.class.isAssignableFrom(type);
     }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * 调用路径与{@code int}型路径标识的映射表（开放寻址）。
+ *
+ * 路径标识由路径字符串的稳定哈希（FNV-1a）得出，客户端与服务端无需协商即可得到相同的值；
+ * 0 保留表示未指定标识。哈希冲突的标识被标记为不可用，查找时返回 null.
+ *
+ * @see #pathId(String)
+ */
+public final class PathIdTable {
+
+    /**
+     * 冲突标识占位。
+     */
+    private static final String AMBIGUOUS = new String("<ambiguous>");
+
+    /**
+     * 空表。
+     */
+    public static final PathIdTable EMPTY = new PathIdTable(Collections.emptyList());
+
+    /**
+     * 标识数组，0 表示空位。
+     */
+    private final int[] ids;
+
+    /**
+     * 路径数组，与标识数组一一对应。
+     */
+    private final String[] paths;
+
+    /**
+     * 索引掩码。
+     */
+    private final int mask;
+
+    /**
+     * 收录的路径数量。
+     */
+    @lombok.Getter
+    private final int size;
+
+    /**
+     * 冲突的标识数量。
+     */
+    @lombok.Getter
+    private final int collisions;
+
+    /**
+     * 由指定的路径集合创建映射表。
+     *
+     * @param pathCollection 调用路径集合。
+     */
+    public PathIdTable(Collection<String> pathCollection) {
+        int capacity = Integer.highestOneBit(Math.max(4, pathCollection.size() * 2) - 1) << 1;
+        this.ids = new int[capacity];
+        this.paths = new String[capacity];
+        this.mask = capacity - 1;
+        int conflicts = 0;
+        for (String path : pathCollection) {
+            int id = pathId(path);
+            int index = mix(id) & mask;
+            while (ids[index] != 0 && ids[index] != id) {
+                index = (index + 1) & mask;
+            }
+            if (ids[index] == id) {
+                if (paths[index] != AMBIGUOUS && !paths[index].equals(path)) {
+                    paths[index] = AMBIGUOUS;
+                    conflicts++;
+                }
+            } else {
+                ids[index] = id;
+                paths[index] = path;
+            }
+        }
+        this.size = pathCollection.size();
+        this.collisions = conflicts;
+    }
+
+    /**
+     * 计算路径的标识（32位 FNV-1a），结果不为 0.
+     *
+     * @param path 调用路径。
+     *
+     * @return 路径标识。
+     */
+    public static int pathId(String path) {
+        int hash = 0x811c9dc5;
+        for (int i = 0, len = path.length(); i < len; i++) {
+            hash ^= path.charAt(i);
+            hash *= 0x01000193;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * 根据标识查找路径。
+     *
+     * @param id 路径标识。
+     *
+     * @return 对应的路径；未找到或标识冲突时返回 null.
+     */
+    public String get(int id) {
+        if (id == 0) {
+            return null;
+        }
+        int index = mix(id) & mask;
+        int cur;
+        while ((cur = ids[index]) != 0) {
+            if (cur == id) {
+                String path = paths[index];
+                return path == AMBIGUOUS ? null : path;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * 指定的标识是否因哈希冲突而不可用。
+     *
+     * @param id 路径标识。
+     *
+     * @return 是否冲突。
+     */
+    public boolean isAmbiguous(int id) {
+        if (id == 0) {
+            return false;
+        }
+        int index = mix(id) & mask;
+        int cur;
+        while ((cur = ids[index]) != 0) {
+            if (cur == id) {
+                return paths[index] == AMBIGUOUS;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 打散哈希值的高位以减少聚集。
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+
+    @Override
+    public String toString() {
+        return "PathIdTable{" + "size=" + size + ", capacity=" + ids.length + ", collisions=" + collisions + '}';
+    }
+}
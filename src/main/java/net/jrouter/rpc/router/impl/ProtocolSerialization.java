@@ -16,22 +16,38 @@
  */
 package net.jrouter.rpc.router.impl;
 
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import net.jrouter.rpc.exception.SerializationException;
 import net.jrouter.rpc.protocol.Protocol;
+import net.jrouter.rpc.protocol.RpcProtocol;
 import net.jrouter.rpc.serialize.ObjectSerialization;
+import net.jrouter.rpc.serialize.compress.Compressor;
+import net.jrouter.rpc.util.ByteBufferOutputStream;
+import net.jrouter.rpc.util.Constants;
 
 /**
  * Serialization for {@link Protocol} and get {@code Long} id from source {@code byte[]}.
  *
  * [0,1] -> Magic number
  * [2,9] -> Long id
- * [10] -> ObjectSerialization type
- * [11] -> Protocol type
+ * [10] -> ObjectSerialization type (compressed frame: bits 4-6 -> Compressor type, bits 0-3 -> ObjectSerialization type)
+ * [11] -> Protocol type (-1: single protocol; 1: batch of frames)
  * [12-15] -> Data length
  *
+ * A batch frame carries N complete single frames (each with its own header) as its data, so that many small
+ * protocols can be sent in one transport message.
+ *
+ * The data of a compressed frame is [0-3] -> original data length, [4-] -> compressed data. Frames are compressed only
+ * when a {@link Compressor} is set and the data length reaches the threshold, receivers decompress any supported
+ * Compressor type. A type byte which is itself a registered ObjectSerialization type is never treated as compressed.
+ *
  * @see Protocol
  */
 public class ProtocolSerialization implements ObjectSerialization {
@@ -51,6 +67,55 @@ public class ProtocolSerialization implements ObjectSerialization {
      */
     private static final byte PROTOCOL_TYPE = -1;
 
+    /**
+     * Protocol type of batch frame.
+     */
+    public static final byte PROTOCOL_TYPE_BATCH = 1;
+
+    /**
+     * Protocol type of stream element frame, the result is one element of the stream.
+     *
+     * @see RpcProtocol#getStreamType()
+     */
+    public static final byte PROTOCOL_TYPE_STREAM = 2;
+
+    /**
+     * Protocol type of end-of-stream frame, the result is null or the exception occurred while streaming.
+     *
+     * @see RpcProtocol#getStreamType()
+     */
+    public static final byte PROTOCOL_TYPE_STREAM_END = 3;
+
+    /**
+     * Initial data buffer size (exclude header).
+     */
+    private static final int INITIAL_DATA_SIZE = 256;
+
+    /**
+     * Mask of ObjectSerialization type in a compressed frame's type byte.
+     */
+    private static final int SERIALIZATION_TYPE_MASK = 0x0F;
+
+    /**
+     * Shift of Compressor type in a compressed frame's type byte.
+     */
+    private static final int COMPRESSOR_TYPE_SHIFT = 4;
+
+    /**
+     * Size of the original data length in a compressed frame's data.
+     */
+    private static final int ORIGINAL_LENGTH_SIZE = 4;
+
+    /**
+     * Default data length threshold to compress.
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    /**
+     * Default max original data length of a compressed frame (64MB).
+     */
+    public static final int DEFAULT_MAX_DECOMPRESSED_LENGTH = 64 * 1024 * 1024;
+
     /**
      * Delegated default ObjectSerialization.
      */
@@ -61,6 +126,39 @@ public class ProtocolSerialization implements ObjectSerialization {
      */
     private final Map<Byte, ObjectSerialization> supportedObjectSerializations;
 
+    /**
+     * Supported Compressors to decompress.
+     */
+    private final Map<Byte, Compressor> supportedCompressors = Constants.SUPPORTED_COMPRESSORS;
+
+    /**
+     * Compressor to compress frames, null to disable compression (default).
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private Compressor compressor;
+
+    /**
+     * Data length threshold to compress, not positive to disable compression.
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+
+    /**
+     * Max original data length of a compressed frame to decompress.
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private int maxDecompressedLength = DEFAULT_MAX_DECOMPRESSED_LENGTH;
+
+    /**
+     * Path id : compression threshold.
+     *
+     * @see #setCompressionThreshold(String, int)
+     */
+    private final Map<Integer, Integer> pathCompressionThresholds = new ConcurrentHashMap<>(16);
+
     /**
      * Constructor.
      *
@@ -76,14 +174,75 @@ public class ProtocolSerialization implements ObjectSerialization {
     }
 
     /**
-     * 根据原{@code ByteBuffer}获取{@code ObjectSerialization}。
+     * 根据原{@code ByteBuffer}（协议头起始于 index 0）获取{@code ObjectSerialization}。
      *
      * @param buffer {@code ByteBuffer}对象。
      *
      * @return ObjectSerialization.
      */
     public ObjectSerialization getObjectSerialization(ByteBuffer buffer) {
-        return (buffer != null && buffer.capacity() >= 9) ? supportedObjectSerializations.get(buffer.get(8)) : null;
+        return (buffer != null && buffer.limit() > 10) ? getObjectSerialization(buffer.get(10)) : null;
+    }
+
+    /**
+     * Get the {@code ObjectSerialization} of the header's type byte.
+     */
+    private ObjectSerialization getObjectSerialization(byte type) {
+        return supportedObjectSerializations.get(getSerializationType(type));
+    }
+
+    /**
+     * Whether the header's type byte is of a compressed frame.
+     */
+    private boolean isCompressed(byte type) {
+        return type > SERIALIZATION_TYPE_MASK && !supportedObjectSerializations.containsKey(type);
+    }
+
+    /**
+     * Get the ObjectSerialization type of the header's type byte.
+     */
+    private byte getSerializationType(byte type) {
+        return isCompressed(type) ? (byte) (type & SERIALIZATION_TYPE_MASK) : type;
+    }
+
+    /**
+     * Get the Compressor type of the header's type byte, 0 if not compressed.
+     */
+    private byte getCompressorType(byte type) {
+        return isCompressed(type) ? (byte) (type >> COMPRESSOR_TYPE_SHIFT) : 0;
+    }
+
+    /**
+     * Set the compression threshold of the specified path, overrides {@link #compressionThreshold}; not positive to
+     * disable compression of the path.
+     *
+     * @param path invoked path.
+     * @param threshold data length threshold to compress.
+     */
+    public void setCompressionThreshold(String path, int threshold) {
+        pathCompressionThresholds.put(PathIdTable.pathId(path), threshold);
+    }
+
+    /**
+     * Get the {@code Compressor} to compress the data of the {@code Protocol}, null if not compressed.
+     */
+    private Compressor getCompressor(Protocol<?> protocol, int dataLength) {
+        Compressor c = compressor;
+        byte type = protocol.getSerializationType();
+        if (c == null || type < 0 || type > SERIALIZATION_TYPE_MASK) {
+            return null;
+        }
+        int threshold = compressionThreshold;
+        if (!pathCompressionThresholds.isEmpty()) {
+            Object path = protocol.getPath();
+            int pathId = path instanceof String ? PathIdTable.pathId((String) path)
+                    : (protocol instanceof RpcProtocol ? ((RpcProtocol) protocol).getPathId() : 0);
+            Integer t = pathCompressionThresholds.get(pathId);
+            if (t != null) {
+                threshold = t;
+            }
+        }
+        return threshold > 0 && dataLength >= threshold ? c : null;
     }
 
     /**
@@ -100,7 +259,7 @@ public class ProtocolSerialization implements ObjectSerialization {
     }
 
     /**
-     * 根据原{@code ByteBuffer}填充{@code Protocol}对象信息。
+     * 根据原{@code ByteBuffer}（协议头起始于 index 0）填充{@code Protocol}对象信息。
      *
      * @param <T> type.
      * @param protocol {@code Protocol}对象。
@@ -111,8 +270,7 @@ public class ProtocolSerialization implements ObjectSerialization {
     public <T> Protocol<T> fillProtocol(Protocol<T> protocol, ByteBuffer buffer) {
         if (buffer != null && protocol != null) {
             if (buffer.capacity() >= PROTOCAL_HEADER_SIZE) {
-                protocol.setSerializationType(buffer.get(10));
-                fillProtocol(protocol, buffer.getLong(2), buffer.get(10));
+                fillProtocol(protocol, buffer.getLong(2), getSerializationType(buffer.get(10)), buffer.get(11));
             }
         }
         return protocol;
@@ -121,16 +279,26 @@ public class ProtocolSerialization implements ObjectSerialization {
     /**
      * 填充{@code Protocol}对象信息。
      */
-    private <T> Protocol<T> fillProtocol(Protocol<T> protocol, Long id, Byte serType) {
+    private <T> Protocol<T> fillProtocol(Protocol<T> protocol, Long id, Byte serType, byte proType) {
         if (id != null) {
             protocol.setId(id);
         }
         if (serType != null) {
             protocol.setSerializationType(serType);
         }
+        if (protocol instanceof RpcProtocol) {
+            ((RpcProtocol) protocol).setStreamType(isStreamType(proType) ? proType : 0);
+        }
         return protocol;
     }
 
+    /**
+     * 是否为流式帧的协议类型。
+     */
+    private static boolean isStreamType(byte proType) {
+        return proType == PROTOCOL_TYPE_STREAM || proType == PROTOCOL_TYPE_STREAM_END;
+    }
+
 ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     @Override
     public byte[] serialize(Object obj) {
@@ -139,48 +307,194 @@ public class ProtocolSerialization implements ObjectSerialization {
         }
         if (obj instanceof Protocol<?>) {
             ByteBuffer buffer = serializeByteBuffer((Protocol) obj);
-            return buffer.array();
+            byte[] array = buffer.array();
+            //exact length
+            return array.length == buffer.limit() ? array : Arrays.copyOf(array, buffer.limit());
         }
         return objectSerialization.serialize(obj);
     }
 
     /**
-     * Serialize {@code Protocol} object to {@code ByteBuffer} object.
+     * Serialize {@code Protocol} object to {@code ByteBuffer} object. The header is reserved and backfilled after the
+     * data has been written, the returned buffer wraps the written array directly (position 0, limit frame length).
      *
      * @param protocol {@code Protocol} object.
      *
      * @return {@code ByteBuffer}.
      */
     public ByteBuffer serializeByteBuffer(Protocol<?> protocol) {
+        ByteBufferOutputStream out = new ByteBufferOutputStream(PROTOCAL_HEADER_SIZE + INITIAL_DATA_SIZE);
+        //reserve header
+        out.skip(PROTOCAL_HEADER_SIZE);
+        serializeData(protocol, out);
+        ByteBuffer buffer = out.toByteBuffer();
+        if (compressor != null) {
+            ByteBuffer data = buffer.duplicate();
+            data.position(PROTOCAL_HEADER_SIZE);
+            ByteBuffer frame = compressFrame(protocol, data);
+            if (frame != null) {
+                return frame;
+            }
+        }
+        writeHeader(protocol, buffer.limit() - PROTOCAL_HEADER_SIZE, buffer);
+        return buffer;
+    }
+
+    /**
+     * Compress the serialized data of {@code Protocol} object into a new compressed frame, if the data length reaches
+     * the compression threshold and the compressed frame is smaller.
+     *
+     * @param protocol {@code Protocol} object.
+     * @param data the serialized data (exclude header), from its position to its limit.
+     *
+     * @return compressed frame {@code ByteBuffer} (position 0, limit frame length), or null if not compressed.
+     *
+     * @see #serializeData(Protocol, OutputStream)
+     */
+    public ByteBuffer compressFrame(Protocol<?> protocol, ByteBuffer data) {
+        int originalLength = data.remaining();
+        Compressor c = getCompressor(protocol, originalLength);
+        if (c == null) {
+            return null;
+        }
+        ByteBuffer compressed = c.compress(data);
+        int dataLength = ORIGINAL_LENGTH_SIZE + compressed.remaining();
+        if (dataLength >= originalLength) {
+            return null;
+        }
+        ByteBuffer frame = ByteBuffer.allocate(PROTOCAL_HEADER_SIZE + dataLength);
+        writeHeader(protocol, dataLength, (byte) ((c.getType() << COMPRESSOR_TYPE_SHIFT) | protocol.getSerializationType()), frame);
+        frame.position(PROTOCAL_HEADER_SIZE);
+        frame.putInt(originalLength);
+        frame.put(compressed);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Serialize the data of {@code Protocol} object (exclude header) into the given {@code OutputStream}.
+     *
+     * @param protocol {@code Protocol} object.
+     * @param out the target stream.
+     *
+     * @see #writeHeader(Protocol, int, ByteBuffer)
+     */
+    public void serializeData(Protocol<?> protocol, OutputStream out) {
         ObjectSerialization os = supportedObjectSerializations.get(protocol.getSerializationType());
         if (os == null) {
             throw new SerializationException("Protocol serialize Error, Can't find ObjectSerialization type [" + protocol.getSerializationType() + "]");
         }
-        byte[] data = os.serialize(protocol);
-        int dataLength = (data == null ? 0 : data.length);
+        os.serialize(protocol, out);
+    }
+
+    /**
+     * Write the {@code Protocol} header into the given {@code ByteBuffer} at its current position, using absolute
+     * index so that the buffer's position is not changed.
+     *
+     * @param protocol {@code Protocol} object.
+     * @param dataLength data length (exclude header).
+     * @param buffer the target {@code ByteBuffer}, at least {@link #PROTOCAL_HEADER_SIZE} remaining bytes.
+     */
+    public void writeHeader(Protocol<?> protocol, int dataLength, ByteBuffer buffer) {
+        writeHeader(protocol, dataLength, protocol.getSerializationType(), buffer);
+    }
+
+    /**
+     * Write the {@code Protocol} header with the specified type byte.
+     */
+    private void writeHeader(Protocol<?> protocol, int dataLength, byte type, ByteBuffer buffer) {
+        int index = buffer.position();
         //java BIG_ENDIAN
-        ByteBuffer buffer = ByteBuffer.allocate(PROTOCAL_HEADER_SIZE + dataLength);
         //magic number
-        buffer.putShort(MAGIC_NUMBER);
+        buffer.putShort(index, MAGIC_NUMBER);
         //long id
-        buffer.putLong(protocol.getId() == null ? 0 : protocol.getId());
+        buffer.putLong(index + 2, protocol.getId() == null ? 0 : protocol.getId());
         //serialization type
-        buffer.put(protocol.getSerializationType());
+        buffer.put(index + 10, type);
         //protocol type
-        buffer.put(PROTOCOL_TYPE);
+        byte proType = protocol instanceof RpcProtocol ? ((RpcProtocol) protocol).getStreamType() : 0;
+        buffer.put(index + 11, isStreamType(proType) ? proType : PROTOCOL_TYPE);
         //data length
-        buffer.putInt(dataLength);
-        if (dataLength > 0) {
-            //data
-            buffer.put(data);
+        buffer.putInt(index + 12, dataLength);
+    }
+
+    /**
+     * Whether the frame starting at the buffer's current position is a batch frame.
+     *
+     * @param buffer {@code ByteBuffer} object.
+     *
+     * @return {@code true} if the frame is a batch frame.
+     *
+     * @see #serializeBatch(List)
+     */
+    public static boolean isBatch(ByteBuffer buffer) {
+        return buffer != null && buffer.remaining() >= PROTOCAL_HEADER_SIZE
+                && buffer.get(buffer.position() + 11) == PROTOCOL_TYPE_BATCH;
+    }
+
+    /**
+     * Combine complete single frames into one batch frame. The batch header takes the serialization type of the first
+     * frame and id 0, the given buffers' positions are not changed.
+     *
+     * @param frames single frames, each from its position to its limit.
+     *
+     * @return batch frame {@code ByteBuffer} (position 0, limit frame length).
+     */
+    public static ByteBuffer serializeBatch(List<ByteBuffer> frames) {
+        int dataLength = 0;
+        for (ByteBuffer frame : frames) {
+            dataLength += frame.remaining();
         }
-        //position 0 ready to read
-        buffer.rewind();
-        return buffer;
+        ByteBuffer batch = ByteBuffer.allocate(PROTOCAL_HEADER_SIZE + dataLength);
+        batch.putShort(MAGIC_NUMBER);
+        batch.putLong(0);
+        batch.put(frames.isEmpty() ? 0 : frames.get(0).get(frames.get(0).position() + 10));
+        batch.put(PROTOCOL_TYPE_BATCH);
+        batch.putInt(dataLength);
+        for (ByteBuffer frame : frames) {
+            batch.put(frame.duplicate());
+        }
+        batch.flip();
+        return batch;
+    }
+
+    /**
+     * Split the batch frame starting at the buffer's current position into views of its single frames without
+     * copying; the buffer's position is not changed.
+     *
+     * @param buffer {@code ByteBuffer} object of a batch frame.
+     *
+     * @return views of single frames.
+     *
+     * @see #isBatch(ByteBuffer)
+     */
+    public static List<ByteBuffer> splitBatch(ByteBuffer buffer) {
+        ByteBuffer data = buffer.duplicate();
+        int dataLength = data.getInt(data.position() + 12);
+        if (dataLength != data.remaining() - PROTOCAL_HEADER_SIZE) {
+            throw new SerializationException("Batch deserialize Error, unexpected data length [" + dataLength + "]");
+        }
+        data.position(data.position() + PROTOCAL_HEADER_SIZE);
+        List<ByteBuffer> frames = new ArrayList<>();
+        while (data.hasRemaining()) {
+            if (data.remaining() < PROTOCAL_HEADER_SIZE) {
+                throw new SerializationException("Batch deserialize Error, incomplete frame header of [" + data.remaining() + "] bytes");
+            }
+            int frameLength = PROTOCAL_HEADER_SIZE + data.getInt(data.position() + 12);
+            if (frameLength <= PROTOCAL_HEADER_SIZE || frameLength > data.remaining()) {
+                throw new SerializationException("Batch deserialize Error, unexpected frame length [" + frameLength + "]");
+            }
+            ByteBuffer frame = data.slice();
+            frame.limit(frameLength);
+            frames.add(frame);
+            data.position(data.position() + frameLength);
+        }
+        return frames;
     }
 
     /**
-     * Deserialize {@code ByteBuffer} object to {@code Protocol} object.
+     * Deserialize {@code ByteBuffer} object to {@code Protocol} object. The frame is read from the buffer's current
+     * position, the data is passed to the {@code ObjectSerialization} as a slice of the buffer without copying.
      *
      * @param <T> Protocol type.
      * @param buffer {@code ByteBuffer} object.
@@ -192,8 +506,7 @@ public class ProtocolSerialization implements ObjectSerialization {
         if (buffer == null) {
             return null;
         }
-        if (buffer.capacity() >= PROTOCAL_HEADER_SIZE) {
-            buffer.rewind();
+        if (buffer.remaining() >= PROTOCAL_HEADER_SIZE) {
             //magic number
             short magicNo = buffer.getShort();
             if (magicNo != MAGIC_NUMBER) {
@@ -203,25 +516,50 @@ public class ProtocolSerialization implements ObjectSerialization {
             Long id = buffer.getLong();
             //serialization type
             byte serType = buffer.get();
-            ObjectSerialization os = supportedObjectSerializations.get(serType);
+            ObjectSerialization os = getObjectSerialization(serType);
             if (os == null) {
                 throw new SerializationException("Protocol deserialize Error, Can't find ObjectSerialization type [" + serType + "]");
             }
             //protocol type
             byte proType = buffer.get();
+            if (proType == PROTOCOL_TYPE_BATCH) {
+                throw new SerializationException("Protocol deserialize Error, batch frame should be split first");
+            }
             //data length
             int dataLength = buffer.getInt();
             if (dataLength <= 0 || dataLength != buffer.remaining()) {
                 throw new SerializationException("Protocol deserialize Error, unexpected data length [" + dataLength + "]");
             }
-            //data
-            byte[] data = new byte[dataLength];
-            buffer.get(data);
+            //data view
+            ByteBuffer data = buffer.slice();
+            buffer.position(buffer.limit());
+            byte compressorType = getCompressorType(serType);
+            if (compressorType != 0) {
+                data = decompress(compressorType, data);
+            }
             Protocol<?> protocol = os.deserialize(data, clz);
             //fill header data
-            return (T) fillProtocol(protocol, id, serType);
+            return (T) fillProtocol(protocol, id, getSerializationType(serType), proType);
         }
-        throw new SerializationException(String.format("Protocol deserialize Error, require header size [%d], actual [%d]", PROTOCAL_HEADER_SIZE, buffer.capacity()));
+        throw new SerializationException(String.format("Protocol deserialize Error, require header size [%d], actual [%d]", PROTOCAL_HEADER_SIZE, buffer.remaining()));
+    }
+
+    /**
+     * Decompress the data of a compressed frame.
+     */
+    private ByteBuffer decompress(byte compressorType, ByteBuffer data) {
+        Compressor c = supportedCompressors.get(compressorType);
+        if (c == null) {
+            throw new SerializationException("Protocol deserialize Error, Can't find Compressor type [" + compressorType + "]");
+        }
+        if (data.remaining() <= ORIGINAL_LENGTH_SIZE) {
+            throw new SerializationException("Protocol deserialize Error, unexpected compressed data length [" + data.remaining() + "]");
+        }
+        int originalLength = data.getInt();
+        if (originalLength <= 0 || originalLength > maxDecompressedLength) {
+            throw new SerializationException("Protocol deserialize Error, unexpected original data length [" + originalLength + "]");
+        }
+        return c.decompress(data, originalLength);
     }
 
     @Override
@@ -232,6 +570,14 @@ public class ProtocolSerialization implements ObjectSerialization {
         return objectSerialization.deserialize(bytes, clz);
     }
 
+    @Override
+    public <T> T deserialize(ByteBuffer buffer, Class<T> clz) {
+        if (Protocol.class.isAssignableFrom(clz)) {
+            return (T) deserializeByteBuffer(buffer.duplicate(), (Class<Protocol>) clz);
+        }
+        return objectSerialization.deserialize(buffer, clz);
+    }
+
     @Override
     public byte getType() {
         return Byte.MIN_VALUE;
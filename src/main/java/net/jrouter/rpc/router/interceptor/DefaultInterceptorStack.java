@@ -38,4 +38,12 @@ public class DefaultInterceptorStack {
     @InterceptorStack(interceptors = {ExceptionInterceptor.EXCEPTION})
     public static final String EXCEPTION_INTERCEPTOR_STACK = "exception";
 
+    /**
+     * 度量拦截栈名称，包含异常拦截器和度量拦截器（度量拦截器于内层，记录业务方法的异常）。
+     *
+     * @see MetricsInterceptor
+     */
+    @InterceptorStack(interceptors = {ExceptionInterceptor.EXCEPTION, MetricsInterceptor.METRICS})
+    public static final String METRICS_INTERCEPTOR_STACK = "metrics";
+
 }
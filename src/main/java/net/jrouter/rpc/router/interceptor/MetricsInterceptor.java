@@ -0,0 +1,35 @@
+package net.jrouter.rpc.router.interceptor;
+
+import jrouter.annotation.Interceptor;
+import net.jrouter.rpc.metrics.RpcMetrics;
+import net.jrouter.rpc.router.RpcActionInvocation;
+
+/**
+ * MetricsInterceptor；记录业务方法（包含其内层的拦截器）的执行耗时至{@code RpcActionFactory}的{@link RpcMetrics}.
+ *
+ * @see RpcMetrics#onExecute
+ * @see DefaultInterceptorStack#METRICS_INTERCEPTOR_STACK
+ */
+public class MetricsInterceptor {
+
+    public static final String METRICS = "__metrics";
+
+    @Interceptor(name = METRICS)
+    public Object intercept(RpcActionInvocation<?> invocation) {
+        RpcMetrics metrics = invocation.getActionFactory().getMetrics();
+        if (metrics == RpcMetrics.NONE) {
+            return invocation.invoke();
+        }
+        long start = System.nanoTime();
+        Throwable cause = null;
+        try {
+            return invocation.invoke();
+        } catch (RuntimeException | Error e) {
+            cause = e;
+            throw e;
+        } finally {
+            metrics.onExecute(invocation.getProtocol().getPath(), System.nanoTime() - start, cause);
+        }
+    }
+
+}
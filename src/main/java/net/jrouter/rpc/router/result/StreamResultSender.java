@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.jrouter.rpc.router.result;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.BaseStream;
+import lombok.extern.slf4j.Slf4j;
+import net.jrouter.rpc.RpcException;
+import net.jrouter.rpc.protocol.RpcProtocol;
+import net.jrouter.rpc.router.impl.ProtocolSerialization;
+
+/**
+ * 流式返回结果（{@link Iterator}、{@link BaseStream}）的发送器：逐个迭代结果元素，以同一协议 Id 的流式帧发送，
+ * 迭代结束后发送结束帧（迭代发生异常时以异常作为结束帧的结果）。
+ *
+ * 传输层不可继续写入时暂停迭代，最近发送的帧完成后继续迭代，服务端无需缓存全部结果；
+ * 发送失败、连接关闭或客户端取消（{@link #cancel()}）时停止迭代并关闭结果（{@link AutoCloseable}）。
+ *
+ * 帧的完成回调通常由传输层的 I/O 线程（如 netty 的 EventLoop、websocket 容器的线程）执行，迭代结果元素可能阻塞或耗时，
+ * 应指定继续迭代的{@code Executor}（{@link #start(Executor, Runnable)}，如服务端调用的分派策略）；
+ * 未指定时使用{@link #getDefaultExecutor()}，其为 null 时于完成回调的线程中继续迭代，此时结果元素的迭代不可阻塞。
+ * 存在继续迭代的{@code Executor}时，每连续发送{@link #MAX_FRAMES_PER_RUN}帧即交由其继续迭代，避免长时间占用当前线程（如接收取消帧的 I/O 线程）。
+ * 迭代及结果的关闭始终由单个线程顺序执行。
+ *
+ * @see ProtocolSerialization#PROTOCOL_TYPE_STREAM
+ * @see ProtocolSerialization#PROTOCOL_TYPE_STREAM_END
+ */
+@Slf4j
+public abstract class StreamResultSender {
+
+    /** 帧的发送状态：发送中、已完成、等待完成后继续迭代 */
+    private static final int SENDING = 0, SENT = 1, WAITING = 2;
+
+    /**
+     * 存在继续迭代的{@code Executor}时，单次连续发送的最大帧数。
+     */
+    public static final int MAX_FRAMES_PER_RUN = 64;
+
+    /**
+     * 流式帧的{@code Protocol}对象，逐个设置结果元素。
+     */
+    private final RpcProtocol protocol;
+
+    /**
+     * 结果元素的迭代器。
+     */
+    private final Iterator<?> iterator;
+
+    /**
+     * 结束后需关闭的结果，可为 null。
+     */
+    private final AutoCloseable resource;
+
+    /**
+     * 是否已结束。
+     */
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    /**
+     * 是否已被取消或发送失败，由迭代的线程结束迭代。
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * 继续迭代的{@code Executor}；null 表示于帧的完成回调线程中继续迭代。
+     */
+    private Executor executor;
+
+    /**
+     * 结束后的回调，可为 null。
+     */
+    private Runnable closeHandler;
+
+    /**
+     * Constructor.
+     *
+     * @param protocol 调用的{@code Protocol}对象。
+     * @param result 流式返回结果。
+     *
+     * @see #isStreamResult(Object)
+     */
+    protected StreamResultSender(RpcProtocol protocol, Object result) {
+        this.protocol = protocol;
+        if (result instanceof BaseStream) {
+            this.iterator = ((BaseStream<?, ?>) result).iterator();
+            this.resource = (BaseStream<?, ?>) result;
+        } else {
+            this.iterator = (Iterator<?>) result;
+            this.resource = result instanceof AutoCloseable ? (AutoCloseable) result : null;
+        }
+    }
+
+    /**
+     * 判断返回结果是否为流式返回结果。
+     *
+     * @param result 返回结果。
+     *
+     * @return 是否为流式返回结果。
+     */
+    public static boolean isStreamResult(Object result) {
+        return result instanceof Iterator || result instanceof BaseStream;
+    }
+
+    /**
+     * 开始迭代并发送结果元素，于帧的完成回调线程中继续迭代。
+     */
+    public void start() {
+        start(null, null);
+    }
+
+    /**
+     * 开始迭代并发送结果元素。
+     *
+     * @param executor 继续迭代的{@code Executor}，null 表示于帧的完成回调线程中继续迭代。
+     * @param closeHandler 结束后的回调，可为 null。
+     */
+    public void start(Executor executor, Runnable closeHandler) {
+        this.executor = executor == null ? getDefaultExecutor() : executor;
+        this.closeHandler = closeHandler;
+        pump();
+    }
+
+    /**
+     * 获取流式返回结果的协议 Id.
+     *
+     * @return 协议 Id.
+     */
+    public Long getId() {
+        return protocol.getId();
+    }
+
+    /**
+     * 取消发送（如客户端已关闭流式调用）：不再发送结束帧，由迭代的线程于当前元素发送完成后停止迭代并关闭结果。
+     */
+    public void cancel() {
+        cancelled = true;
+        if (log.isDebugEnabled()) {
+            log.debug("Stream result cancelled for [{}].", protocol);
+        }
+    }
+
+    /**
+     * 是否已结束。
+     *
+     * @return 是否已结束。
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * 连续发送结果元素，直至迭代结束或需等待已发送的帧完成。
+     */
+    private void pump() {
+        int frames = 0;
+        while (!closed.get()) {
+            if (cancelled) {
+                close();
+                return;
+            }
+            if (!isOpen()) {
+                log.warn("Session is not open, stop streaming result for [{}].", protocol);
+                close();
+                return;
+            }
+            Object element;
+            try {
+                if (!iterator.hasNext()) {
+                    end(null);
+                    return;
+                }
+                element = iterator.next();
+            } catch (RuntimeException e) {
+                log.error("Exception occurred when iterating stream result for [{}].", protocol, e);
+                end(new RpcException(e));
+                return;
+            }
+            protocol.setResult(element);
+            protocol.setStreamType(ProtocolSerialization.PROTOCOL_TYPE_STREAM);
+            AtomicInteger state = new AtomicInteger(SENDING);
+            send(protocol, (Throwable cause) -> {
+                if (cause != null) {
+                    log.error("Exception occurred when sending stream result for [{}].", protocol, cause);
+                    //stopped by the iterating thread
+                    cancelled = true;
+                }
+                if (!state.compareAndSet(SENDING, SENT)) {
+                    //waiting
+                    resume();
+                }
+            });
+            if (executor != null && ++frames >= MAX_FRAMES_PER_RUN) {
+                //hand off to the executor after a run of frames, resumed here if already sent
+                if (!state.compareAndSet(SENDING, WAITING)) {
+                    resume();
+                }
+                return;
+            }
+            if (!isWritable() && state.compareAndSet(SENDING, WAITING)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 已发送的帧完成后继续迭代。
+     */
+    private void resume() {
+        Executor e = executor;
+        if (e == null) {
+            pump();
+            return;
+        }
+        try {
+            e.execute(this::pump);
+        } catch (RejectedExecutionException ex) {
+            log.error("Rejected to resume streaming result for [{}].", protocol, ex);
+            close();
+        }
+    }
+
+    /**
+     * 发送结束帧。
+     */
+    private void end(Throwable error) {
+        protocol.setResult(error);
+        protocol.setStreamType(ProtocolSerialization.PROTOCOL_TYPE_STREAM_END);
+        try {
+            send(protocol, (Throwable cause) -> {
+                if (cause != null) {
+                    log.error("Exception occurred when sending end of stream for [{}].", protocol, cause);
+                }
+            });
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * 结束迭代并关闭结果。
+     */
+    private void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                log.warn("Exception occurred when closing stream result for [{}].", protocol, e);
+            }
+        }
+        if (closeHandler != null) {
+            closeHandler.run();
+        }
+    }
+
+    /**
+     * 传输层是否可用。
+     *
+     * @return 是否可用。
+     */
+    protected abstract boolean isOpen();
+
+    /**
+     * 传输层是否可继续写入；默认返回 false，即等待每帧发送完成后再迭代下一个元素。
+     *
+     * @return 是否可继续写入。
+     */
+    protected boolean isWritable() {
+        return false;
+    }
+
+    /**
+     * 未指定继续迭代的{@code Executor}时使用的{@code Executor}；默认返回 null，即于帧的完成回调线程中继续迭代。
+     *
+     * @return 继续迭代的{@code Executor}，可为 null.
+     */
+    protected Executor getDefaultExecutor() {
+        return null;
+    }
+
+    /**
+     * 发送{@code Protocol}对象；须在方法返回前完成序列化（其结果随后被下一个元素覆盖）。
+     *
+     * @param protocol {@code Protocol}对象。
+     * @param listener 发送完成的监听器，发送失败时参数为异常，成功时为 null。
+     */
+    protected abstract void send(RpcProtocol protocol, Consumer<Throwable> listener);
+}
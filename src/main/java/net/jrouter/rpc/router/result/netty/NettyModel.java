@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.result.netty;
+
+import io.netty.channel.ChannelFutureListener;
+import java.io.Serializable;
+
+/**
+ * netty 数据模型.
+ */
+@lombok.Getter
+@lombok.Setter
+@lombok.NoArgsConstructor
+public class NettyModel implements Serializable {
+
+    /**
+     * Data object.
+     */
+    private Object data;
+
+    /**
+     * {@code ChannelFutureListener}对象。
+     */
+    private ChannelFutureListener listener;
+
+}
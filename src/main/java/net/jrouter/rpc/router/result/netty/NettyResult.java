@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.result.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import jrouter.annotation.ResultType;
+import lombok.extern.slf4j.Slf4j;
+import net.jrouter.id.IdGenerator;
+import net.jrouter.id.impl.IdGenerator2018;
+import net.jrouter.rpc.metrics.RpcMetrics;
+import net.jrouter.rpc.protocol.Protocol;
+import net.jrouter.rpc.protocol.RpcProtocol;
+import net.jrouter.rpc.router.RpcActionFactory;
+import net.jrouter.rpc.router.RpcActionInvocation;
+import net.jrouter.rpc.router.result.StreamResultSender;
+import net.jrouter.rpc.serialize.ObjectSerialization;
+import net.jrouter.rpc.transport.netty.ProtocolEncoder;
+
+/**
+ * 处理返回结果，转换为{@code Protocol}对象，异步写入 netty {@code Channel}；
+ * 流式返回结果（{@link StreamResultSender#isStreamResult(Object)}）逐个元素以流式帧写入。
+ *
+ * @param <T> netty 模型类。
+ */
+@Slf4j
+public class NettyResult<T extends NettyModel> {
+
+    public static final String NETTY = "netty";
+
+    /**
+     * {@code Long}型Id生成器。
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private IdGenerator<Long> idGenerator = new IdGenerator2018(0);
+
+    /**
+     * Return result using netty async writeAndFlush method.
+     *
+     * @param invocation RpcActionInvocation object.
+     *
+     * @return The result of return.
+     */
+    @ResultType(type = NETTY)
+    public Object callback(RpcActionInvocation<Channel> invocation) {
+        Object res = invocation.getInvokeResult();
+        Protocol<String> protocol = invocation.getProtocol();
+        NettyModel model = null;
+        if (res instanceof NettyModel) {
+            model = (NettyModel) res;
+            protocol.setResult(model.getData());
+        } else {
+            //nullable result
+            protocol.setResult(res);
+        }
+        Channel channel = invocation.getSession();
+        if (channel != null && channel.isActive()) {
+            ChannelFutureListener listener = null;
+            if (model != null) {
+                listener = model.getListener();
+            }
+            if (protocol.getId() == null) {
+                //set id & add record
+                protocol.setId(idGenerator.generateId());
+            }
+            String path = protocol.getPath();
+            //clear protocol's received parameters
+            if (protocol instanceof RpcProtocol) {
+                RpcProtocol rpcProtocol = (RpcProtocol) protocol;
+                rpcProtocol.setParameters(null);
+                //received by path id, the path is not required in result
+                if (rpcProtocol.getPathId() != 0) {
+                    rpcProtocol.setPath(null);
+                }
+            }
+            RpcMetrics metrics = invocation.getActionFactory().getMetrics();
+            ObjectSerialization serialization = invocation.getActionFactory().getObjectSerialization();
+            if (protocol instanceof RpcProtocol && StreamResultSender.isStreamResult(protocol.getResult())) {
+                sendStream(channel, (RpcProtocol) protocol, path, invocation.getActionFactory());
+                return res;
+            }
+            long start = System.nanoTime();
+            ByteBuf buf = ProtocolEncoder.encode(channel.alloc(), serialization, protocol);
+            if (metrics != RpcMetrics.NONE) {
+                metrics.onEncode(path, buf.readableBytes(), System.nanoTime() - start);
+            }
+            ChannelFuture future = channel.writeAndFlush(buf);
+            if (metrics != RpcMetrics.NONE) {
+                future.addListener((ChannelFuture f) -> metrics.onSend(path, System.nanoTime() - start, f.cause()));
+            }
+            if (listener != null) {
+                future.addListener(listener);
+            }
+        } else {
+            log.error("Can't get netty channel or channel is not active.");
+        }
+        return res;
+    }
+
+    /**
+     * 以流式帧发送流式返回结果，通道不可写入时等待已写入的帧完成；未指定继续迭代的{@code Executor}时于通道的 EventLoop 中继续迭代。
+     *
+     * @param channel netty {@code Channel}.
+     * @param protocol {@code Protocol}对象。
+     * @param path 调用路径。
+     * @param actionFactory 调用的{@code RpcActionFactory}，由其开始发送。
+     */
+    protected void sendStream(Channel channel, RpcProtocol protocol, String path, RpcActionFactory<Channel> actionFactory) {
+        ObjectSerialization serialization = actionFactory.getObjectSerialization();
+        RpcMetrics metrics = actionFactory.getMetrics();
+        actionFactory.startStream(channel, path, new StreamResultSender(protocol, protocol.getResult()) {
+
+            @Override
+            protected boolean isOpen() {
+                return channel.isActive();
+            }
+
+            @Override
+            protected boolean isWritable() {
+                return channel.isWritable();
+            }
+
+            @Override
+            protected Executor getDefaultExecutor() {
+                //interleave with the channel I/O
+                return channel.eventLoop();
+            }
+
+            @Override
+            protected void send(RpcProtocol p, Consumer<Throwable> listener) {
+                long start = System.nanoTime();
+                ByteBuf buf = ProtocolEncoder.encode(channel.alloc(), serialization, p);
+                if (metrics != RpcMetrics.NONE) {
+                    metrics.onEncode(path, buf.readableBytes(), System.nanoTime() - start);
+                }
+                channel.writeAndFlush(buf).addListener((ChannelFuture f) -> listener.accept(f.cause()));
+            }
+        });
+    }
+}
@@ -17,7 +17,9 @@
 package net.jrouter.rpc.router.result.websocket;
 
 import java.nio.ByteBuffer;
+import java.util.function.Consumer;
 import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 import jrouter.annotation.ResultType;
 import net.jrouter.rpc.protocol.Protocol;
@@ -25,10 +27,18 @@ import net.jrouter.rpc.protocol.RpcProtocol;
 import lombok.extern.slf4j.Slf4j;
 import net.jrouter.id.IdGenerator;
 import net.jrouter.id.impl.IdGenerator2018;
+import net.jrouter.rpc.metrics.RpcMetrics;
+import net.jrouter.rpc.RpcException;
+import net.jrouter.rpc.router.RpcActionFactory;
 import net.jrouter.rpc.router.RpcActionInvocation;
+import net.jrouter.rpc.router.result.StreamResultSender;
+import net.jrouter.rpc.router.impl.ProtocolSerialization;
+import net.jrouter.rpc.serialize.ObjectSerialization;
+import net.jrouter.rpc.transport.http.websocket.WebSocketSender;
 
 /**
- * 处理返回结果，转换为{@code Protocol}对象，异步传输 websocket 消息。
+ * 处理返回结果，转换为{@code Protocol}对象，经由{@link WebSocketSender}异步传输 websocket 消息；
+ * 流式返回结果（{@link StreamResultSender#isStreamResult(Object)}）逐个元素以流式帧传输。
  *
  * @param <T> websocket 模型类。
  */
@@ -44,6 +54,24 @@ public class WebSocketResult<T extends WebSocketModel> {
     @lombok.Setter
     private IdGenerator<Long> idGenerator = new IdGenerator2018(0);
 
+    /**
+     * 合并发送的批量帧的最大数据长度；不大于 0 表示不合并发送（默认），客户端需支持批量帧。
+     *
+     * @see WebSocketSender#setMaxBatchBytes(int)
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private int batchMaxBytes = 0;
+
+    /**
+     * 分片发送的单个分片的最大长度；不大于 0 表示不分片发送（默认），客户端需支持分片消息的重组。
+     *
+     * @see WebSocketSender#setFragmentBytes(int)
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private int fragmentBytes = 0;
+
     /**
      * Return result using websocket async sendBinary method.
      *
@@ -73,19 +101,76 @@ public class WebSocketResult<T extends WebSocketModel> {
                 //set id & add record
                 protocol.setId(idGenerator.generateId());
             }
+            String path = protocol.getPath();
             //TODO
             //clear protocol's received parameters
             if (protocol instanceof RpcProtocol) {
-                ((RpcProtocol) protocol).setParameters(null);
+                RpcProtocol rpcProtocol = (RpcProtocol) protocol;
+                rpcProtocol.setParameters(null);
+                //received by path id, the path is not required in result
+                if (rpcProtocol.getPathId() != 0) {
+                    rpcProtocol.setPath(null);
+                }
+            }
+            ObjectSerialization serialization = invocation.getActionFactory().getObjectSerialization();
+            RpcMetrics metrics = invocation.getActionFactory().getMetrics();
+            if (protocol instanceof RpcProtocol && StreamResultSender.isStreamResult(protocol.getResult())) {
+                sendStream(session, (RpcProtocol) protocol, path, invocation.getActionFactory());
+                return res;
             }
-            if (sendHandler == null) {
-                session.getAsyncRemote().sendBinary(ByteBuffer.wrap(invocation.getActionFactory().getObjectSerialization().serialize(protocol)));
-            } else {
-                session.getAsyncRemote().sendBinary(ByteBuffer.wrap(invocation.getActionFactory().getObjectSerialization().serialize(protocol)), sendHandler);
+            long start = System.nanoTime();
+            //avoid copying the frame into an exact-length array
+            ByteBuffer buffer = serialization instanceof ProtocolSerialization
+                    ? ((ProtocolSerialization) serialization).serializeByteBuffer(protocol)
+                    : ByteBuffer.wrap(serialization.serialize(protocol));
+            if (metrics != RpcMetrics.NONE) {
+                metrics.onEncode(path, buffer.remaining(), System.nanoTime() - start);
+                final SendHandler handler = sendHandler;
+                sendHandler = (SendResult result) -> {
+                    metrics.onSend(path, System.nanoTime() - start, result.isOK() ? null : result.getException());
+                    if (handler != null) {
+                        handler.onResult(result);
+                    }
+                };
             }
+            WebSocketSender.get(session, batchMaxBytes, fragmentBytes).send(buffer, sendHandler);
         } else {
             log.error("Can't get websocket session or session is not open.");
         }
         return res;
     }
+
+    /**
+     * 以流式帧发送流式返回结果，每帧发送完成后再发送下一帧。
+     *
+     * @param session websocket {@code Session}.
+     * @param protocol {@code Protocol}对象。
+     * @param path 调用路径。
+     * @param actionFactory 调用的{@code RpcActionFactory}，由其开始发送。
+     */
+    protected void sendStream(Session session, RpcProtocol protocol, String path, RpcActionFactory<Session> actionFactory) {
+        ObjectSerialization serialization = actionFactory.getObjectSerialization();
+        RpcMetrics metrics = actionFactory.getMetrics();
+        WebSocketSender sender = WebSocketSender.get(session, batchMaxBytes, fragmentBytes);
+        actionFactory.startStream(session, path, new StreamResultSender(protocol, protocol.getResult()) {
+
+            @Override
+            protected boolean isOpen() {
+                return session.isOpen();
+            }
+
+            @Override
+            protected void send(RpcProtocol p, Consumer<Throwable> listener) {
+                long start = System.nanoTime();
+                ByteBuffer buffer = serialization instanceof ProtocolSerialization
+                        ? ((ProtocolSerialization) serialization).serializeByteBuffer(p)
+                        : ByteBuffer.wrap(serialization.serialize(p));
+                if (metrics != RpcMetrics.NONE) {
+                    metrics.onEncode(path, buffer.remaining(), System.nanoTime() - start);
+                }
+                sender.send(buffer, (SendResult result) -> listener.accept(result.isOK() ? null
+                        : (result.getException() == null ? new RpcException("Send WebSocket binary failed.") : result.getException())));
+            }
+        });
+    }
 }
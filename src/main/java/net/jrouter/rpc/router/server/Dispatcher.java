@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.server;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 服务端调用的分派策略：接收线程（I/O 线程）仅解析协议帧，调用（拦截器、业务方法、返回结果的序列化及发送）由分派策略执行。
+ *
+ * @see Dispatchers
+ * @see RpcServerActionFactory.Properties#setDispatcher(Dispatcher)
+ */
+public interface Dispatcher {
+
+    /**
+     * 分派指定路径的调用任务。
+     *
+     * @param path 调用路径。
+     * @param task 调用任务。
+     *
+     * @throws RejectedExecutionException 如果无法接受调用任务（如队列已满）。
+     */
+    void dispatch(String path, Runnable task) throws RejectedExecutionException;
+
+    /**
+     * 是否于当前线程直接执行调用任务；默认 false.
+     *
+     * @return 是否于当前线程直接执行。
+     */
+    default boolean isInline() {
+        return false;
+    }
+
+    /**
+     * 关闭分派策略所持有的线程资源；默认无操作。
+     */
+    default void shutdown() {
+    }
+}
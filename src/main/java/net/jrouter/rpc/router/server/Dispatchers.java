@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 常用的{@link Dispatcher}实现。
+ */
+@Slf4j
+public final class Dispatchers {
+
+    /**
+     * 于接收线程直接执行。
+     */
+    private static final Dispatcher INLINE = new Dispatcher() {
+        @Override
+        public void dispatch(String path, Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public boolean isInline() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Dispatcher[inline]";
+        }
+    };
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}，JDK 21 之前不存在时为 null.
+     */
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+    private Dispatchers() {
+    }
+
+    //find method by reflection, compiled on java 8
+    private static Method findVirtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException | SecurityException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * 于接收线程直接执行调用（默认）。
+     *
+     * @return Dispatcher.
+     */
+    public static Dispatcher inline() {
+        return INLINE;
+    }
+
+    /**
+     * 固定线程数、有界队列的线程池；队列已满时拒绝调用（返回调用异常）。
+     *
+     * @param threads 线程数。
+     * @param queueSize 等待队列的长度。
+     *
+     * @return Dispatcher.
+     */
+    public static Dispatcher threadPool(int threads, int queueSize) {
+        return executor(newThreadPool("rpc-dispatcher", threads, queueSize), true);
+    }
+
+    /**
+     * 按路径隔离的线程池：指定路径的调用由其对应的线程池执行，其余路径的调用由默认线程池执行，
+     * 避免慢速的方法占用所有线程。关闭时一并关闭所有的{@code ExecutorService}.
+     *
+     * @param pathExecutors 路径对应的线程池。
+     * @param defaultExecutor 默认线程池。
+     *
+     * @return Dispatcher.
+     */
+    public static Dispatcher perPath(Map<String, ? extends Executor> pathExecutors, Executor defaultExecutor) {
+        final Map<String, Executor> executors = new HashMap<>(pathExecutors);
+        return new Dispatcher() {
+            @Override
+            public void dispatch(String path, Runnable task) {
+                Executor executor = path == null ? null : executors.get(path);
+                (executor == null ? defaultExecutor : executor).execute(task);
+            }
+
+            @Override
+            public void shutdown() {
+                for (Executor executor : executors.values()) {
+                    shutdownExecutor(executor);
+                }
+                shutdownExecutor(defaultExecutor);
+            }
+
+            @Override
+            public String toString() {
+                return "Dispatcher[perPath" + executors.keySet() + "]";
+            }
+        };
+    }
+
+    /**
+     * 工作窃取（work-stealing）的{@code ForkJoinPool}，以 FIFO 模式执行调用任务；适合大量短小的调用。
+     *
+     * @param parallelism 并行度。
+     *
+     * @return Dispatcher.
+     */
+    public static Dispatcher forkJoin(int parallelism) {
+        return executor(new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true), true);
+    }
+
+    /**
+     * 每个调用由一个新的虚拟线程（virtual thread）执行，业务方法中的阻塞操作仅挂起虚拟线程；
+     * 运行的 JDK 不支持虚拟线程时使用指定的备选分派策略。
+     *
+     * @param fallback 不支持虚拟线程时的备选分派策略。
+     *
+     * @return Dispatcher.
+     *
+     * @see #isVirtualThreadSupported()
+     */
+    public static Dispatcher virtualThread(Dispatcher fallback) {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        if (executor == null) {
+            log.warn("Virtual thread is not supported in current JVM, use dispatcher : {}", fallback);
+            return fallback;
+        }
+        return executor(executor, true);
+    }
+
+    /**
+     * 运行的 JDK 是否支持虚拟线程。
+     *
+     * @return 是否支持虚拟线程。
+     */
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的{@code ExecutorService}；不支持虚拟线程（或预览特性未启用）时返回 null.
+     *
+     * @return ExecutorService.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException | RuntimeException ex) {
+            log.warn("Can't create virtual thread executor.", ex);
+            return null;
+        }
+    }
+
+    /**
+     * 由指定的{@code Executor}执行调用。
+     *
+     * @param executor {@code Executor}对象。
+     * @param shutdownOnClose 关闭时是否关闭{@code ExecutorService}.
+     *
+     * @return Dispatcher.
+     */
+    public static Dispatcher executor(Executor executor, boolean shutdownOnClose) {
+        return new Dispatcher() {
+            @Override
+            public void dispatch(String path, Runnable task) {
+                executor.execute(task);
+            }
+
+            @Override
+            public void shutdown() {
+                if (shutdownOnClose) {
+                    shutdownExecutor(executor);
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "Dispatcher[" + executor + "]";
+            }
+        };
+    }
+
+    /**
+     * 创建固定线程数、有界队列的线程池，队列已满时抛出{@code RejectedExecutionException}.
+     *
+     * @param name 线程名称前缀。
+     * @param threads 线程数。
+     * @param queueSize 等待队列的长度。
+     *
+     * @return ExecutorService.
+     */
+    public static ExecutorService newThreadPool(String name, int threads, int queueSize) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new NamedThreadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    //shutdown ExecutorService
+    private static void shutdownExecutor(Executor executor) {
+        if (executor instanceof ExecutorService) {
+            ExecutorService es = (ExecutorService) executor;
+            es.shutdown();
+            try {
+                if (!es.awaitTermination(10, TimeUnit.SECONDS)) {
+                    log.warn("Timeout waiting for termination of [{}].", es);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 以名称前缀和序号命名的守护线程。
+     */
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String name;
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
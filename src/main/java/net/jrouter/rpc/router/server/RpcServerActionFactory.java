@@ -18,8 +18,14 @@ package net.jrouter.rpc.router.server;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import jrouter.ActionInvocation;
 import jrouter.annotation.Dynamic;
 import jrouter.annotation.Namespace;
@@ -27,6 +33,7 @@ import jrouter.impl.InvocationProxyException;
 import jrouter.impl.PathActionFactory;
 import net.jrouter.rpc.RpcException;
 import net.jrouter.rpc.annotation.RpcProvider;
+import net.jrouter.rpc.metrics.RpcMetrics;
 import net.jrouter.rpc.protocol.Protocol;
 import net.jrouter.rpc.protocol.RpcProtocol;
 import net.jrouter.rpc.util.Constants;
@@ -34,8 +41,11 @@ import jrouter.util.StringUtil;
 import lombok.extern.slf4j.Slf4j;
 import net.jrouter.rpc.router.RpcActionInvocation;
 import net.jrouter.rpc.router.RpcActionFactory;
+import net.jrouter.rpc.router.impl.PathIdTable;
 import net.jrouter.rpc.router.impl.ProtocolSerialization;
+import net.jrouter.rpc.router.result.StreamResultSender;
 import net.jrouter.rpc.serialize.ObjectSerialization;
+import net.jrouter.rpc.serialize.compress.Compressor;
 import jrouter.support.ActionInvocationDelegate;
 
 /**
@@ -51,6 +61,31 @@ public class RpcServerActionFactory<S> extends PathActionFactory implements RpcA
      */
     private final ProtocolSerialization protocolSerialization;
 
+    /**
+     * 调用的分派策略。
+     */
+    @lombok.Getter
+    private final Dispatcher dispatcher;
+
+    /**
+     * 路径标识至调用路径的映射表，随添加的Action重建。
+     *
+     * @see RpcProtocol#getPathId()
+     */
+    @lombok.Getter
+    private volatile PathIdTable pathIdTable = PathIdTable.EMPTY;
+
+    /**
+     * 调用过程的度量。
+     */
+    @lombok.Getter
+    private final RpcMetrics metrics;
+
+    /**
+     * 发送中的流式返回结果：({@code Session}, 协议 Id):发送器 映射，用于客户端取消流式调用。
+     */
+    private final Map<Map.Entry<S, Long>, StreamResultSender> streams = new ConcurrentHashMap<>();
+
     /**
      * Constructor.
      *
@@ -59,8 +94,13 @@ public class RpcServerActionFactory<S> extends PathActionFactory implements RpcA
     public RpcServerActionFactory(Properties properties) {
         super(properties);
         protocolSerialization = new ProtocolSerialization(properties.objectSerialization, properties.supportedObjectSerializations);
+        protocolSerialization.setCompressor(properties.compressor);
+        protocolSerialization.setCompressionThreshold(properties.compressionThreshold);
+        dispatcher = properties.dispatcher == null ? Dispatchers.inline() : properties.dispatcher;
+        metrics = properties.metrics == null ? RpcMetrics.NONE : properties.metrics;
         if (log.isInfoEnabled()) {
             log.info("Use protocolSerialization : {}", protocolSerialization);
+            log.info("Use dispatcher : {}", dispatcher);
         }
     }
 
@@ -90,6 +130,33 @@ public class RpcServerActionFactory<S> extends PathActionFactory implements RpcA
          */
         private Map<Byte, ObjectSerialization> supportedObjectSerializations = Constants.SUPPORTED_OBJECT_SERIALIZATIONS;
 
+        /**
+         * 调用的分派策略；默认于接收线程直接执行。
+         *
+         * @see Dispatchers
+         */
+        private Dispatcher dispatcher = Dispatchers.inline();
+
+        /**
+         * 调用过程的度量；默认无操作。
+         *
+         * @see net.jrouter.rpc.metrics.DefaultRpcMetrics
+         */
+        private RpcMetrics metrics = RpcMetrics.NONE;
+
+        /**
+         * 协议帧数据的压缩；默认 null 不压缩，需对端支持解压缩。
+         *
+         * @see net.jrouter.rpc.serialize.compress.DeflateCompressor
+         * @see net.jrouter.rpc.serialize.compress.Lz4Compressor
+         */
+        private Compressor compressor = null;
+
+        /**
+         * 压缩协议帧数据的长度阈值（字节）；不大于 0 表示不压缩。
+         */
+        private int compressionThreshold = ProtocolSerialization.DEFAULT_COMPRESSION_THRESHOLD;
+
     }
 
     /**
@@ -106,17 +173,181 @@ public class RpcServerActionFactory<S> extends PathActionFactory implements RpcA
      */
     @Override
     public <T> T onMessage(byte[] messages, S session) throws RpcException {
+        return onMessage(ByteBuffer.wrap(messages), session);
+    }
+
+    /**
+     * 接收{@code ByteBuffer}类型消息；批量帧拆分后依次处理其中的消息，返回 null.
+     *
+     * @see ProtocolSerialization#isBatch(ByteBuffer)
+     */
+    @Override
+    public <T> T onMessage(ByteBuffer messages, S session) throws RpcException {
+        metrics.onReceive(messages.remaining());
+        if (ProtocolSerialization.isBatch(messages)) {
+            for (ByteBuffer frame : ProtocolSerialization.splitBatch(messages)) {
+                onFrame(frame, session);
+            }
+            return null;
+        }
+        return onFrame(messages, session);
+    }
+
+    /**
+     * 处理单个协议帧。
+     */
+    private <T> T onFrame(ByteBuffer messages, S session) throws RpcException {
+        long start = System.nanoTime();
+        int bytes = messages.remaining();
+        //parse in the receiving thread, the buffer may be released after returning
         Protocol<String> protocol = parseRpcProtocol(messages, session);
-        if (protocol != null) {
+        if (protocol instanceof RpcProtocol
+                && ((RpcProtocol) protocol).getStreamType() == ProtocolSerialization.PROTOCOL_TYPE_STREAM_END) {
+            cancelStream(session, protocol.getId());
+            return null;
+        }
+        if (protocol != null && resolvePath(protocol, session)) {
+            long decoded = System.nanoTime();
+            metrics.onDecode(getMetricsPath(protocol), bytes, decoded - start);
             //invoke and pass rpc parameters
             if (log.isDebugEnabled()) {
                 log.debug("Received protocol [{}].", protocol);
             }
-            return invokeAction(protocol, session);
+            if (dispatcher.isInline()) {
+                return execute(protocol, session, start, decoded);
+            }
+            dispatch(protocol, session, start, decoded);
         }
         return null;
     }
 
+    /**
+     * 执行调用并记录度量。
+     *
+     * @param start 开始接收协议帧的时间。
+     * @param decoded 反序列化完成的时间。
+     */
+    private <T> T execute(Protocol<String> protocol, S session, long start, long decoded) throws RpcException {
+        String path = getMetricsPath(protocol);
+        metrics.onDispatch(path, System.nanoTime() - decoded);
+        Throwable cause = null;
+        try {
+            return invokeAction(protocol, session);
+        } catch (RuntimeException | Error e) {
+            cause = e;
+            throw e;
+        } finally {
+            metrics.onComplete(path, System.nanoTime() - start, cause);
+        }
+    }
+
+    /**
+     * 度量使用的调用路径：仅已注册的 Action 路径，否则为 null（未知路径），避免任意路径占用度量记录。
+     */
+    private String getMetricsPath(Protocol<String> protocol) {
+        String path = protocol.getPath();
+        return path != null && getActions().containsKey(path) ? path : null;
+    }
+
+    /**
+     * 开始发送流式返回结果并记录，直至结束或被客户端取消；非{@link Dispatchers#inline()}的分派策略于其线程中继续迭代结果元素。
+     */
+    @Override
+    public void startStream(S session, String path, StreamResultSender sender) {
+        Long id = sender.getId();
+        Map.Entry<S, Long> key = id == null ? null : new AbstractMap.SimpleImmutableEntry<>(session, id);
+        if (key != null) {
+            streams.put(key, sender);
+        }
+        Executor executor = dispatcher.isInline() ? null : (Runnable task) -> dispatcher.dispatch(path, task);
+        sender.start(executor, key == null ? null : () -> streams.remove(key, sender));
+    }
+
+    /**
+     * 客户端取消流式调用（同一协议 Id 的结束帧），停止发送流式返回结果。
+     */
+    private void cancelStream(S session, Long id) {
+        StreamResultSender sender = id == null ? null : streams.remove(new AbstractMap.SimpleImmutableEntry<>(session, id));
+        if (sender != null) {
+            sender.cancel();
+        } else if (log.isDebugEnabled()) {
+            log.debug("No stream result found to cancel for [{}].", id);
+        }
+    }
+
+    /**
+     * 发送中的流式返回结果数。
+     *
+     * @return 发送中的流式返回结果数。
+     */
+    public int getStreamCount() {
+        return streams.size();
+    }
+
+    /**
+     * 未指定调用路径时，根据路径标识查找并设置调用路径。
+     *
+     * @return 是否得到调用路径；否则已交由{@link #handleError}处理。
+     */
+    private boolean resolvePath(Protocol<String> protocol, S session) {
+        if (protocol.getPath() != null || !(protocol instanceof RpcProtocol)) {
+            return true;
+        }
+        RpcProtocol rpcProtocol = (RpcProtocol) protocol;
+        int pathId = rpcProtocol.getPathId();
+        String path = pathIdTable.get(pathId);
+        if (path == null && pathId != 0 && getActions().size() != pathIdTable.getSize()) {
+            //actions added by other means
+            rebuildPathIdTable();
+            path = pathIdTable.get(pathId);
+        }
+        if (path == null) {
+            handleError(protocol, session, new RpcException(pathIdTable.isAmbiguous(pathId)
+                    ? "Ambiguous path id [" + pathId + "], the path is required."
+                    : "No path or path id [" + pathId + "] found."));
+            return false;
+        }
+        rpcProtocol.setPath(path);
+        return true;
+    }
+
+    /**
+     * 添加Action后重建路径标识映射表。
+     */
+    @Override
+    public void addActions(Object obj) {
+        super.addActions(obj);
+        rebuildPathIdTable();
+    }
+
+    /**
+     * 由当前所有Action的路径重建路径标识映射表。
+     */
+    private synchronized void rebuildPathIdTable() {
+        PathIdTable table = new PathIdTable(new ArrayList<>(getActions().keySet()));
+        if (table.getCollisions() > 0) {
+            log.warn("Path id collisions found, the colliding paths must be invoked by path : {}", table);
+        }
+        pathIdTable = table;
+    }
+
+    /**
+     * 由分派策略执行调用；调用被拒绝时交由{@link #handleError}处理。
+     */
+    private void dispatch(Protocol<String> protocol, S session, long start, long decoded) {
+        try {
+            dispatcher.dispatch(protocol.getPath(), () -> {
+                try {
+                    execute(protocol, session, start, decoded);
+                } catch (Throwable t) {
+                    log.error("Exception occured when dispatching rpc messages : " + protocol, t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            handleError(protocol, session, new RpcException("Rejected by dispatcher [" + protocol.getPath() + "].", e));
+        }
+    }
+
     /**
      * 处理调用异常；此异常将不会调用业务方法。
      *
@@ -156,6 +387,19 @@ public class RpcServerActionFactory<S> extends PathActionFactory implements RpcA
         return null;
     }
 
+    /**
+     * 取消发送中的流式返回结果，并关闭分派策略。
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        for (StreamResultSender sender : streams.values()) {
+            sender.cancel();
+        }
+        streams.clear();
+        dispatcher.shutdown();
+    }
+
     @Override
     protected Object invokeResult(ActionInvocation invocation, Object res) {
         return super.invokeResult(invocation, res);
@@ -178,8 +422,8 @@ public class RpcServerActionFactory<S> extends PathActionFactory implements RpcA
                     protocol,
                     (S) params[1],
                     this,
-                    //TODO
-                    new HashMap<>(4));
+                    //lazily created on first access
+                    null);
             invocation = rpcActionInvocation;
         } else {
             log.warn("Check ActionInvocation Parameters not matched : {}", protocol);
@@ -202,7 +446,7 @@ public class RpcServerActionFactory<S> extends PathActionFactory implements RpcA
      *
      * @return {@code Protocol}对象。
      */
-    private Protocol<String> parseRpcProtocol(byte[] messages, S session) {
+    private Protocol<String> parseRpcProtocol(ByteBuffer messages, S session) {
         try {
             return getObjectSerialization().deserialize(messages, RpcProtocol.class);
         } catch (Throwable t) {
@@ -251,8 +495,8 @@ public class RpcServerActionFactory<S> extends PathActionFactory implements RpcA
         @lombok.Setter
         private RpcException rpcException;
 
-        /** Store key-value */
-        private final Map<String, Object> contextMap;
+        /** Store key-value, lazily created */
+        private Map<String, Object> contextMap;
 
         @SuppressWarnings("PMD.ExcessiveParameterList")
         public RpcServerActionInvocation(ActionInvocation<String> invocation, Protocol protocol,
@@ -267,6 +511,9 @@ public class RpcServerActionFactory<S> extends PathActionFactory implements RpcA
 
         @Override
         public Map<String, Object> getContextMap() {
+            if (contextMap == null) {
+                contextMap = new HashMap<>(4);
+            }
             return contextMap;
         }
     }
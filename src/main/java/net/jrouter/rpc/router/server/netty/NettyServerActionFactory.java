@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.server.netty;
+
+import io.netty.channel.Channel;
+import lombok.extern.slf4j.Slf4j;
+import net.jrouter.rpc.RpcException;
+import net.jrouter.rpc.protocol.Protocol;
+import net.jrouter.rpc.router.server.RpcServerActionFactory;
+import net.jrouter.rpc.transport.netty.ProtocolEncoder;
+
+/**
+ * 提供接收 netty TCP 消息，基于{@code String}型路径调用的{@code RpcActionFactory}实现。
+ */
+@Slf4j
+public class NettyServerActionFactory extends RpcServerActionFactory<Channel> {
+
+    /**
+     * Constructor.
+     *
+     * @param properties Properties.
+     */
+    public NettyServerActionFactory(Properties properties) {
+        super(properties);
+    }
+
+    @Override
+    protected void handleError(Protocol<String> protocol, Channel channel, Throwable t) {
+        if (protocol != null) {
+            log.error("Exception occured when handling rpc messages : " + protocol, t);
+            if (t instanceof RpcException) {
+                protocol.setResult(t);
+            } else {
+                protocol.setResult(new RpcException(t));
+            }
+            channel.writeAndFlush(ProtocolEncoder.encode(channel.alloc(), getObjectSerialization(), protocol));
+        }
+    }
+
+}
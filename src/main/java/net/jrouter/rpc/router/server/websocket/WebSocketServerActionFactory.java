@@ -20,6 +20,7 @@ import javax.websocket.Session;
 import net.jrouter.rpc.RpcException;
 import net.jrouter.rpc.protocol.Protocol;
 import net.jrouter.rpc.router.server.RpcServerActionFactory;
+import net.jrouter.rpc.transport.http.websocket.WebSocketSender;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -47,7 +48,7 @@ public class WebSocketServerActionFactory extends RpcServerActionFactory<Session
             } else {
                 protocol.setResult(new RpcException(t));
             }
-            session.getAsyncRemote().sendBinary(getObjectSerialization().serializeByteBuffer(protocol));
+            WebSocketSender.get(session).send(getObjectSerialization().serializeByteBuffer(protocol), null);
         }
     }
 
@@ -18,9 +18,13 @@ package net.jrouter.rpc.serialize;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import net.jrouter.rpc.exception.SerializationException;
+import net.jrouter.rpc.util.ByteBufferInputStream;
 
 /**
  * Java Native Serialization.
@@ -33,14 +37,22 @@ public class JavaSerialization implements ObjectSerialization {
             return null;
         }
         ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+        serialize(obj, baos);
+        return baos.toByteArray();
+    }
+
+    @Override
+    public void serialize(Object obj, OutputStream out) {
+        if (obj == null) {
+            return;
+        }
         try {
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            ObjectOutputStream oos = new ObjectOutputStream(out);
             oos.writeObject(obj);
             oos.flush();
         } catch (Exception ex) {
             throw new SerializationException("Failed to serialize object of type: " + obj.getClass(), ex);
         }
-        return baos.toByteArray();
     }
 
     @Override
@@ -48,8 +60,24 @@ public class JavaSerialization implements ObjectSerialization {
         if (bytes == null) {
             return null;
         }
+        return deserialize(new ByteArrayInputStream(bytes), clz);
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuffer buffer, Class<T> clz) {
+        if (buffer == null) {
+            return null;
+        }
+        return deserialize(new ByteBufferInputStream(buffer.duplicate()), clz);
+    }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> clz) {
+        if (in == null) {
+            return null;
+        }
         try {
-            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            ObjectInputStream ois = new ObjectInputStream(in);
             return (T) ois.readObject();
         } catch (ClassNotFoundException ex) {
             throw new SerializationException("Failed to deserialize object type", ex);
@@ -16,6 +16,13 @@
  */
 package net.jrouter.rpc.serialize;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import net.jrouter.rpc.exception.SerializationException;
+
 /**
  * Basic interface serialization and deserialization of Objects to byte arrays (binary data). It is recommended that
  * implementations are designed to handle null objects/empty arrays on serialization and deserialization side.
@@ -31,6 +38,25 @@ public interface ObjectSerialization {
      */
     byte[] serialize(Object t);
 
+    /**
+     * Serialize the given object and write the binary data into the given {@code OutputStream}. The default
+     * implementation delegates to {@link #serialize(java.lang.Object)}; implementations should override it to write
+     * directly into the stream without an intermediate array.
+     *
+     * @param t object to serialize
+     * @param out the target stream, not closed by this method
+     */
+    default void serialize(Object t, OutputStream out) {
+        byte[] data = serialize(t);
+        if (data != null) {
+            try {
+                out.write(data);
+            } catch (IOException ex) {
+                throw new SerializationException("Failed to write serialized data of type: " + t.getClass(), ex);
+            }
+        }
+    }
+
     /**
      * Deserialize an object from the given binary data.
      *
@@ -42,6 +68,59 @@ public interface ObjectSerialization {
      */
     <T> T deserialize(byte[] bytes, Class<T> clz);
 
+    /**
+     * Deserialize an object from the remaining binary data (position to limit) of the given {@code ByteBuffer}, the
+     * buffer's position is not changed. The default implementation passes the backing array directly if it exactly
+     * covers the remaining data, otherwise copies the data into a new array; implementations should override it to
+     * read the buffer as a view without an intermediate array.
+     *
+     * @param <T> Object class type
+     * @param buffer object binary representation
+     * @param clz specified class type
+     *
+     * @return the equivalent object instance
+     */
+    default <T> T deserialize(ByteBuffer buffer, Class<T> clz) {
+        if (buffer == null) {
+            return null;
+        }
+        if (buffer.hasArray() && buffer.arrayOffset() + buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return deserialize(buffer.array(), clz);
+        }
+        byte[] data = new byte[buffer.remaining()];
+        buffer.duplicate().get(data);
+        return deserialize(data, clz);
+    }
+
+    /**
+     * Deserialize an object from the given {@code InputStream}, the stream is not closed by this method. The default
+     * implementation reads the whole stream into an array and delegates to {@link #deserialize(byte[], Class)};
+     * implementations should override it to read the stream directly.
+     *
+     * @param <T> Object class type
+     * @param in object binary representation
+     * @param clz specified class type
+     *
+     * @return the equivalent object instance
+     */
+    default <T> T deserialize(InputStream in, Class<T> clz) {
+        if (in == null) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        byte[] buf = new byte[1024];
+        int n;
+        try {
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+        } catch (IOException ex) {
+            throw new SerializationException("Failed to read serialized data of type: " + clz, ex);
+        }
+        return deserialize(out.toByteArray(), clz);
+    }
+
     /**
      * Serialization type.
      *
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.serialize.compress;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 协议帧数据的压缩/解压缩接口；实现类需线程安全。
+ *
+ * @see net.jrouter.rpc.router.impl.ProtocolSerialization#setCompressor(Compressor)
+ */
+public interface Compressor {
+
+    /**
+     * 压缩指定的数据。
+     *
+     * @param data 原始数据（position 至 limit），不改变其 position.
+     *
+     * @return 压缩后的数据（position 0, limit 数据长度）。
+     */
+    ByteBuffer compress(ByteBuffer data);
+
+    /**
+     * 解压缩指定的数据。
+     *
+     * @param data 压缩后的数据（position 至 limit），不改变其 position.
+     * @param originalLength 原始数据长度。
+     *
+     * @return 原始数据（position 0, limit 原始数据长度）。
+     */
+    ByteBuffer decompress(ByteBuffer data, int originalLength);
+
+    /**
+     * 压缩类型，写入协议头；取值范围 [1, 7].
+     *
+     * @return 压缩类型。
+     */
+    byte getType();
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.serialize.compress;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import net.jrouter.rpc.exception.SerializationException;
+
+/**
+ * Deflate 压缩（JDK 内置），压缩率优先；{@code Deflater/Inflater}按线程复用。
+ */
+public class DeflateCompressor implements Compressor {
+
+    /**
+     * 压缩级别。
+     */
+    private final int level;
+
+    /**
+     * 线程复用的{@code Deflater}.
+     */
+    private final ThreadLocal<Deflater> deflaters;
+
+    /**
+     * 线程复用的{@code Inflater}.
+     */
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+    /**
+     * 使用默认压缩级别。
+     */
+    public DeflateCompressor() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param level 压缩级别（0-9）。
+     */
+    public DeflateCompressor(int level) {
+        this.level = level;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level));
+    }
+
+    @Override
+    public ByteBuffer compress(ByteBuffer data) {
+        Deflater deflater = deflaters.get();
+        try {
+            ByteBuffer src = heap(data);
+            deflater.setInput(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            deflater.finish();
+            byte[] out = new byte[Math.max(64, src.remaining() / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return ByteBuffer.wrap(out, 0, length).slice();
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    @Override
+    public ByteBuffer decompress(ByteBuffer data, int originalLength) {
+        Inflater inflater = inflaters.get();
+        try {
+            ByteBuffer src = heap(data);
+            inflater.setInput(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            byte[] out = new byte[originalLength];
+            int length = 0;
+            while (length < originalLength && !inflater.finished()) {
+                int n = inflater.inflate(out, length, originalLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != originalLength || !inflater.finished()) {
+                throw new SerializationException("Deflate decompress Error, expected length [" + originalLength + "], actual [" + length + "]");
+            }
+            return ByteBuffer.wrap(out);
+        } catch (DataFormatException e) {
+            throw new SerializationException("Deflate decompress Error", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    /**
+     * 返回基于数组的数据，直接缓冲区复制为数组。
+     */
+    private static ByteBuffer heap(ByteBuffer data) {
+        if (data.hasArray()) {
+            return data;
+        }
+        ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+        copy.put(data.duplicate());
+        copy.flip();
+        return copy;
+    }
+
+    @Override
+    public byte getType() {
+        return 1;
+    }
+
+    @Override
+    public String toString() {
+        return "DeflateCompressor{" + "level=" + level + '}';
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.serialize.compress;
+
+import java.nio.ByteBuffer;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import net.jrouter.rpc.exception.SerializationException;
+
+/**
+ * LZ4 压缩（需引入 lz4-java），速度优先。
+ */
+public class Lz4Compressor implements Compressor {
+
+    /**
+     * 压缩器。
+     */
+    private final LZ4Compressor compressor;
+
+    /**
+     * 解压缩器；解压缩来自网络的数据，使用校验输入边界的 safe 实现。
+     */
+    private final LZ4SafeDecompressor decompressor;
+
+    /**
+     * Constructor.
+     */
+    public Lz4Compressor() {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.safeDecompressor();
+    }
+
+    @Override
+    public ByteBuffer compress(ByteBuffer data) {
+        int length = data.remaining();
+        ByteBuffer out = ByteBuffer.allocate(compressor.maxCompressedLength(length));
+        int compressed = compressor.compress(data, data.position(), length, out, 0, out.capacity());
+        out.limit(compressed);
+        return out;
+    }
+
+    @Override
+    public ByteBuffer decompress(ByteBuffer data, int originalLength) {
+        ByteBuffer out = ByteBuffer.allocate(originalLength);
+        try {
+            int length = decompressor.decompress(data, data.position(), data.remaining(), out, 0, originalLength);
+            if (length != originalLength) {
+                throw new SerializationException("LZ4 decompress Error, expected length [" + originalLength + "], actual [" + length + "]");
+            }
+        } catch (LZ4Exception e) {
+            throw new SerializationException("LZ4 decompress Error", e);
+        }
+        return out;
+    }
+
+    @Override
+    public byte getType() {
+        return 2;
+    }
+
+    @Override
+    public String toString() {
+        return "Lz4Compressor{" + compressor + '}';
+    }
+}
@@ -20,6 +20,9 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.parser.ParserConfig;
 import com.alibaba.fastjson.serializer.SerializerFeature;
 import com.alibaba.fastjson.support.config.FastJsonConfig;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import net.jrouter.rpc.exception.SerializationException;
 import net.jrouter.rpc.serialize.ObjectSerialization;
 
 /**
@@ -55,6 +58,20 @@ public class FastJsonSerialization implements ObjectSerialization {
                 JSON.DEFAULT_GENERATE_FEATURE, fastJsonConfig.getSerializerFeatures());
     }
 
+    @Override
+    public void serialize(Object obj, OutputStream out) {
+        if (obj == null) {
+            return;
+        }
+        try {
+            JSON.writeJSONString(out, fastJsonConfig.getCharset(), obj, fastJsonConfig.getSerializeConfig(),
+                    fastJsonConfig.getSerializeFilters(), null, JSON.DEFAULT_GENERATE_FEATURE,
+                    fastJsonConfig.getSerializerFeatures());
+        } catch (Exception ex) {
+            throw new SerializationException("Failed to serialize object of type: " + obj.getClass(), ex);
+        }
+    }
+
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clz) {
         if (bytes == null) {
@@ -64,6 +81,18 @@ public class FastJsonSerialization implements ObjectSerialization {
                 fastJsonConfig.getFeatures());
     }
 
+    @Override
+    public <T> T deserialize(ByteBuffer buffer, Class<T> clz) {
+        if (buffer == null) {
+            return null;
+        }
+        //parsing with ParserConfig requires a String, decode the buffer view directly
+        String text = buffer.hasArray()
+                ? new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), fastJsonConfig.getCharset())
+                : fastJsonConfig.getCharset().decode(buffer.duplicate()).toString();
+        return JSON.parseObject(text, clz, fastJsonConfig.getParserConfig(), fastJsonConfig.getFeatures());
+    }
+
     @Override
     public byte getType() {
         return 4;
@@ -16,8 +16,14 @@
  */
 package net.jrouter.rpc.serialize.fst;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import net.jrouter.rpc.exception.SerializationException;
 import net.jrouter.rpc.serialize.ObjectSerialization;
+import net.jrouter.rpc.util.ByteBufferInputStream;
 import org.nustaq.serialization.FSTConfiguration;
+import org.nustaq.serialization.FSTObjectOutput;
 
 /**
  * FSTSerialization.
@@ -40,6 +46,21 @@ public class FSTSerialization implements ObjectSerialization {
         return FST_CONFIGURATION.get().asByteArray(obj);
     }
 
+    @Override
+    public void serialize(Object obj, OutputStream out) {
+        if (obj == null) {
+            return;
+        }
+        //reused per configuration, flush but not close
+        FSTObjectOutput output = FST_CONFIGURATION.get().getObjectOutput(out);
+        try {
+            output.writeObject(obj);
+            output.flush();
+        } catch (Exception ex) {
+            throw new SerializationException("Failed to serialize object of type: " + obj.getClass(), ex);
+        }
+    }
+
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clz) {
         if (bytes == null) {
@@ -48,6 +69,26 @@ public class FSTSerialization implements ObjectSerialization {
         return (T) FST_CONFIGURATION.get().asObject(bytes);
     }
 
+    @Override
+    public <T> T deserialize(ByteBuffer buffer, Class<T> clz) {
+        if (buffer == null) {
+            return null;
+        }
+        return deserialize(new ByteBufferInputStream(buffer.duplicate()), clz);
+    }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> clz) {
+        if (in == null) {
+            return null;
+        }
+        try {
+            return (T) FST_CONFIGURATION.get().getObjectInput(in).readObject();
+        } catch (Exception ex) {
+            throw new SerializationException("Failed to deserialize object of type: " + clz, ex);
+        }
+    }
+
     @Override
     public byte getType() {
         return 5;
@@ -20,9 +20,13 @@ import com.caucho.hessian.io.Hessian2Input;
 import com.caucho.hessian.io.Hessian2Output;
 import com.caucho.hessian.io.SerializerFactory;
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import net.jrouter.rpc.exception.SerializationException;
 import net.jrouter.rpc.serialize.ObjectSerialization;
+import net.jrouter.rpc.util.ByteBufferInputStream;
 
 /**
  * Use Hessian for serialization and deserialization.
@@ -38,18 +42,25 @@ public class HessianSerialization implements ObjectSerialization {
             return null;
         }
         ByteArrayOutputStream bOut = new ByteArrayOutputStream(128);
-        Hessian2Output output = new Hessian2Output(bOut);
+        serialize(obj, bOut);
+        return bOut.toByteArray();
+    }
+
+    @Override
+    public void serialize(Object obj, OutputStream out) {
+        if (obj == null) {
+            return;
+        }
+        Hessian2Output output = new Hessian2Output(out);
         if (serializerFactory != null) {
             output.setSerializerFactory(serializerFactory);
         }
         try {
             output.writeObject(obj);
-            output.close();
+            output.flush();
         } catch (Exception ex) {
             throw new SerializationException("Failed to serialize object of type: " + obj.getClass(), ex);
         }
-
-        return bOut.toByteArray();
     }
 
     @Override
@@ -57,8 +68,23 @@ public class HessianSerialization implements ObjectSerialization {
         if (bytes == null || bytes.length == 0) {
             return null;
         }
-        ByteArrayInputStream bIn = new ByteArrayInputStream(bytes);
-        Hessian2Input input = new Hessian2Input(bIn);
+        return deserialize(new ByteArrayInputStream(bytes), clz);
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuffer buffer, Class<T> clz) {
+        if (buffer == null || !buffer.hasRemaining()) {
+            return null;
+        }
+        return deserialize(new ByteBufferInputStream(buffer.duplicate()), clz);
+    }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> clz) {
+        if (in == null) {
+            return null;
+        }
+        Hessian2Input input = new Hessian2Input(in);
         if (serializerFactory != null) {
             input.setSerializerFactory(serializerFactory);
         }
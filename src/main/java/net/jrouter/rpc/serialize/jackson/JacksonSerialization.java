@@ -17,12 +17,17 @@
 package net.jrouter.rpc.serialize.jackson;
 
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import net.jrouter.rpc.exception.SerializationException;
 import net.jrouter.rpc.serialize.ObjectSerialization;
+import net.jrouter.rpc.util.ByteBufferInputStream;
 
 /**
  * JacksonSerialization.
@@ -53,6 +58,20 @@ public class JacksonSerialization implements ObjectSerialization {
         }
     }
 
+    @Override
+    public void serialize(Object obj, OutputStream out) {
+        if (obj == null) {
+            return;
+        }
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            //keep the target stream open
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            objectMapper.writeValue(generator, obj);
+        } catch (Exception ex) {
+            throw new SerializationException("Could not write JSON: " + ex.getMessage(), ex);
+        }
+    }
+
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clz) {
         if (bytes == null || bytes.length == 0) {
@@ -65,6 +84,33 @@ public class JacksonSerialization implements ObjectSerialization {
         }
     }
 
+    @Override
+    public <T> T deserialize(ByteBuffer buffer, Class<T> clz) {
+        if (buffer == null || !buffer.hasRemaining()) {
+            return null;
+        }
+        if (!buffer.hasArray()) {
+            return deserialize(new ByteBufferInputStream(buffer.duplicate()), clz);
+        }
+        try {
+            return objectMapper.readValue(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), clz);
+        } catch (Exception ex) {
+            throw new SerializationException("Could not read JSON: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> clz) {
+        if (in == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(in, clz);
+        } catch (Exception ex) {
+            throw new SerializationException("Could not read JSON: " + ex.getMessage(), ex);
+        }
+    }
+
     @Override
     public byte getType() {
         return 2;
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.serialize.kryo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.jrouter.rpc.protocol.RpcProtocol;
+
+/**
+ * {@link KryoSerialization}的配置：类注册（固定 ID）及引用追踪。客户端与服务端应使用相同的配置（可共享同一{@code KryoSerialization}对象），
+ * 注册后的类在序列化数据中以 ID 代替完整类名。配置在各线程首次创建{@code Kryo}对象时读取，应在使用前完成配置。
+ */
+@lombok.Getter
+@lombok.Setter
+public class KryoConfiguration {
+
+    /**
+     * 协议相关类注册的起始 ID（Kryo 默认已注册的基本类型占用 0-9）。
+     */
+    public static final int PROTOCOL_REGISTRATION_ID_START = 64;
+
+    /**
+     * 是否启用引用追踪；若传输的对象中不存在循环及共享引用，可关闭以减少序列化开销，默认启用。
+     */
+    private boolean references = true;
+
+    /**
+     * 是否要求所有类均需注册，默认不要求（未注册的类写入完整类名）。
+     */
+    private boolean registrationRequired = false;
+
+    /**
+     * 注册的类及其 ID（按注册顺序）。
+     */
+    private Map<Class<?>, Integer> registrations = new LinkedHashMap<>();
+
+    /**
+     * 注册类及其固定 ID。
+     *
+     * @param type 类型。
+     * @param id 注册 ID。
+     *
+     * @return 此配置对象。
+     */
+    public KryoConfiguration register(Class<?> type, int id) {
+        registrations.put(type, id);
+        return this;
+    }
+
+    /**
+     * 以{@link #PROTOCOL_REGISTRATION_ID_START}起始的固定 ID 注册{@link RpcProtocol}及其常用的参数/结果容器类。
+     *
+     * @return 此配置对象。
+     */
+    public KryoConfiguration registerProtocolClasses() {
+        int id = PROTOCOL_REGISTRATION_ID_START;
+        register(RpcProtocol.class, id++);
+        register(Object[].class, id++);
+        register(ArrayList.class, id++);
+        register(Arrays.asList().getClass(), id++);
+        register(HashMap.class, id++);
+        register(LinkedHashMap.class, id++);
+        register(Date.class, id++);
+        return this;
+    }
+}
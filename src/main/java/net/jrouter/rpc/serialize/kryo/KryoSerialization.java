@@ -17,32 +17,83 @@
 package net.jrouter.rpc.serialize.kryo;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.CollectionSerializer;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
+import java.util.Map;
 import net.jrouter.rpc.serialize.ObjectSerialization;
 
 /**
- * Kryo Serialization.
+ * Kryo Serialization. 每个线程复用{@code Kryo}及其{@code Output/Input}对象。
+ *
+ * @see KryoConfiguration
  */
 public class KryoSerialization implements ObjectSerialization {
 
+    /** 复用{@code Output}的初始长度 */
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    /** 复用{@code Output}保留的最大长度，超出后释放以免长期占用大数组 */
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+    /** 读取{@code InputStream}的缓冲长度 */
+    private static final int STREAM_BUFFER_SIZE = 4096;
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private static final ByteBuffer EMPTY_BYTE_BUFFER = ByteBuffer.wrap(EMPTY_BYTES);
+
+    /**
+     * Kryo configuration.
+     */
+    @lombok.Getter
+    private final KryoConfiguration configuration;
+
     // Setup ThreadLocal of Kryo instances
-    private static final ThreadLocal<Kryo> KRYO = new ThreadLocal<Kryo>() {
-        @Override
-        protected Kryo initialValue() {
-            Kryo kryo = new Kryo();
-            kryo.addDefaultSerializer(Arrays.asList().getClass(), ArraysArrayListSerializer.class);
-            kryo.addDefaultSerializer(Collections.unmodifiableList(Collections.EMPTY_LIST).getClass(), ArraysArrayListSerializer.class);
-            kryo.addDefaultSerializer(Collections.unmodifiableList(new LinkedList()).getClass(), ArraysArrayListSerializer.class);
-            return kryo;
+    private final ThreadLocal<KryoContext> kryoContext = ThreadLocal.withInitial(() -> new KryoContext(createKryo()));
+
+    /**
+     * Constructor with default configuration.
+     */
+    public KryoSerialization() {
+        this(new KryoConfiguration());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param configuration Kryo configuration.
+     */
+    public KryoSerialization(KryoConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * 根据配置创建{@code Kryo}对象。
+     *
+     * @return {@code Kryo}对象。
+     */
+    protected Kryo createKryo() {
+        Kryo kryo = new Kryo();
+        kryo.addDefaultSerializer(Arrays.asList().getClass(), ArraysArrayListSerializer.class);
+        kryo.addDefaultSerializer(Collections.unmodifiableList(Collections.EMPTY_LIST).getClass(), ArraysArrayListSerializer.class);
+        kryo.addDefaultSerializer(Collections.unmodifiableList(new LinkedList()).getClass(), ArraysArrayListSerializer.class);
+        kryo.setReferences(configuration.isReferences());
+        kryo.setRegistrationRequired(configuration.isRegistrationRequired());
+        for (Map.Entry<Class<?>, Integer> e : configuration.getRegistrations().entrySet()) {
+            kryo.register(e.getKey(), e.getValue());
         }
-    };
+        return kryo;
+    }
 
     /**
      * Serializer for {@code Arrays#ArrayList}.
@@ -61,15 +112,68 @@ public class KryoSerialization implements ObjectSerialization {
 
     }
 
+    /**
+     * 线程内的{@code Kryo}及可复用的{@code Output/Input}对象。
+     */
+    private static final class KryoContext {
+
+        private final Kryo kryo;
+
+        /** unlimited max buffer size */
+        private final Output output = new Output(INITIAL_BUFFER_SIZE, -1);
+
+        private final Input arrayInput = new Input();
+
+        private final Input streamInput = new Input(STREAM_BUFFER_SIZE);
+
+        private final ByteBufferInput byteBufferInput = new ByteBufferInput();
+
+        private KryoContext(Kryo kryo) {
+            this.kryo = kryo;
+        }
+
+        /**
+         * 释放{@code Output}持有的引用及过大的数组。
+         */
+        private void releaseOutput() {
+            output.setOutputStream(null);
+            if (output.getBuffer().length > MAX_POOLED_BUFFER_SIZE) {
+                output.setBuffer(new byte[INITIAL_BUFFER_SIZE], -1);
+            }
+        }
+    }
+
     @Override
     public byte[] serialize(Object obj) {
         if (obj == null) {
             return null;
         }
-        Output output = new Output(1024, 1024 * 1024);
-        KRYO.get().writeClassAndObject(output, obj);
-        return output.getBuffer();
+        KryoContext context = kryoContext.get();
+        Output output = context.output;
+        try {
+            output.clear();
+            context.kryo.writeClassAndObject(output, obj);
+            //exact length
+            return output.toBytes();
+        } finally {
+            context.releaseOutput();
+        }
+    }
 
+    @Override
+    public void serialize(Object obj, OutputStream out) {
+        if (obj == null) {
+            return;
+        }
+        KryoContext context = kryoContext.get();
+        Output output = context.output;
+        try {
+            output.setOutputStream(out);
+            context.kryo.writeClassAndObject(output, obj);
+            output.flush();
+        } finally {
+            context.releaseOutput();
+        }
     }
 
     @Override
@@ -77,14 +181,61 @@ public class KryoSerialization implements ObjectSerialization {
         if (bytes == null) {
             return null;
         }
-        return (T) KRYO.get().readClassAndObject(new Input(bytes));
+        return deserialize(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public <T> T deserialize(ByteBuffer buffer, Class<T> clz) {
+        if (buffer == null) {
+            return null;
+        }
+        if (buffer.hasArray()) {
+            return deserialize(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        KryoContext context = kryoContext.get();
+        ByteBufferInput input = context.byteBufferInput;
+        try {
+            input.setBuffer(buffer.duplicate());
+            return (T) context.kryo.readClassAndObject(input);
+        } finally {
+            input.setBuffer(EMPTY_BYTE_BUFFER);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> clz) {
+        if (in == null) {
+            return null;
+        }
+        KryoContext context = kryoContext.get();
+        Input input = context.streamInput;
+        try {
+            input.setInputStream(in);
+            return (T) context.kryo.readClassAndObject(input);
+        } finally {
+            input.setInputStream(null);
+        }
+    }
+
+    /**
+     * Deserialize an object from the given array range.
+     */
+    private <T> T deserialize(byte[] bytes, int offset, int length) {
+        KryoContext context = kryoContext.get();
+        Input input = context.arrayInput;
+        try {
+            input.setBuffer(bytes, offset, length);
+            return (T) context.kryo.readClassAndObject(input);
+        } finally {
+            input.setBuffer(EMPTY_BYTES);
+        }
     }
 
     /**
-     * Remove ThreadLocal kryo.
+     * Remove ThreadLocal kryo of current thread.
      */
-    public static void remove() {
-        KRYO.remove();
+    public void remove() {
+        kryoContext.remove();
     }
 
     @Override
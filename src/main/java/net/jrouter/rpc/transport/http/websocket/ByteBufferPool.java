@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.transport.http.websocket;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按 2 的幂容量分级复用的{@code ByteBuffer}池，用于分片消息的重组缓冲。
+ *
+ * 申请的容量向上取整至 2 的幂（不小于最小容量）；超过最大容量的缓冲直接分配且不回收。
+ * 池中保留的缓冲总字节数不超过{@link #getMaxPooledBytes()}，超出部分归还时直接丢弃。
+ */
+public final class ByteBufferPool {
+
+    /**
+     * 默认的缓冲池：最小 4KB，最大 16MB，最多保留 64MB.
+     */
+    public static final ByteBufferPool DEFAULT = new ByteBufferPool(4 * 1024, 16 * 1024 * 1024, 64L * 1024 * 1024);
+
+    /** 最小容量的位移 */
+    private final int minShift;
+
+    /** 最小容量 */
+    @lombok.Getter
+    private final int minCapacity;
+
+    /** 可回收的最大容量 */
+    @lombok.Getter
+    private final int maxCapacity;
+
+    /** 池中保留的最大总字节数 */
+    @lombok.Getter
+    private final long maxPooledBytes;
+
+    /** 各容量级别的缓冲 */
+    private final Queue<ByteBuffer>[] pools;
+
+    /** 池中保留的总字节数 */
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param minCapacity 最小容量，向上取整至 2 的幂。
+     * @param maxCapacity 可回收的最大容量，向上取整至 2 的幂。
+     * @param maxPooledBytes 池中保留的最大总字节数。
+     */
+    @SuppressWarnings("unchecked")
+    public ByteBufferPool(int minCapacity, int maxCapacity, long maxPooledBytes) {
+        if (minCapacity <= 0 || maxCapacity < minCapacity || maxCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("Illegal capacity : " + minCapacity + ", " + maxCapacity);
+        }
+        this.minCapacity = roundUp(minCapacity);
+        this.maxCapacity = roundUp(maxCapacity);
+        this.minShift = Integer.numberOfTrailingZeros(this.minCapacity);
+        this.maxPooledBytes = maxPooledBytes;
+        this.pools = new Queue[Integer.numberOfTrailingZeros(this.maxCapacity) - minShift + 1];
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * 获取容量不小于指定值的缓冲，已清空（position 为 0，limit 为容量）。
+     *
+     * @param capacity 所需容量。
+     *
+     * @return {@code ByteBuffer}对象。
+     */
+    public ByteBuffer acquire(int capacity) {
+        if (capacity > maxCapacity) {
+            return ByteBuffer.allocate(capacity);
+        }
+        int size = Math.max(minCapacity, roundUp(capacity));
+        ByteBuffer buffer = pools[index(size)].poll();
+        if (buffer == null) {
+            return ByteBuffer.allocate(size);
+        }
+        pooledBytes.addAndGet(-size);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲；非本池分配的容量或超出保留总字节数时丢弃。
+     *
+     * @param buffer {@code ByteBuffer}对象，可为 null.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.isDirect() || buffer.isReadOnly()) {
+            return;
+        }
+        int size = buffer.capacity();
+        if (size < minCapacity || size > maxCapacity || Integer.bitCount(size) != 1) {
+            return;
+        }
+        if (pooledBytes.addAndGet(size) > maxPooledBytes) {
+            pooledBytes.addAndGet(-size);
+            return;
+        }
+        pools[index(size)].offer(buffer);
+    }
+
+    /**
+     * 池中保留的总字节数。
+     *
+     * @return 池中保留的总字节数。
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    //index of power of two size
+    private int index(int size) {
+        return Integer.numberOfTrailingZeros(size) - minShift;
+    }
+
+    //round up to power of two
+    private static int roundUp(int capacity) {
+        int highest = Integer.highestOneBit(capacity);
+        return highest == capacity ? capacity : highest << 1;
+    }
+}
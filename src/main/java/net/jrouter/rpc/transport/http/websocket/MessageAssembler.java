@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.transport.http.websocket;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+import net.jrouter.rpc.RpcException;
+
+/**
+ * 分片消息的重组：同一连接的分片依次追加至{@link ByteBufferPool}的缓冲，收到最后一个分片后回调完整的消息并归还缓冲。
+ *
+ * 未分片的消息（首个分片即为最后一个分片）直接回调而无需复制。回调的{@code ByteBuffer}仅在回调期间有效，
+ * 接收方需在回调内完成解析（{@link net.jrouter.rpc.router.RpcActionFactory#onMessage(ByteBuffer, Object)}）。
+ * 同一连接的分片由容器依次传递；连接关闭时可由其他线程调用{@link #release()}.
+ */
+public final class MessageAssembler {
+
+    /** 缓冲池 */
+    private final ByteBufferPool pool;
+
+    /** 消息的最大长度 */
+    @lombok.Getter
+    private final int maxMessageBytes;
+
+    /** 重组中的消息 */
+    private ByteBuffer buffer;
+
+    /** 是否已收到消息的非最后分片 */
+    private boolean assembling;
+
+    /** 是否丢弃超出最大长度的消息的剩余分片 */
+    private boolean discarding;
+
+    /**
+     * Constructor.
+     *
+     * @param pool 缓冲池。
+     * @param maxMessageBytes 消息的最大长度。
+     */
+    public MessageAssembler(ByteBufferPool pool, int maxMessageBytes) {
+        this.pool = pool;
+        this.maxMessageBytes = maxMessageBytes;
+    }
+
+    /**
+     * 接收消息分片，收到最后一个分片后回调完整的消息。
+     *
+     * @param fragment 消息分片，可为 null（空分片）。
+     * @param last 是否为消息的最后一个分片。
+     * @param handler 完整消息的回调。
+     *
+     * @throws RpcException 如果消息超出最大长度，其剩余分片将被丢弃。
+     */
+    public synchronized void onFragment(ByteBuffer fragment, boolean last, Consumer<ByteBuffer> handler) throws RpcException {
+        int length = fragment == null ? 0 : fragment.remaining();
+        if (discarding) {
+            if (last) {
+                discarding = false;
+            }
+            return;
+        }
+        if (!assembling) {
+            if (last) {
+                handler.accept(fragment == null ? ByteBuffer.allocate(0) : fragment);
+                return;
+            }
+            assembling = true;
+        }
+        int size = (buffer == null ? 0 : buffer.position()) + length;
+        if (size > maxMessageBytes || size < 0) {
+            release();
+            discarding = !last;
+            throw new RpcException("Message exceeds the max length : " + maxMessageBytes);
+        }
+        if (length > 0) {
+            if (buffer == null) {
+                buffer = pool.acquire(length);
+            } else if (buffer.remaining() < length) {
+                //at least double the capacity (up to the max length) even beyond the pooled capacity, avoid copying per fragment
+                ByteBuffer grown = pool.acquire((int) Math.max(size, Math.min(2L * buffer.capacity(), maxMessageBytes)));
+                buffer.flip();
+                grown.put(buffer);
+                pool.release(buffer);
+                buffer = grown;
+            }
+            buffer.put(fragment);
+        }
+        if (last) {
+            ByteBuffer message = buffer == null ? ByteBuffer.allocate(0) : buffer;
+            message.flip();
+            try {
+                handler.accept(message);
+            } finally {
+                release();
+            }
+        }
+    }
+
+    /**
+     * 是否已收到消息的非最后分片而未收到最后分片。
+     *
+     * @return 是否正在重组消息。
+     */
+    public synchronized boolean isAssembling() {
+        return assembling || discarding;
+    }
+
+    /**
+     * 丢弃重组中的消息并归还缓冲，用于连接关闭时。
+     */
+    public synchronized void release() {
+        ByteBuffer b = buffer;
+        buffer = null;
+        assembling = false;
+        pool.release(b);
+    }
+}
@@ -16,9 +16,9 @@
  */
 package net.jrouter.rpc.transport.http.websocket;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import javax.websocket.ClientEndpoint;
 import javax.websocket.CloseReason;
 import javax.websocket.EndpointConfig;
@@ -34,16 +34,38 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * Sample WebSocketEndpoint.
+ *
+ * 接收分片的二进制消息，由每个{@code Session}的{@link MessageAssembler}重组至{@link ByteBufferPool}的缓冲；
+ * 容器的{@code maxBinaryMessageBufferSize}仅限制单个分片的长度，消息的最大长度由{@link #maxMessageBytes}限制。
  */
 @ClientEndpoint
 @ServerEndpoint("/")
 @Slf4j
 public abstract class WebSocketEndpoint {
 
+    /**
+     * {@code Session} user properties key.
+     */
+    private static final String ASSEMBLER_KEY = MessageAssembler.class.getName();
+
     @lombok.Getter
     @lombok.Setter
     private RpcActionFactory<Session> rpcActionFactory;
 
+    /**
+     * 重组的消息的最大长度，默认 64MB.
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private int maxMessageBytes = 64 * 1024 * 1024;
+
+    /**
+     * 重组消息的缓冲池。
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private ByteBufferPool bufferPool = ByteBufferPool.DEFAULT;
+
     @OnOpen
     public void onOpen(Session session, EndpointConfig config) throws IOException {
         log.info("Session [{}] on open.", session.getId());
@@ -53,26 +75,55 @@ public abstract class WebSocketEndpoint {
      * @see javax.websocket.OnMessage
      */
     @OnMessage
-    public void onBinaryMessage(Session session, byte[] messages, boolean isLast) {
-        log.info("Receiving BinaryMessage {} : {}, last : {}", session.getId(), messages.length, isLast);
-        getRpcActionFactory().onMessage(messages, session);
+    public void onBinaryMessage(Session session, ByteBuffer messages, boolean isLast) {
+        if (log.isDebugEnabled()) {
+            log.debug("Receiving BinaryMessage {} : {}, last : {}", session.getId(), messages.remaining(), isLast);
+        }
+        getMessageAssembler(session).onFragment(messages, isLast,
+                (ByteBuffer message) -> getRpcActionFactory().onMessage(message, session));
     }
 
 //    @OnMessage
     public void onStreamMessage(Session session, InputStream input) throws IOException {
         log.info("Receiving StreamMessage {} : {}", session.getId(), input.available());
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        byte[] bytes = new byte[1024];
-        int n;
-        while (-1 != (n = input.read(bytes))) {
-            output.write(bytes, 0, n);
+        MessageAssembler assembler = getMessageAssembler(session);
+        ByteBuffer chunk = bufferPool.acquire(bufferPool.getMinCapacity());
+        try {
+            int n;
+            while (-1 != (n = input.read(chunk.array(), chunk.arrayOffset(), chunk.capacity()))) {
+                chunk.limit(n);
+                assembler.onFragment(chunk, false, null);
+                chunk.clear();
+            }
+        } finally {
+            bufferPool.release(chunk);
+        }
+        assembler.onFragment(null, true, (ByteBuffer message) -> getRpcActionFactory().onMessage(message, session));
+    }
+
+    /**
+     * 获取{@code Session}的消息重组对象，不存在则创建。
+     *
+     * @param session {@code Session}对象。
+     *
+     * @return 消息重组对象。
+     */
+    protected MessageAssembler getMessageAssembler(Session session) {
+        Object assembler = session.getUserProperties().get(ASSEMBLER_KEY);
+        if (assembler == null) {
+            assembler = new MessageAssembler(bufferPool, maxMessageBytes);
+            session.getUserProperties().put(ASSEMBLER_KEY, assembler);
         }
-        getRpcActionFactory().onMessage(output.toByteArray(), session);
+        return (MessageAssembler) assembler;
     }
 
     @OnClose
     public void onClose(Session session, CloseReason closeReason) {
         log.info("Session [{}] on close for [{}].", session.getId(), closeReason);
+        Object assembler = session.getUserProperties().remove(ASSEMBLER_KEY);
+        if (assembler != null) {
+            ((MessageAssembler) assembler).release();
+        }
     }
 
     @OnError
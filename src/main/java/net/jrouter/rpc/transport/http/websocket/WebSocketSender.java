@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.transport.http.websocket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+import net.jrouter.rpc.router.impl.ProtocolSerialization;
+
+/**
+ * {@code Session}的发送队列：同一{@code Session}的异步发送需在前一消息发送完成后进行，消息依次异步发送。
+ *
+ * 设置批量字节数{@link #maxBatchBytes}后，前一消息发送期间加入队列的多个帧将合并为一个批量帧
+ * （{@link ProtocolSerialization#serializeBatch}）发送，合并后的数据长度不超过此值；接收端需支持批量帧。
+ * 批量字节数应不大于接收端 WebSocket 容器的最大消息长度。
+ *
+ * 设置分片字节数{@link #fragmentBytes}后，超过此长度的消息以多个分片（{@code RemoteEndpoint.Basic#sendBinary(ByteBuffer, boolean)}）
+ * 依次发送，接收端需支持分片消息的重组（{@link MessageAssembler}）。{@code RemoteEndpoint.Async}不支持分片发送，
+ * 分片消息交由{@link #fragmentExecutor}的工作线程阻塞发送（不占用调用线程及容器的 I/O 线程），发送完成后由该线程继续发送队列中的后续消息。
+ */
+@Slf4j
+public final class WebSocketSender {
+
+    /**
+     * {@code Session} user properties key.
+     */
+    private static final String SENDER_KEY = WebSocketSender.class.getName();
+
+    /** Session */
+    private final Session session;
+
+    /** 待发送的消息 */
+    private final Queue<Message> queue = new ConcurrentLinkedQueue<>();
+
+    /** 是否正在发送 */
+    private final AtomicBoolean sending = new AtomicBoolean(false);
+
+    /**
+     * 批量帧的最大数据长度（不含批量帧协议头）；不大于 0 表示不合并发送。
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private volatile int maxBatchBytes = 0;
+
+    /**
+     * 分片发送的单个分片的最大长度；不大于 0 表示不分片发送。
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private volatile int fragmentBytes = 0;
+
+    /**
+     * 分片消息的发送线程池；默认为共享的 daemon 线程池。
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private volatile Executor fragmentExecutor = FragmentExecutorHolder.EXECUTOR;
+
+    /**
+     * Constructor.
+     */
+    private WebSocketSender(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * 获取{@code Session}的发送队列，不存在则创建。
+     *
+     * @param session {@code Session}对象。
+     *
+     * @return {@code Session}的发送队列。
+     */
+    public static WebSocketSender get(Session session) {
+        synchronized (session) {
+            Object sender = session.getUserProperties().get(SENDER_KEY);
+            if (sender == null) {
+                sender = new WebSocketSender(session);
+                session.getUserProperties().put(SENDER_KEY, sender);
+            }
+            return (WebSocketSender) sender;
+        }
+    }
+
+    /**
+     * 获取{@code Session}的发送队列，并设置批量字节数。
+     *
+     * @param session {@code Session}对象。
+     * @param maxBatchBytes 批量帧的最大数据长度。
+     *
+     * @return {@code Session}的发送队列。
+     */
+    public static WebSocketSender get(Session session, int maxBatchBytes) {
+        WebSocketSender sender = get(session);
+        if (sender.maxBatchBytes != maxBatchBytes) {
+            sender.maxBatchBytes = maxBatchBytes;
+        }
+        return sender;
+    }
+
+    /**
+     * 获取{@code Session}的发送队列，并设置批量字节数及分片字节数。
+     *
+     * @param session {@code Session}对象。
+     * @param maxBatchBytes 批量帧的最大数据长度。
+     * @param fragmentBytes 单个分片的最大长度。
+     *
+     * @return {@code Session}的发送队列。
+     */
+    public static WebSocketSender get(Session session, int maxBatchBytes, int fragmentBytes) {
+        WebSocketSender sender = get(session, maxBatchBytes);
+        if (sender.fragmentBytes != fragmentBytes) {
+            sender.fragmentBytes = fragmentBytes;
+        }
+        return sender;
+    }
+
+    /**
+     * 加入发送队列，当前无发送中的消息时立即发送。
+     *
+     * @param frame 完整的协议帧。
+     * @param handler 发送完成的回调，可为 null.
+     */
+    public void send(ByteBuffer frame, SendHandler handler) {
+        queue.offer(new Message(frame, handler));
+        if (sending.compareAndSet(false, true)) {
+            sendNext();
+        }
+    }
+
+    //send next message(s) or release sending flag
+    private void sendNext() {
+        for (;;) {
+            Message msg = queue.poll();
+            if (msg == null) {
+                sending.set(false);
+                //offered after poll and before release
+                if (queue.isEmpty() || !sending.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            List<Message> batch = null;
+            ByteBuffer data = msg.data;
+            int budget = maxBatchBytes;
+            if (budget > 0 && msg.data.remaining() < budget && queue.peek() != null) {
+                int size = msg.data.remaining();
+                Message next;
+                while ((next = queue.peek()) != null && size + next.data.remaining() <= budget) {
+                    if (batch == null) {
+                        batch = new ArrayList<>();
+                        batch.add(msg);
+                    }
+                    //single consumer
+                    batch.add(queue.poll());
+                    size += next.data.remaining();
+                }
+                if (batch != null) {
+                    List<ByteBuffer> frames = new ArrayList<>(batch.size());
+                    for (Message m : batch) {
+                        frames.add(m.data);
+                    }
+                    data = ProtocolSerialization.serializeBatch(frames);
+                }
+            }
+            final List<Message> sent = batch;
+            int fragment = fragmentBytes;
+            if (fragment > 0 && data.remaining() > fragment) {
+                final ByteBuffer fragments = data;
+                try {
+                    //blocking partial sends must not run on the container I/O thread (e.g. inside a SendHandler)
+                    fragmentExecutor.execute(() -> {
+                        SendResult result;
+                        try {
+                            sendFragments(fragments, fragment);
+                            result = new SendResult();
+                        } catch (IOException | RuntimeException ex) {
+                            result = new SendResult(ex);
+                        }
+                        complete(msg, sent, result);
+                        //still holding the sending flag
+                        sendNext();
+                    });
+                    return;
+                } catch (RejectedExecutionException ex) {
+                    complete(msg, sent, new SendResult(ex));
+                    continue;
+                }
+            }
+            //0: sending, 1: completed before sendBinary returns, 2: sendBinary returned
+            final AtomicInteger state = new AtomicInteger();
+            try {
+                session.getAsyncRemote().sendBinary(data, (SendResult result) -> {
+                    complete(msg, sent, result);
+                    //continue in the loop if completed inline, avoid recursion
+                    if (!state.compareAndSet(0, 1)) {
+                        sendNext();
+                    }
+                });
+                if (state.compareAndSet(0, 2)) {
+                    return;
+                }
+            } catch (RuntimeException ex) {
+                complete(msg, sent, new SendResult(ex));
+            }
+        }
+    }
+
+    //send blocking partial messages, each fragment is an independent view (the container may still hold it)
+    private void sendFragments(ByteBuffer data, int fragment) throws IOException {
+        RemoteEndpoint.Basic remote = session.getBasicRemote();
+        ByteBuffer remaining = data.duplicate();
+        while (remaining.remaining() > fragment) {
+            ByteBuffer partial = remaining.slice();
+            partial.limit(fragment);
+            remote.sendBinary(partial, false);
+            remaining.position(remaining.position() + fragment);
+        }
+        remote.sendBinary(remaining.slice(), true);
+    }
+
+    //complete single message or batch messages
+    private static void complete(Message msg, List<Message> batch, SendResult result) {
+        if (batch == null) {
+            msg.complete(result);
+        } else {
+            for (Message m : batch) {
+                m.complete(result);
+            }
+        }
+    }
+
+    /**
+     * 默认的分片消息发送线程池。
+     */
+    private static final class FragmentExecutorHolder {
+
+        /** 线程序号 */
+        private static final AtomicInteger THREAD_NUMBER = new AtomicInteger(1);
+
+        /** 共享的 daemon 线程池 */
+        private static final Executor EXECUTOR = Executors.newCachedThreadPool((Runnable r) -> {
+            Thread t = new Thread(r, "websocket-fragment-sender-" + THREAD_NUMBER.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 待发送的消息。
+     */
+    private static final class Message {
+
+        /** 完整的协议帧 */
+        private final ByteBuffer data;
+
+        /** 发送完成的回调，可为 null */
+        private final SendHandler handler;
+
+        Message(ByteBuffer data, SendHandler handler) {
+            this.data = data;
+            this.handler = handler;
+        }
+
+        void complete(SendResult result) {
+            if (handler != null) {
+                try {
+                    handler.onResult(result);
+                } catch (RuntimeException ex) {
+                    log.error("Exception occured when calling SendHandler.", ex);
+                }
+            } else if (!result.isOK()) {
+                log.error("Exception occured when sending WebSocket binary.", result.getException());
+            }
+        }
+    }
+}
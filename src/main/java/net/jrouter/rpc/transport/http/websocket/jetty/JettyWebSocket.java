@@ -16,17 +16,25 @@
  */
 package net.jrouter.rpc.transport.http.websocket.jetty;
 
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import net.jrouter.rpc.router.RpcActionFactory;
 import lombok.extern.slf4j.Slf4j;
+import net.jrouter.rpc.transport.http.websocket.ByteBufferPool;
+import net.jrouter.rpc.transport.http.websocket.MessageAssembler;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
-import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketFrame;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
 
 /**
- * TODO.
+ * 按帧接收二进制消息，分片消息由每个{@code Session}的{@link MessageAssembler}重组至{@link ByteBufferPool}的缓冲。
+ *
+ * {@code maxBinaryMessageSize}仅限制单个帧的长度，消息的最大长度由{@link #maxMessageBytes}限制。
  */
 @Slf4j
 @WebSocket(maxBinaryMessageSize = 1024 * 1024)
@@ -36,6 +44,23 @@ public abstract class JettyWebSocket {
     @lombok.Setter
     private RpcActionFactory<Session> rpcActionFactory;
 
+    /**
+     * 重组的消息的最大长度，默认 64MB.
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private int maxMessageBytes = 64 * 1024 * 1024;
+
+    /**
+     * 重组消息的缓冲池。
+     */
+    @lombok.Getter
+    @lombok.Setter
+    private ByteBufferPool bufferPool = ByteBufferPool.DEFAULT;
+
+    /** 各{@code Session}的消息重组对象 */
+    private final Map<Session, MessageAssembler> assemblers = new ConcurrentHashMap<>();
+
     @OnWebSocketConnect
     public void onConnect(Session session) {
         log.info("Session [{}] on connect.", session);
@@ -44,12 +69,36 @@ public abstract class JettyWebSocket {
     @OnWebSocketClose
     public void onClose(Session session, int statusCode, String reason) {
         log.info("Session [{}] on close for [{}].", session, statusCode + ":" + reason);
+        MessageAssembler assembler = assemblers.remove(session);
+        if (assembler != null) {
+            assembler.release();
+        }
     }
 
-    @OnWebSocketMessage
-    public void onMessage(Session session, byte[] messages, int offset, int length) {
-        log.info("Receiving BinaryMessage {} : {}, last : {}", session, messages.length, length);
-        getRpcActionFactory().onMessage(messages, session);
+    /**
+     * 接收二进制消息的数据帧（首帧及其后续帧），忽略文本消息及控制帧。
+     */
+    @OnWebSocketFrame
+    public void onFrame(Session session, Frame frame) {
+        Frame.Type type = frame.getType();
+        MessageAssembler assembler;
+        if (type == Frame.Type.BINARY) {
+            assembler = assemblers.computeIfAbsent(session, s -> new MessageAssembler(bufferPool, maxMessageBytes));
+        } else if (type == Frame.Type.CONTINUATION) {
+            assembler = assemblers.get(session);
+            //continuation of text message
+            if (assembler == null || !assembler.isAssembling()) {
+                return;
+            }
+        } else {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Receiving BinaryFrame {} : {}, fin : {}", session, frame.getPayloadLength(), frame.isFin());
+        }
+        //the payload is only valid in this method
+        ByteBuffer payload = frame.hasPayload() ? frame.getPayload().slice() : null;
+        assembler.onFragment(payload, frame.isFin(), (ByteBuffer message) -> getRpcActionFactory().onMessage(message, session));
     }
 
     @OnWebSocketError
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.transport.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import lombok.extern.slf4j.Slf4j;
+import net.jrouter.rpc.router.RpcActionFactory;
+
+/**
+ * 接收{@link ProtocolFrameDecoder}拆分后的完整帧，交由{@link RpcActionFactory}处理。
+ */
+@ChannelHandler.Sharable
+@Slf4j
+public class NettyChannelHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+    @lombok.Getter
+    @lombok.Setter
+    private RpcActionFactory<Channel> rpcActionFactory;
+
+    /**
+     * Constructor.
+     */
+    public NettyChannelHandler() {
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param rpcActionFactory RpcActionFactory object.
+     */
+    public NettyChannelHandler(RpcActionFactory<Channel> rpcActionFactory) {
+        this.rpcActionFactory = rpcActionFactory;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        log.info("Channel [{}] on active.", ctx.channel());
+        super.channelActive(ctx);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
+        if (log.isDebugEnabled()) {
+            log.debug("Receiving frame {} : {}", ctx.channel(), msg.readableBytes());
+        }
+        //view of the frame, released after this method returns
+        getRpcActionFactory().onMessage(msg.nioBuffer(), ctx.channel());
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        log.info("Channel [{}] on inactive.", ctx.channel());
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        log.error("Channel [{}] on error.", ctx.channel(), cause);
+    }
+}
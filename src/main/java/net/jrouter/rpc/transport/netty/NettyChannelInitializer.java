@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.transport.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.handler.flush.FlushConsolidationHandler;
+
+/**
+ * 初始化 RPC 的{@code ChannelPipeline}：{@link ProtocolFrameDecoder} -&gt; {@link NettyChannelHandler}；
+ * 可选在首位添加{@code FlushConsolidationHandler}，合并短时间内多个消息的 flush（系统调用）。
+ */
+public class NettyChannelInitializer extends ChannelInitializer<Channel> {
+
+    /** 共享的 NettyChannelHandler */
+    private final NettyChannelHandler channelHandler;
+
+    /** 最大的帧长度 */
+    private final int maxFrameLength;
+
+    /** 合并 flush 的最大次数，不大于 0 表示不合并 */
+    private final int explicitFlushAfterFlushes;
+
+    /**
+     * Constructor.
+     *
+     * @param channelHandler NettyChannelHandler object.
+     */
+    public NettyChannelInitializer(NettyChannelHandler channelHandler) {
+        this(channelHandler, ProtocolFrameDecoder.DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param channelHandler NettyChannelHandler object.
+     * @param maxFrameLength 最大的帧长度（包含协议头）。
+     */
+    public NettyChannelInitializer(NettyChannelHandler channelHandler, int maxFrameLength) {
+        this(channelHandler, maxFrameLength, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param channelHandler NettyChannelHandler object.
+     * @param maxFrameLength 最大的帧长度（包含协议头）。
+     * @param explicitFlushAfterFlushes 合并 flush 的最大次数（达到此次数时 flush），不大于 0 表示不合并。
+     *
+     * @see FlushConsolidationHandler
+     */
+    public NettyChannelInitializer(NettyChannelHandler channelHandler, int maxFrameLength, int explicitFlushAfterFlushes) {
+        this.channelHandler = channelHandler;
+        this.maxFrameLength = maxFrameLength;
+        this.explicitFlushAfterFlushes = explicitFlushAfterFlushes;
+    }
+
+    @Override
+    protected void initChannel(Channel ch) throws Exception {
+        if (explicitFlushAfterFlushes > 0) {
+            //consolidate flushes of writes outside of read too (client and async results)
+            ch.pipeline().addLast(new FlushConsolidationHandler(explicitFlushAfterFlushes, true));
+        }
+        ch.pipeline()
+                .addLast(new ProtocolFrameDecoder(maxFrameLength))
+                .addLast(channelHandler);
+    }
+}
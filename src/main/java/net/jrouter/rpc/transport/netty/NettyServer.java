@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.transport.netty;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import java.net.InetSocketAddress;
+import lombok.extern.slf4j.Slf4j;
+import net.jrouter.rpc.router.RpcActionFactory;
+
+/**
+ * 基于 netty 的 TCP 服务端，接收的消息交由{@link RpcActionFactory}处理。
+ */
+@Slf4j
+public class NettyServer {
+
+    /** 监听端口；0 表示随机端口 */
+    private final int port;
+
+    /** RpcActionFactory */
+    private final RpcActionFactory<Channel> rpcActionFactory;
+
+    /** 最大的帧长度 */
+    @lombok.Setter
+    private int maxFrameLength = ProtocolFrameDecoder.DEFAULT_MAX_FRAME_LENGTH;
+
+    /** 工作线程数；0 表示 netty 默认值 */
+    @lombok.Setter
+    private int workerThreads = 0;
+
+    private EventLoopGroup bossGroup;
+
+    private EventLoopGroup workerGroup;
+
+    private Channel serverChannel;
+
+    /**
+     * Constructor.
+     *
+     * @param port 监听端口。
+     * @param rpcActionFactory RpcActionFactory object.
+     */
+    public NettyServer(int port, RpcActionFactory<Channel> rpcActionFactory) {
+        this.port = port;
+        this.rpcActionFactory = rpcActionFactory;
+    }
+
+    /**
+     * 启动服务端并绑定端口。
+     *
+     * @throws InterruptedException if interrupted.
+     */
+    public void start() throws InterruptedException {
+        bossGroup = new NioEventLoopGroup(1);
+        workerGroup = new NioEventLoopGroup(workerThreads);
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childHandler(new NettyChannelInitializer(new NettyChannelHandler(rpcActionFactory), maxFrameLength));
+        serverChannel = bootstrap.bind(port).sync().channel();
+        log.info("Netty server started at [{}].", serverChannel.localAddress());
+    }
+
+    /**
+     * 返回实际监听的端口。
+     *
+     * @return 实际监听的端口。
+     */
+    public int getPort() {
+        return serverChannel == null ? port : ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    /**
+     * 关闭服务端。
+     */
+    public void stop() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully();
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully();
+        }
+        log.info("Netty server stopped.");
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.transport.netty;
+
+import java.nio.ByteBuffer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import net.jrouter.rpc.protocol.Protocol;
+import net.jrouter.rpc.router.impl.ProtocolSerialization;
+import net.jrouter.rpc.serialize.ObjectSerialization;
+
+/**
+ * 将{@code Protocol}直接编码至{@code ByteBufAllocator}分配的（池化）{@code ByteBuf}：预留协议头，数据直接写入，再回填协议头，
+ * 无中间数组及复制。编码在调用线程中完成，不占用 I/O 线程。
+ * 启用压缩且数据达到压缩阈值时，返回压缩后的协议帧。
+ *
+ * @see ProtocolSerialization#serializeData(Protocol, java.io.OutputStream)
+ * @see ProtocolSerialization#writeHeader(Protocol, int, java.nio.ByteBuffer)
+ */
+public final class ProtocolEncoder {
+
+    private ProtocolEncoder() {
+    }
+
+    /**
+     * 编码{@code Protocol}对象。
+     *
+     * @param allocator {@code ByteBufAllocator}对象。
+     * @param serialization {@code ProtocolSerialization}对象。
+     * @param protocol {@code Protocol}对象。
+     *
+     * @return 完整协议帧的{@code ByteBuf}对象，由调用者（通常为{@code writeAndFlush}）负责释放。
+     */
+    public static ByteBuf encode(ByteBufAllocator allocator, ProtocolSerialization serialization, Protocol<?> protocol) {
+        ByteBuf buf = allocator.ioBuffer();
+        boolean success = false;
+        try {
+            int start = buf.writerIndex();
+            //reserve header
+            buf.writeZero(ProtocolSerialization.PROTOCAL_HEADER_SIZE);
+            serialization.serializeData(protocol, new ByteBufOutputStream(buf));
+            int dataLength = buf.writerIndex() - start - ProtocolSerialization.PROTOCAL_HEADER_SIZE;
+            if (serialization.getCompressor() != null) {
+                ByteBuffer frame = serialization.compressFrame(protocol,
+                        buf.nioBuffer(start + ProtocolSerialization.PROTOCAL_HEADER_SIZE, dataLength));
+                if (frame != null) {
+                    //the uncompressed buf is released in finally
+                    return Unpooled.wrappedBuffer(frame);
+                }
+            }
+            serialization.writeHeader(protocol, dataLength, buf.nioBuffer(start, ProtocolSerialization.PROTOCAL_HEADER_SIZE));
+            success = true;
+            return buf;
+        } finally {
+            if (!success) {
+                buf.release();
+            }
+        }
+    }
+
+    /**
+     * 编码{@code Protocol}对象，非{@code ProtocolSerialization}时退化为包装其序列化后的数组。
+     *
+     * @param allocator {@code ByteBufAllocator}对象。
+     * @param serialization {@code ObjectSerialization}对象。
+     * @param protocol {@code Protocol}对象。
+     *
+     * @return 完整协议帧的{@code ByteBuf}对象。
+     */
+    public static ByteBuf encode(ByteBufAllocator allocator, ObjectSerialization serialization, Protocol<?> protocol) {
+        if (serialization instanceof ProtocolSerialization) {
+            return encode(allocator, (ProtocolSerialization) serialization, protocol);
+        }
+        return Unpooled.wrappedBuffer(serialization.serialize(protocol));
+    }
+}
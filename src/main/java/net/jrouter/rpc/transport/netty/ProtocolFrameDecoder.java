@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.transport.netty;
+
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import net.jrouter.rpc.router.impl.ProtocolSerialization;
+
+/**
+ * 根据{@link ProtocolSerialization}的协议头中的数据长度拆分 TCP 字节流，每个{@code ByteBuf}包含完整的协议头和数据。
+ *
+ * @see ProtocolSerialization#PROTOCAL_HEADER_SIZE
+ */
+public class ProtocolFrameDecoder extends LengthFieldBasedFrameDecoder {
+
+    /**
+     * Default max frame length (16M).
+     */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * Data length field offset of the protocol header.
+     */
+    private static final int LENGTH_FIELD_OFFSET = 12;
+
+    /**
+     * Data length field length of the protocol header.
+     */
+    private static final int LENGTH_FIELD_LENGTH = 4;
+
+    /**
+     * Constructor.
+     */
+    public ProtocolFrameDecoder() {
+        this(DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxFrameLength 最大的帧长度（包含协议头）。
+     */
+    public ProtocolFrameDecoder(int maxFrameLength) {
+        super(maxFrameLength, LENGTH_FIELD_OFFSET, LENGTH_FIELD_LENGTH);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.util;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 可自动扩容的{@code OutputStream}，可预留指定长度的头部并以{@code ByteBuffer}的方式直接返回底层数组（无复制）。
+ * 非线程安全。
+ */
+public class ByteBufferOutputStream extends OutputStream {
+
+    /** 数组的最大长度 */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /** 底层数组 */
+    private byte[] buf;
+
+    /** 已写入的长度 */
+    private int count;
+
+    /**
+     * Constructor.
+     *
+     * @param initialSize 初始长度。
+     */
+    public ByteBufferOutputStream(int initialSize) {
+        if (initialSize < 0) {
+            throw new IllegalArgumentException("Negative initial size: " + initialSize);
+        }
+        this.buf = new byte[initialSize];
+    }
+
+    /**
+     * 跳过（预留）指定长度的字节，预留部分可在之后通过返回的{@code ByteBuffer}回填。
+     *
+     * @param length 预留的长度。
+     */
+    public void skip(int length) {
+        ensureCapacity(count + length);
+        count += length;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if ((off < 0) || (len < 0) || (off > b.length) || (off + len > b.length)) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * 已写入的长度。
+     *
+     * @return 已写入的长度。
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 返回包装底层数组的{@code ByteBuffer}（position 0, limit 为已写入的长度），不复制数据。
+     *
+     * @return {@code ByteBuffer}对象。
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buf, 0, count);
+    }
+
+    /**
+     * 扩容。
+     */
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity < 0) {
+            throw new OutOfMemoryError();
+        }
+        if (minCapacity > buf.length) {
+            int newCapacity = buf.length << 1;
+            if (newCapacity < minCapacity) {
+                newCapacity = minCapacity;
+            }
+            if (newCapacity < 0 || newCapacity > MAX_ARRAY_SIZE) {
+                newCapacity = Math.max(minCapacity, MAX_ARRAY_SIZE);
+            }
+            buf = Arrays.copyOf(buf, newCapacity);
+        }
+    }
+}
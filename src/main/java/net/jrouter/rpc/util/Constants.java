@@ -16,12 +16,15 @@
  */
 package net.jrouter.rpc.util;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.ServiceLoader;
 import net.jrouter.rpc.serialize.JavaSerialization;
 import net.jrouter.rpc.serialize.hessian.HessianSerialization;
 import net.jrouter.rpc.serialize.ObjectSerialization;
+import net.jrouter.rpc.serialize.compress.Compressor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -84,4 +87,42 @@ public final class Constants {
             }
         });
     }
+
+    /**
+     * Supported Compressors.
+     */
+    public static final Map<Byte, Compressor> SUPPORTED_COMPRESSORS = new HashMap<>(4);
+
+    static {
+        Iterator<Compressor> it = ServiceLoader.load(Compressor.class).iterator();
+        while (it.hasNext()) {
+            Compressor compressor = null;
+            try {
+                compressor = it.next();
+                //validate compressor
+                compressor.decompress(compressor.compress(ByteBuffer.wrap(new byte[]{0})), 1);
+            } catch (Throwable e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Error loading Compressor [" + compressor + "]", e);
+                }
+                //ignore
+                continue;
+            }
+            //skip invalid providers, a failure here would break the class initialization
+            if (compressor.getType() < 1 || compressor.getType() > 7) {
+                log.error("Illegal type [{}] of Compressor [{}], should be in [1, 7], ignored.", compressor.getType(), compressor);
+                continue;
+            }
+            Compressor exist = SUPPORTED_COMPRESSORS.putIfAbsent(compressor.getType(), compressor);
+            if (exist != null) {
+                if (compressor.getClass() != exist.getClass()) {
+                    log.error("Duplicated type [{}] of Compressor [{}] and [{}], ignored.", compressor.getType(), compressor, exist);
+                }
+                continue;
+            }
+            if (log.isInfoEnabled()) {
+                log.info("Loaded Compressor [{} - {}]", compressor.getType(), compressor);
+            }
+        }
+    }
 }
@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 基于时间轮（Hashed Wheel）的定时器，适用于大量短期且多数会被取消的超时任务：添加与取消均为 O(1) 且无锁，
+ * 由单一线程按刻度（tick）检查到期任务，到期精度为一个刻度。
+ *
+ * 新添加及已取消的任务先进入无锁队列，于每个刻度由工作线程转移至对应的槽（bucket）或从槽中移除；
+ * 槽仅由工作线程访问。工作线程于首次添加任务时启动。
+ */
+@Slf4j
+public class HashedWheelTimer {
+
+    /** 每个刻度最多转移的新任务数，避免工作线程长期阻塞于转移 */
+    private static final int MAX_TRANSFER_PER_TICK = 100000;
+
+    /** 状态 */
+    private static final int STATE_INIT = 0, STATE_STARTED = 1, STATE_SHUTDOWN = 2;
+
+    /** 刻度时长（纳秒） */
+    private final long tickDuration;
+
+    /** 时间轮 */
+    private final Bucket[] wheel;
+
+    /** wheel.length - 1 */
+    private final int mask;
+
+    /** 新添加的任务 */
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    /** 已取消的任务 */
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    /** 工作线程 */
+    private final Thread workerThread;
+
+    /** 定时器状态 */
+    private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+    /** 工作线程启动的时间（纳秒），任务的到期时间相对此时间 */
+    private volatile long startTime;
+
+    /** 等待工作线程初始化启动时间 */
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+
+    /**
+     * Constructor.
+     *
+     * @param threadName 工作线程名称。
+     * @param tickDuration 刻度时长。
+     * @param unit 刻度时长单位。
+     * @param ticksPerWheel 时间轮的刻度数（向上取 2 的幂）。
+     */
+    public HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel must be in (0, 2^30]: " + ticksPerWheel);
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickDuration = unit.toNanos(tickDuration);
+        this.workerThread = new Thread(new Worker(), threadName);
+        this.workerThread.setDaemon(true);
+    }
+
+    /**
+     * 添加在指定延迟后执行一次的任务；任务在工作线程中执行，应尽量简短。
+     *
+     * @param task 任务。
+     * @param delay 延迟时间。
+     * @param unit 延迟时间单位。
+     *
+     * @return 可取消的{@code Timeout}对象。
+     *
+     * @throws IllegalStateException 如果定时器已停止。
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        start();
+        long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+        Timeout timeout = new Timeout(task, deadline);
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 启动工作线程（如尚未启动），并等待其初始化启动时间。
+     *
+     * @throws IllegalStateException 如果定时器已停止（包括尚未启动即已停止）。
+     */
+    private void start() {
+        int current = state.get();
+        if (current == STATE_INIT) {
+            if (state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+                workerThread.start();
+                current = STATE_STARTED;
+            } else {
+                //started by another thread or stopped before starting
+                current = state.get();
+            }
+        }
+        if (current != STATE_STARTED) {
+            throw new IllegalStateException("Timer [" + workerThread.getName() + "] has been stopped.");
+        }
+        //the worker thread has been started by the thread won the CAS
+        while (startTime == 0) {
+            try {
+                startTimeInitialized.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for timer to start.", ex);
+            }
+        }
+    }
+
+    /**
+     * 停止定时器，未到期的任务将不再执行。
+     */
+    public void stop() {
+        if (Thread.currentThread() == workerThread) {
+            throw new IllegalStateException("Can't stop timer from its own task.");
+        }
+        if (state.getAndSet(STATE_SHUTDOWN) != STATE_STARTED) {
+            return;
+        }
+        log.info("Shutdown thread [{}].", workerThread.getName());
+        boolean interrupted = false;
+        while (workerThread.isAlive()) {
+            workerThread.interrupt();
+            try {
+                workerThread.join(100);
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 工作线程。
+     */
+    private final class Worker implements Runnable {
+
+        /** 当前刻度 */
+        private long tick;
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            //0 means not initialized
+            startTime = (now == 0 ? 1 : now);
+            startTimeInitialized.countDown();
+            log.info("Start thread [{}].", Thread.currentThread().getName());
+            while (state.get() == STATE_STARTED) {
+                long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    processCancelledTimeouts();
+                    transferTimeoutsToBuckets();
+                    wheel[(int) (tick & mask)].expireTimeouts(deadline);
+                    tick++;
+                }
+            }
+            log.info("Finish thread [{}].", Thread.currentThread().getName());
+        }
+
+        /**
+         * 转移新添加的任务至对应的槽。
+         */
+        private void transferTimeoutsToBuckets() {
+            for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+                Timeout timeout = pendingTimeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state.get() != Timeout.ST_INIT) {
+                    continue;
+                }
+                long calculated = timeout.deadline / tickDuration;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                //already expired, schedule to current tick
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        /**
+         * 从槽中移除已取消的任务。
+         */
+        private void processCancelledTimeouts() {
+            Timeout timeout;
+            while ((timeout = cancelledTimeouts.poll()) != null) {
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                }
+            }
+        }
+
+        /**
+         * 等待至下一刻度。
+         *
+         * @return 当前相对启动的时间（纳秒）；定时器停止时返回负值。
+         */
+        private long waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+            for (;;) {
+                long current = System.nanoTime() - startTime;
+                long sleepMillis = (deadline - current + 999999) / 1000000;
+                if (sleepMillis <= 0) {
+                    return current == Long.MIN_VALUE ? -Long.MAX_VALUE : current;
+                }
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException ex) {
+                    if (state.get() == STATE_SHUTDOWN) {
+                        return Long.MIN_VALUE;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 时间轮的槽：{@code Timeout}的双向链表，仅由工作线程访问。
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        /**
+         * 执行到期的任务，移除已取消的任务。
+         */
+        private void expireTimeouts(long deadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.deadline <= deadline) {
+                        timeout.expire();
+                    }
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    /**
+     * 可取消的定时任务。
+     */
+    public final class Timeout {
+
+        private static final int ST_INIT = 0, ST_CANCELLED = 1, ST_EXPIRED = 2;
+
+        private final Runnable task;
+
+        /** 相对启动时间的到期时间（纳秒） */
+        private final long deadline;
+
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        /** 剩余的轮数，仅由工作线程访问 */
+        private long remainingRounds;
+
+        /** 双向链表，仅由工作线程访问 */
+        private Timeout prev, next;
+
+        /** 所在的槽，仅由工作线程访问 */
+        private Bucket bucket;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消任务。
+         *
+         * @return 是否取消成功（任务未到期且未被取消）。
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        /**
+         * 任务是否已取消。
+         *
+         * @return 是否已取消。
+         */
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        /**
+         * 任务是否已到期（已执行）。
+         *
+         * @return 是否已到期。
+         */
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.warn("Exception occured when running timeout task.", t);
+            }
+        }
+    }
+}
@@ -17,7 +17,9 @@
 package net.jrouter.rpc;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import net.jrouter.rpc.annotation.RpcConsumer;
+import net.jrouter.rpc.annotation.RpcProperties;
 import net.jrouter.rpc.protocol.Protocol;
 import net.jrouter.rpc.router.ResultCallback;
 
@@ -43,11 +45,24 @@ public interface DemoClientInterface {
 
     String echo(String str, ResultCallback callback);
 
+    /**
+     * Async echo {@code String}.
+     */
+    CompletableFuture<String> echoAsync(String str);
+
     boolean checkProtocol(List<Protocol> protocols);
 
     Protocol<String> getProtocol(int number, String str, List<String> list, ResultCallback callback);
 
     String exception(String test, ResultCallback callback);
 
+    CompletableFuture<String> exception(String test);
+
     void sleep(int millis, ResultCallback callback);
+
+    /**
+     * Async sleep with a short callback timeout.
+     */
+    @RpcProperties(callbackTimeoutMillis = 200)
+    CompletableFuture<Void> sleepAsync(int millis);
 }
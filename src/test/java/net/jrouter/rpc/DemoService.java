@@ -42,6 +42,10 @@ public class DemoService {
         return msg;
     }
 
+    public String echoAsync(String msg) {
+        return msg;
+    }
+
     public Protocol<String> getProtocol(int number, String str, List<String> list,
             RpcActionInvocation<Session> invocation) {
         return invocation.getProtocol();
@@ -55,4 +59,8 @@ public class DemoService {
         Thread.sleep(millis);
     }
 
+    public void sleepAsync(int millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.metrics;
+
+import net.jrouter.rpc.metrics.DefaultRpcMetrics.Metric;
+import net.jrouter.rpc.metrics.DefaultRpcMetrics.PathMetrics;
+import net.jrouter.rpc.protocol.Protocol;
+import net.jrouter.rpc.protocol.RpcProtocol;
+import net.jrouter.rpc.router.server.RpcServerActionFactory;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import org.testng.annotations.Test;
+
+/**
+ * DefaultRpcMetricsNGTest.
+ */
+public class DefaultRpcMetricsNGTest {
+
+    /**
+     * Test of hooks, of class DefaultRpcMetrics.
+     */
+    @Test
+    public void testMetrics() {
+        DefaultRpcMetrics metrics = new DefaultRpcMetrics();
+        String path = "/test/echo";
+        metrics.onEncode(path, 100, 1000);
+        metrics.onSend(path, 2000, null);
+        metrics.onSend(path, 3000, new IllegalStateException());
+        metrics.onReceive(120);
+        metrics.onDecode(path, 80, 500);
+        metrics.onComplete(path, 10_000, null);
+        metrics.onComplete(path, 20_000, new IllegalStateException());
+        metrics.onDecode(null, 10, 100);
+
+        PathMetrics pathMetrics = metrics.getPathMetrics(path);
+        assertNotNull(pathMetrics);
+        assertEquals(pathMetrics.getCalls(), 2);
+        assertEquals(pathMetrics.getErrors(), 1);
+        assertEquals(pathMetrics.getSendErrors(), 1);
+        assertEquals(pathMetrics.getBytesOut(), 100);
+        assertEquals(pathMetrics.getBytesIn(), 80);
+        assertEquals(pathMetrics.getHistogram(Metric.SEND_TIME).getCount(), 2);
+        assertEquals(pathMetrics.getHistogram(Metric.COMPLETE_TIME).getMax(), 20_000);
+        assertEquals(pathMetrics.getHistogram(Metric.ENCODE_SIZE).getMax(), 100);
+        //created on first record
+        assertNull(pathMetrics.getHistogram(Metric.EXECUTE_TIME));
+
+        assertEquals(metrics.getReceivedMessages(), 1);
+        assertEquals(metrics.getReceivedBytes(), 120);
+        assertEquals(metrics.getPathMetrics().size(), 2);
+        assertNotNull(metrics.getPathMetrics(DefaultRpcMetrics.UNKNOWN_PATH));
+
+        metrics.reset();
+        assertNull(metrics.getPathMetrics(path));
+        assertEquals(metrics.getReceivedMessages(), 0);
+    }
+
+    /**
+     * Test of max paths, of class DefaultRpcMetrics.
+     */
+    @Test
+    public void testMaxPaths() {
+        DefaultRpcMetrics metrics = new DefaultRpcMetrics();
+        metrics.setMaxPaths(3);
+        for (int i = 0; i < 10; i++) {
+            metrics.onDecode("/random/" + i, 10, 100);
+        }
+        assertEquals(metrics.getPathMetrics().size(), 4);
+        assertEquals(metrics.getPathMetrics(DefaultRpcMetrics.UNKNOWN_PATH).getBytesIn(), 70);
+        //recorded paths
+        metrics.onDecode("/random/0", 10, 100);
+        assertEquals(metrics.getPathMetrics("/random/0").getBytesIn(), 20);
+    }
+
+    /**
+     * Test of unregistered paths received by server.
+     */
+    @Test
+    public void testServerUnknownPaths() {
+        DefaultRpcMetrics metrics = new DefaultRpcMetrics();
+        RpcServerActionFactory.Properties properties = new RpcServerActionFactory.Properties();
+        properties.setMetrics(metrics);
+        RpcServerActionFactory<Object> serverActionFactory = new RpcServerActionFactory<Object>(properties) {
+            @Override
+            protected <T> T invokeAction(Protocol<String> protocol, Object session) {
+                return null;
+            }
+        };
+        for (long i = 1; i <= 10; i++) {
+            RpcProtocol protocol = new RpcProtocol();
+            protocol.setPath("/random/" + i);
+            protocol.setId(i);
+            serverActionFactory.onMessage(serverActionFactory.getObjectSerialization().serialize(protocol), null);
+        }
+        assertEquals(metrics.getPathMetrics().size(), 1);
+        assertEquals(metrics.getPathMetrics(DefaultRpcMetrics.UNKNOWN_PATH).getCalls(), 10);
+        serverActionFactory.clear();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.metrics;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * HistogramNGTest.
+ */
+public class HistogramNGTest {
+
+    /**
+     * Test of bucketIndex method, of class Histogram.
+     */
+    @Test
+    public void testBucketIndex() {
+        //exact values below 32
+        for (int i = 0; i < 32; i++) {
+            assertEquals(Histogram.bucketIndex(i), i);
+            assertEquals(Histogram.highestValue(i), i);
+        }
+        long last = -1;
+        for (long v = 0; v < 1_000_000; v += 7) {
+            int index = Histogram.bucketIndex(v);
+            assertTrue(v <= Histogram.highestValue(index));
+            //relative error within 1/16
+            assertTrue(Histogram.highestValue(index) - v <= v / 16);
+            assertTrue(index >= last);
+            last = index;
+        }
+    }
+
+    /**
+     * Test of getValueAtPercentile method, of class Histogram.
+     */
+    @Test
+    public void testPercentile() {
+        Histogram histogram = new Histogram();
+        assertEquals(histogram.getValueAtPercentile(99), 0);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(histogram.getCount(), 1000);
+        assertEquals(histogram.getMax(), 1_000_000);
+        assertEquals(histogram.getMean(), 500_500.0, 0.1);
+        long p50 = histogram.getValueAtPercentile(50);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 17 / 16, "p50 = " + p50);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "p99 = " + p99);
+        assertEquals(histogram.getValueAtPercentile(100), 1_000_000);
+
+        //out of range
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(histogram.getMax(), Histogram.MAX_VALUE);
+
+        histogram.reset();
+        assertEquals(histogram.getCount(), 0);
+        assertEquals(histogram.getMax(), 0);
+    }
+
+    /**
+     * Test of record method, of class Histogram.
+     */
+    @Test(timeOut = 10000)
+    public void testConcurrentRecord() throws Exception {
+        Histogram histogram = new Histogram();
+        int threads = 4;
+        int records = 100_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < records; i++) {
+                    histogram.record(i);
+                }
+                latch.countDown();
+            });
+        }
+        latch.await();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+        assertEquals(histogram.getCount(), threads * records);
+        assertEquals(histogram.getMax(), records - 1);
+    }
+}
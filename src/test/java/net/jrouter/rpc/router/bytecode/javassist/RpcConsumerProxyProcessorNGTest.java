@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.jrouter.rpc.router.bytecode.javassist;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import javax.websocket.SendHandler;
+import net.jrouter.rpc.RpcException;
+import net.jrouter.rpc.router.ResultCallback;
+import net.jrouter.rpc.router.client.ClientMethod;
+import net.jrouter.rpc.router.client.websocket.WebSocketClientActionFactory;
+import org.testng.SkipException;
+import static org.testng.Assert.*;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * RpcConsumerProxyProcessorNGTest.
+ */
+public class RpcConsumerProxyProcessorNGTest {
+
+    private static final String SOURCE = "package pregen;\n"
+            + "import java.util.concurrent.CompletableFuture;\n"
+            + "import javax.websocket.SendHandler;\n"
+            + "import net.jrouter.rpc.annotation.RpcConsumer;\n"
+            + "import net.jrouter.rpc.router.ResultCallback;\n"
+            + "@RpcConsumer(namespace = \"/pregen\")\n"
+            + "public interface PregenClient extends Comparable<String> {\n"
+            + "    String echo(String msg);\n"
+            + "    CompletableFuture<String> echoAsync(String msg);\n"
+            + "    long sum(int a, long b);\n"
+            + "    void call(String msg, ResultCallback<String> callback);\n"
+            + "    int callFirst(ResultCallback<String> callback, int number, String msg);\n"
+            + "    void callObject(Object obj, ResultCallback<String> callback);\n"
+            + "    void send(String msg, SendHandler handler, ResultCallback<String> callback);\n"
+            + "}\n";
+
+    /** 预生成代理类的输出目录 */
+    private File dir;
+
+    /** 最近一次调用的路径 */
+    private String lastPath;
+
+    /** 最近一次调用的参数 */
+    private Object[] lastParams;
+
+    /** 最近一次调用的回调参数 */
+    private ResultCallback lastCallback;
+
+    /** 最近一次调用是否按参数位置调用 */
+    private boolean lastPositional;
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new SkipException("No system java compiler.");
+        }
+        dir = Files.createTempDirectory("pregen").toFile();
+        JavaFileObject source = new SimpleJavaFileObject(URI.create("string:///pregen/PregenClient.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return SOURCE;
+            }
+        };
+        assertTrue(compiler.getTask(null, null, null, Arrays.asList(
+                "-classpath", System.getProperty("java.class.path"),
+                "-processor", RpcConsumerProxyProcessor.class.getName(),
+                "-d", dir.getAbsolutePath()), null, Arrays.asList(source)).call());
+        assertTrue(new File(dir, "pregen/PregenClient" + JavassistObjectFactory.PREGENERATED_CLASS_SUFFIX + ".class").exists());
+    }
+
+    /**
+     * 创建记录调用参数的{@code WebSocketClientActionFactory}。
+     */
+    private WebSocketClientActionFactory createClientActionFactory() {
+        return new WebSocketClientActionFactory(null, new WebSocketClientActionFactory.Properties()) {
+            @Override
+            public Object invokeMethod(ClientMethod method, ResultCallback callback, Object[] params) throws RpcException {
+                lastPositional = true;
+                return super.invokeMethod(method, callback, params);
+            }
+
+            @Override
+            protected Object invoke(String path, ClientMethod method, Object[] actualParams, ResultCallback callback) throws RpcException {
+                lastPath = path;
+                lastParams = actualParams;
+                lastCallback = callback;
+                return CompletableFuture.completedFuture(actualParams[0]);
+            }
+        };
+    }
+
+    /**
+     * Test of pre-generated proxy class, of class RpcConsumerProxyProcessor.
+     */
+    @Test
+    public void testProcess() throws Exception {
+        WebSocketClientActionFactory clientActionFactory = createClientActionFactory();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, getClass().getClassLoader())) {
+            Class<?> clientClass = loader.loadClass("pregen.PregenClient");
+            Object client = clientActionFactory.getClientObjectFactory().newInstance(clientClass);
+            assertEquals(client.getClass().getName(), "pregen.PregenClient" + JavassistObjectFactory.PREGENERATED_CLASS_SUFFIX);
+            assertEquals(clientActionFactory.getClientObjectFactory().getClass(client), clientClass);
+
+            //sync method returns default value
+            assertNull(clientClass.getMethod("echo", String.class).invoke(client, "hello"));
+            assertTrue(lastPath.endsWith("echo"), lastPath);
+            assertEquals(lastParams, new Object[]{"hello"});
+
+            CompletableFuture<?> future = (CompletableFuture) clientClass.getMethod("echoAsync", String.class).invoke(client, "async");
+            assertEquals(future.get(), "async");
+            assertTrue(lastPath.endsWith("echoAsync"), lastPath);
+
+            assertEquals(clientClass.getMethod("sum", int.class, long.class).invoke(client, 1, 2L), 0L);
+            assertEquals(lastParams, new Object[]{1, 2L});
+
+            ResultCallback<String> callback = f -> null;
+            clientClass.getMethod("call", String.class, ResultCallback.class).invoke(client, "msg", callback);
+            assertEquals(lastParams, new Object[]{"msg"});
+            assertSame(lastCallback, callback);
+
+            //not proxied
+            Method compareTo = clientClass.getMethod("compareTo", Object.class);
+            try {
+                compareTo.invoke(client, "str");
+                fail("Not happen");
+            } catch (InvocationTargetException e) {
+                assertTrue(e.getCause() instanceof AbstractMethodError);
+            }
+        } finally {
+            clientActionFactory.clear();
+        }
+    }
+
+    /**
+     * Test of positional parameters of pre-generated proxy class, of class RpcConsumerProxyProcessor.
+     */
+    @Test
+    public void testProcess_positional() throws Exception {
+        WebSocketClientActionFactory clientActionFactory = createClientActionFactory();
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.toURI().toURL()}, getClass().getClassLoader())) {
+            Class<?> clientClass = loader.loadClass("pregen.PregenClient");
+            Object client = clientActionFactory.getClientObjectFactory().newInstance(clientClass);
+            ResultCallback<String> callback = f -> null;
+
+            //callback by position, not sent as a parameter
+            lastPositional = false;
+            assertEquals(clientClass.getMethod("callFirst", ResultCallback.class, int.class, String.class)
+                    .invoke(client, callback, 1, "msg"), 0);
+            assertTrue(lastPositional);
+            assertTrue(lastPath.endsWith("callFirst"), lastPath);
+            assertEquals(lastParams, new Object[]{1, "msg"});
+            assertSame(lastCallback, callback);
+
+            lastPositional = false;
+            clientClass.getMethod("call", String.class, ResultCallback.class).invoke(client, "msg", null);
+            assertTrue(lastPositional);
+            assertEquals(lastParams, new Object[]{"msg"});
+            assertNull(lastCallback);
+
+            lastPositional = false;
+            clientClass.getMethod("echo", String.class).invoke(client, "hello");
+            assertTrue(lastPositional);
+            assertEquals(lastParams, new Object[]{"hello"});
+
+            //runtime check, may be a callback
+            lastPositional = false;
+            clientClass.getMethod("callObject", Object.class, ResultCallback.class).invoke(client, "obj", callback);
+            assertFalse(lastPositional);
+            assertEquals(lastParams, new Object[]{"obj"});
+            assertSame(lastCallback, callback);
+
+            //runtime check, transport parameter
+            lastPositional = false;
+            SendHandler handler = result -> {
+            };
+            clientClass.getMethod("send", String.class, SendHandler.class, ResultCallback.class).invoke(client, "msg", handler, callback);
+            assertFalse(lastPositional);
+            assertEquals(lastParams, new Object[]{"msg"});
+            assertSame(lastCallback, callback);
+        } finally {
+            clientActionFactory.clear();
+        }
+    }
+}
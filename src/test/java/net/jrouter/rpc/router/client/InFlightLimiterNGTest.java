@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.jrouter.rpc.RpcException;
+import net.jrouter.rpc.protocol.Protocol;
+import net.jrouter.rpc.router.ResultCallback;
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+/**
+ * InFlightLimiterNGTest.
+ */
+public class InFlightLimiterNGTest {
+
+    /**
+     * Test of acquire method with FAIL_FAST policy, of class InFlightLimiter.
+     */
+    @Test
+    public void testAcquire_failFast() {
+        InFlightLimiter<String> limiter = new InFlightLimiter<>(3, 2, InFlightLimiter.Policy.FAIL_FAST, 0, 0);
+        assertTrue(limiter.acquire("s1", null));
+        assertTrue(limiter.acquire("s1", null));
+        //session limit
+        try {
+            limiter.acquire("s1", null);
+            fail("Not happen");
+        } catch (RpcException e) {
+            //expected
+        }
+        assertTrue(limiter.acquire("s2", null));
+        //global limit
+        assertFalse(limiter.tryAcquire("s3"));
+        assertEquals(limiter.getInFlightCount(), 3);
+        assertEquals(limiter.getInFlightCount("s1"), 2);
+        assertEquals(limiter.getInFlightCount("s3"), 0);
+
+        limiter.release("s1");
+        assertEquals(limiter.getInFlightCount("s1"), 1);
+        assertTrue(limiter.acquire("s3", null));
+    }
+
+    /**
+     * Test of acquire method with BLOCK policy, of class InFlightLimiter.
+     */
+    @Test(timeOut = 10000)
+    public void testAcquire_block() throws Exception {
+        InFlightLimiter<String> limiter = new InFlightLimiter<>(1, 0, InFlightLimiter.Policy.BLOCK, 100, 0);
+        assertTrue(limiter.acquire("s1", null));
+        long start = System.nanoTime();
+        try {
+            limiter.acquire("s1", null);
+            fail("Not happen");
+        } catch (RpcException e) {
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        }
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        InFlightLimiter<String> blocking = new InFlightLimiter<>(1, 0, InFlightLimiter.Policy.BLOCK, 5000, 0);
+        blocking.acquire("s1", null);
+        new Thread(() -> {
+            blocking.acquire("s1", null);
+            acquired.countDown();
+        }).start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        blocking.release("s1");
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(blocking.getInFlightCount(), 1);
+    }
+
+    /**
+     * Test of acquire method with QUEUE policy, of class InFlightLimiter.
+     */
+    @Test
+    public void testAcquire_queue() {
+        InFlightLimiter<String> limiter = new InFlightLimiter<>(1, 0, InFlightLimiter.Policy.QUEUE, 0, 2);
+        AtomicInteger run = new AtomicInteger();
+        assertTrue(limiter.acquire("s1", run::incrementAndGet));
+        assertFalse(limiter.acquire("s1", run::incrementAndGet));
+        assertFalse(limiter.acquire("s1", run::incrementAndGet));
+        assertEquals(limiter.getQueuedCount(), 2);
+        //queue is full
+        try {
+            limiter.acquire("s1", run::incrementAndGet);
+            fail("Not happen");
+        } catch (RpcException e) {
+            //expected
+        }
+        assertEquals(run.get(), 0);
+        //run the first queued task with the released permit
+        limiter.release("s1");
+        assertEquals(run.get(), 1);
+        assertEquals(limiter.getQueuedCount(), 1);
+        assertEquals(limiter.getInFlightCount(), 1);
+        limiter.release("s1");
+        assertEquals(run.get(), 2);
+        limiter.release("s1");
+        assertEquals(limiter.getInFlightCount(), 0);
+        assertEquals(limiter.getQueuedCount(), 0);
+    }
+
+    /**
+     * Test of releasing permit when the callback call fails to send.
+     */
+    @Test
+    public void testSendFailure() {
+        AbstractRpcClientActionFactory.Properties properties = new AbstractRpcClientActionFactory.Properties();
+        properties.setMaxInFlight(1);
+        properties.setInFlightPolicy(InFlightLimiter.Policy.FAIL_FAST);
+        List<Long> completed = new CopyOnWriteArrayList<>();
+        AbstractRpcClientActionFactory<String> factory = new AbstractRpcClientActionFactory<String>(new SessionProvider<String>() {
+
+            @Override
+            public String getSession() {
+                return "s1";
+            }
+
+            @Override
+            public void onCallCompleted(String session, long nanos) {
+                completed.add(nanos);
+            }
+
+            @Override
+            public void returnSession(String session) {
+            }
+
+            @Override
+            public void invalidateSession(String session) {
+            }
+
+            @Override
+            public void close() {
+            }
+        }, properties) {
+
+            @Override
+            protected boolean isSessionOpen(String session) {
+                return true;
+            }
+
+            @Override
+            protected void sendProtocol(String session, Protocol<String> protocol, SendListener listener) {
+                throw new IllegalStateException("Send failed.");
+            }
+        };
+        try {
+            ResultCallback<Object> callback = future -> null;
+            for (int i = 0; i < 3; i++) {
+                try {
+                    factory.invokeAction("/test", "param", callback);
+                    fail("Not happen");
+                } catch (IllegalStateException e) {
+                    assertEquals(e.getMessage(), "Send failed.");
+                }
+                assertEquals(factory.getInFlightLimiter().getInFlightCount(), 0);
+            }
+            //no response time for send failures
+            assertEquals(completed, Arrays.asList(-1L, -1L, -1L));
+        } finally {
+            factory.clear();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+/**
+ * LoadBalancedSessionProviderNGTest.
+ */
+public class LoadBalancedSessionProviderNGTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    //endpoint factories
+    private TestSessionFactory f1;
+
+    private TestSessionFactory f2;
+
+    private LoadBalancedSessionProvider<TestSession> create(LoadBalancer loadBalancer) {
+        f1 = new TestSessionFactory("s1");
+        f2 = new TestSessionFactory("s2");
+        List<MultiplexedSessionProvider<TestSession>> providers = Arrays.asList(
+                new MultiplexedSessionProvider<>(f1, 1), new MultiplexedSessionProvider<>(f2, 1));
+        return new LoadBalancedSessionProvider<>(providers, loadBalancer);
+    }
+
+    /**
+     * Test of getSession method with round robin, of class LoadBalancedSessionProvider.
+     */
+    @Test
+    public void testGetSession_roundRobin() throws Exception {
+        LoadBalancedSessionProvider<TestSession> provider = create(new LoadBalancer.RoundRobin());
+        provider.setRetryDelayMillis(100);
+        assertEquals(provider.getSession().name, "s1");
+        assertEquals(provider.getSession().name, "s2");
+        assertEquals(provider.getSession().name, "s1");
+
+        //endpoint unavailable
+        assertEquals(provider.getSession().name, "s2");
+        f1.failed = true;
+        provider.invalidateSession(provider.getSession());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(provider.getSession().name, "s2");
+        }
+        f1.failed = false;
+        Thread.sleep(150);
+        String name = provider.getSession().name;
+        assertEquals(name.equals("s1") ? name : provider.getSession().name, "s1");
+
+        //all endpoints unavailable
+        f1.failed = true;
+        f2.failed = true;
+        provider.invalidateSession(provider.getSession());
+        provider.invalidateSession(provider.getSession());
+        try {
+            provider.getSession();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "Connect failed.");
+        }
+        provider.close();
+        try {
+            provider.getSession();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("closed"));
+        }
+    }
+
+    /**
+     * Test of getSession method with least pending, of class LoadBalancedSessionProvider.
+     */
+    @Test
+    public void testGetSession_leastPending() throws Exception {
+        LoadBalancedSessionProvider<TestSession> provider = create(new LoadBalancer.LeastPending());
+        TestSession s1 = provider.getSession();
+        TestSession s2 = provider.getSession();
+        assertNotSame(s1, s2);
+        provider.onCallStarted(s1);
+        provider.onCallStarted(s1);
+        provider.onCallStarted(s2);
+        assertEquals(provider.getEndpoints().get(0).getPending(), 2);
+        for (int i = 0; i < 3; i++) {
+            assertSame(provider.getSession(), s2);
+        }
+        provider.onCallCompleted(s1, MILLIS);
+        provider.onCallCompleted(s1);
+        assertEquals(provider.getEndpoints().get(0).getPending(), 0);
+        assertSame(provider.getSession(), s1);
+        provider.close();
+    }
+
+    /**
+     * Test of invalidateSession method with pending calls, of class LoadBalancedSessionProvider.
+     */
+    @Test
+    public void testInvalidateSession_pending() throws Exception {
+        LoadBalancedSessionProvider<TestSession> provider = create(new LoadBalancer.LeastPending());
+        TestSession s1 = provider.getSession();
+        assertEquals(s1.name, "s1");
+        provider.onCallStarted(s1);
+        provider.onCallStarted(s1);
+        provider.invalidateSession(s1);
+        assertFalse(s1.open);
+        assertEquals(provider.getEndpoints().get(0).getPending(), 2);
+
+        //complete after invalidated
+        provider.onCallCompleted(s1, MILLIS);
+        provider.onCallCompleted(s1);
+        assertEquals(provider.getEndpoints().get(0).getPending(), 0);
+        assertEquals(provider.getEndpoints().get(0).getLatencyNanos(), (double) MILLIS);
+        provider.close();
+    }
+
+    /**
+     * Test of getSession method with power of two choices, of class LoadBalancedSessionProvider.
+     */
+    @Test
+    public void testGetSession_powerOfTwoChoices() throws Exception {
+        LoadBalancedSessionProvider<TestSession> provider = create(new LoadBalancer.PowerOfTwoChoices());
+        provider.setDecayMillis(0);
+        TestSession s1 = provider.getSession();
+        TestSession s2 = provider.getSession();
+        while (s1 == s2) {
+            s2 = provider.getSession();
+        }
+        if (s1.name.equals("s2")) {
+            TestSession s = s1;
+            s1 = s2;
+            s2 = s;
+        }
+        //no latency yet, least pending
+        provider.onCallStarted(s1);
+        assertSame(provider.getSession(), s2);
+        provider.onCallCompleted(s1, 10 * MILLIS);
+        provider.onCallStarted(s2);
+        provider.onCallCompleted(s2, 1 * MILLIS);
+        assertEquals(provider.getEndpoints().get(0).getLatencyNanos(), 10.0 * MILLIS, 1.0);
+        for (int i = 0; i < 5; i++) {
+            assertSame(provider.getSession(), s2);
+        }
+        //pending calls weigh the latency
+        for (int i = 0; i < 10; i++) {
+            provider.onCallStarted(s2);
+        }
+        assertSame(provider.getSession(), s1);
+        for (int i = 0; i < 10; i++) {
+            provider.onCallCompleted(s2, 1 * MILLIS);
+        }
+        //moving average
+        provider.onCallStarted(s1);
+        provider.onCallCompleted(s1, 0);
+        assertEquals(provider.getEndpoints().get(0).getLatencyNanos(), 7.0 * MILLIS, 1.0);
+        assertSame(provider.getSession(), s2);
+
+        //busy endpoint still weighs less than the slow one
+        provider.onCallStarted(s2);
+        assertSame(provider.getSession(), s2);
+
+        //decay the idle endpoint towards the mean latency, pending calls still count
+        provider.setDecayMillis(10);
+        Thread.sleep(100);
+        provider.onCallStarted(s2);
+        provider.onCallCompleted(s2, 1 * MILLIS);
+        assertTrue(provider.getEndpoints().get(0).getLatencyWeight() < 0.01);
+        assertEquals(provider.getEndpoints().get(1).getLatencyWeight(), 1.0, 0.5);
+        assertSame(provider.getSession(), s1);
+        for (int i = 0; i < 2; i++) {
+            provider.onCallStarted(s1);
+        }
+        assertSame(provider.getSession(), s2);
+        provider.close();
+    }
+
+    /**
+     * Test of getSession method with power of two choices and no response yet, of class LoadBalancedSessionProvider.
+     */
+    @Test
+    public void testGetSession_powerOfTwoChoices_noSamples() throws Exception {
+        LoadBalancedSessionProvider<TestSession> provider = create(new LoadBalancer.PowerOfTwoChoices());
+        provider.setDecayMillis(0);
+        TestSession s1 = provider.getSession();
+        TestSession s2 = provider.getSession();
+        while (s1 == s2) {
+            s2 = provider.getSession();
+        }
+        provider.onCallStarted(s1);
+        provider.onCallCompleted(s1, 5 * MILLIS);
+        //no sample, latency of the mean
+        assertEquals(provider.getEndpoints().get(s2.name.equals("s1") ? 0 : 1).getLatencyWeight(), 0.0);
+        for (int i = 0; i < 3; i++) {
+            provider.onCallStarted(s2);
+        }
+        assertSame(provider.getSession(), s1);
+        //failures are not samples
+        provider.onCallCompleted(s2, -1);
+        assertEquals(provider.getEndpoints().get(s2.name.equals("s1") ? 0 : 1).getLatencyWeight(), 0.0);
+        assertSame(provider.getSession(), s1);
+        provider.close();
+    }
+
+    /**
+     * Test session.
+     */
+    private static final class TestSession {
+
+        private final String name;
+
+        private volatile boolean open = true;
+
+        TestSession(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Test session factory.
+     */
+    private static final class TestSessionFactory extends BasePooledObjectFactory<TestSession> {
+
+        private final String name;
+
+        private volatile boolean failed = false;
+
+        TestSessionFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public TestSession create() {
+            if (failed) {
+                throw new IllegalStateException("Connect failed.");
+            }
+            return new TestSession(name);
+        }
+
+        @Override
+        public PooledObject<TestSession> wrap(TestSession session) {
+            return new DefaultPooledObject<>(session);
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<TestSession> p) {
+            return p.getObject().open;
+        }
+
+        @Override
+        public void destroyObject(PooledObject<TestSession> p) {
+            p.getObject().open = false;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * MultiplexedSessionProviderNGTest.
+ */
+public class MultiplexedSessionProviderNGTest {
+
+    /**
+     * Test of getSession method, of class MultiplexedSessionProvider.
+     */
+    @Test
+    public void testGetSession_roundRobin() throws Exception {
+        TestSessionFactory factory = new TestSessionFactory();
+        MultiplexedSessionProvider<TestSession> provider = new MultiplexedSessionProvider<>(factory, 2);
+        TestSession s1 = provider.getSession();
+        TestSession s2 = provider.getSession();
+        assertNotSame(s1, s2);
+        assertSame(provider.getSession(), s1);
+        assertSame(provider.getSession(), s2);
+        assertEquals(factory.created.get(), 2);
+
+        //recreate closed session
+        s1.open = false;
+        TestSession s3 = provider.getSession();
+        assertNotSame(s3, s1);
+        assertTrue(s3.open);
+        assertEquals(factory.created.get(), 3);
+
+        provider.invalidateSession(s2);
+        assertEquals(provider.getPendingCount(s2), -1);
+        assertNotSame(provider.getSession(), s2);
+
+        provider.close();
+        assertTrue(!s3.open);
+    }
+
+    /**
+     * Test of getSession method, of class MultiplexedSessionProvider.
+     */
+    @Test
+    public void testGetSession_leastPending() throws Exception {
+        MultiplexedSessionProvider<TestSession> provider = new MultiplexedSessionProvider<>(
+                new TestSessionFactory(), 3, MultiplexedSessionProvider.Strategy.LEAST_PENDING);
+        TestSession s1 = provider.getSession();
+        TestSession s2 = provider.getSession();
+        TestSession s3 = provider.getSession();
+        provider.onCallStarted(s1);
+        provider.onCallStarted(s1);
+        provider.onCallStarted(s3);
+        assertEquals(provider.getPendingCount(s1), 2);
+        for (int i = 0; i < 3; i++) {
+            assertSame(provider.getSession(), s2);
+        }
+        provider.onCallStarted(s2);
+        provider.onCallStarted(s2);
+        assertSame(provider.getSession(), s3);
+        provider.onCallCompleted(s1);
+        provider.onCallCompleted(s1);
+        assertEquals(provider.getPendingCount(s1), 0);
+        assertSame(provider.getSession(), s1);
+        provider.close();
+    }
+
+    /**
+     * Test session.
+     */
+    private static final class TestSession {
+
+        private volatile boolean open = true;
+    }
+
+    /**
+     * Test session factory.
+     */
+    private static final class TestSessionFactory extends BasePooledObjectFactory<TestSession> {
+
+        private final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public TestSession create() {
+            created.incrementAndGet();
+            return new TestSession();
+        }
+
+        @Override
+        public PooledObject<TestSession> wrap(TestSession session) {
+            return new DefaultPooledObject<>(session);
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<TestSession> p) {
+            return p.getObject().open;
+        }
+
+        @Override
+        public void destroyObject(PooledObject<TestSession> p) {
+            p.getObject().open = false;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import net.jrouter.rpc.annotation.RpcCacheable;
+import net.jrouter.rpc.annotation.RpcConsumer;
+import net.jrouter.rpc.metrics.DefaultRpcMetrics;
+import net.jrouter.rpc.protocol.Protocol;
+import net.jrouter.rpc.protocol.RpcProtocol;
+import net.jrouter.rpc.router.ResultCallback;
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+/**
+ * ResultCacheNGTest.
+ */
+public class ResultCacheNGTest {
+
+    /**
+     * Test of get/put method, of class ResultCache.
+     */
+    @Test
+    public void testGet() throws Exception {
+        ResultCache cache = new ResultCache(0, 2);
+        ResultCache.Key k1 = new ResultCache.Key("/a", new byte[]{1});
+        ResultCache.Key k2 = new ResultCache.Key("/a", new byte[]{2});
+        ResultCache.Key k3 = new ResultCache.Key("/b", new byte[]{1});
+        assertEquals(new ResultCache.Key("/a", new byte[]{1}), k1);
+        assertEquals(new ResultCache.Key("/a", null), new ResultCache.Key("/a", new byte[0]));
+        assertNotEquals(k1, k3);
+
+        assertSame(cache.get(k1), ResultCache.MISS);
+        cache.put(k1, "1");
+        cache.put(k2, null);
+        assertEquals(cache.get(k1), "1");
+        assertNull(cache.get(k2));
+        //k1 accessed before k2, evict k1
+        cache.get(k1);
+        cache.put(k3, "3");
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.getEvictions(), 1);
+        assertSame(cache.get(k2), ResultCache.MISS);
+        assertEquals(cache.get(k1), "1");
+        assertEquals(cache.get(k3), "3");
+        assertEquals(cache.getHits(), 5);
+        assertEquals(cache.getMisses(), 2);
+        assertEquals(cache.getHitRate(), 5 / 7.0, 0.0001);
+
+        cache.invalidate(k1);
+        assertSame(cache.get(k1), ResultCache.MISS);
+        cache.clear();
+        assertEquals(cache.size(), 0);
+    }
+
+    /**
+     * Test of get method with ttl, of class ResultCache.
+     */
+    @Test
+    public void testGet_ttl() throws Exception {
+        ResultCache cache = new ResultCache(50, 10);
+        ResultCache.Key k1 = new ResultCache.Key("/a", null);
+        ResultCache.Key k2 = new ResultCache.Key("/b", null);
+        cache.put(k1, "1");
+        cache.put(k2, "2");
+        assertEquals(cache.get(k1), "1");
+        Thread.sleep(80);
+        assertSame(cache.get(k1), ResultCache.MISS);
+        assertEquals(cache.size(), 1);
+        cache.cleanUp();
+        assertEquals(cache.size(), 0);
+    }
+
+    /**
+     * Test of cacheable client methods.
+     */
+    @Test
+    public void testCacheable() throws Exception {
+        List<Object[]> sent = new ArrayList<>();
+        DefaultRpcMetrics metrics = new DefaultRpcMetrics();
+        AbstractRpcClientActionFactory.Properties properties = new AbstractRpcClientActionFactory.Properties();
+        properties.setMetrics(metrics);
+        AbstractRpcClientActionFactory<Object> factory = new AbstractRpcClientActionFactory<Object>(new SessionProvider<Object>() {
+
+            private final Object session = new Object();
+
+            @Override
+            public Object getSession() {
+                return session;
+            }
+
+            @Override
+            public void returnSession(Object session) {
+            }
+
+            @Override
+            public void invalidateSession(Object session) {
+            }
+
+            @Override
+            public void close() {
+            }
+        }, properties) {
+
+            @Override
+            protected boolean isSessionOpen(Object session) {
+                return true;
+            }
+
+            @Override
+            protected void sendProtocol(Object session, Protocol<String> protocol, SendListener listener) {
+                Object[] params = ((RpcProtocol) protocol).getParameters();
+                sent.add(params);
+                RpcProtocol result = new RpcProtocol();
+                result.setId(protocol.getId());
+                result.setResult("fail".equals(params[0]) ? new IllegalStateException() : params[0] + "-" + sent.size());
+                onProtocol(result);
+            }
+        };
+        factory.addActions(CacheInterface.class);
+        try {
+            CacheInterface client = factory.getClient(CacheInterface.class);
+            assertEquals(client.find("a").get(), "a-1");
+            assertEquals(client.find("a").get(), "a-1");
+            assertEquals(client.find("b").get(), "b-2");
+            assertEquals(client.find("a").get(), "a-1");
+            assertEquals(sent.size(), 2);
+
+            //exception not cached
+            ResultCallback<String> callback = future -> {
+                try {
+                    future.get(1, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return null;
+            };
+            client.find("fail", callback);
+            client.find("fail", callback);
+            assertEquals(sent.size(), 4);
+            client.find("c", callback);
+            client.find("c", callback);
+            assertEquals(sent.size(), 5);
+
+            client.uncached("a").get();
+            client.uncached("a").get();
+            assertEquals(sent.size(), 7);
+
+            //overloaded methods of the same path
+            DefaultRpcMetrics.PathMetrics pathMetrics = metrics.getPathMetrics().values().stream()
+                    .filter(m -> m.getCacheHits() + m.getCacheMisses() > 0).findFirst().get();
+            assertTrue(pathMetrics.getPath().endsWith("find"), pathMetrics.getPath());
+            assertEquals(pathMetrics.getCacheHits(), 3);
+            assertEquals(pathMetrics.getCacheMisses(), 5);
+            assertEquals(pathMetrics.getCacheHitRate(), 3 / 8.0, 0.0001);
+        } finally {
+            factory.clear();
+        }
+    }
+
+    /**
+     * 测试接口。
+     */
+    @RpcConsumer
+    public static interface CacheInterface {
+
+        @RpcCacheable(maxSize = 16)
+        CompletableFuture<String> find(String key);
+
+        @RpcCacheable
+        String find(String key, ResultCallback<String> callback);
+
+        CompletableFuture<String> uncached(String key);
+    }
+}
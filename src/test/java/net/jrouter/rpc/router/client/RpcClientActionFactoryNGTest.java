@@ -21,6 +21,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import javax.websocket.SendHandler;
 import jrouter.NotFoundException;
 import jrouter.ObjectFactory;
 import net.jrouter.rpc.DemoClientInterface;
@@ -42,13 +43,25 @@ public class RpcClientActionFactoryNGTest {
 
     private WebSocketClientActionFactory clientActionFactory;
 
+    /** 最近一次调用的参数 */
+    private Object[] lastParams;
+
+    /** 最近一次调用的回调参数 */
+    private ResultCallback lastCallback;
+
+    /** 最近一次调用时的上下文 */
+    private RpcClientContext lastContext;
+
     @BeforeClass
     public void setUpClass() throws Exception {
         clientActionFactory = new WebSocketClientActionFactory(null, new WebSocketClientActionFactory.Properties()) {
             @Override
-            public Object invokeAction(String path, Object... params) throws RpcException {
+            protected Object invoke(String path, ClientMethod method, Object[] actualParams, ResultCallback callback) throws RpcException {
                 //do nothing just return params
-                return params;
+                lastParams = actualParams;
+                lastCallback = callback;
+                lastContext = RpcClientContext.peek();
+                return actualParams;
             }
         };
 
@@ -106,6 +119,44 @@ public class RpcClientActionFactoryNGTest {
         assertEquals(javassistObjectFactory.getClass(client), DemoClientInterface.class);
     }
 
+    /**
+     * Test of positional parameters, of class ClientMethod.
+     */
+    @Test
+    public void testGetClient_positional() throws Exception {
+        ClientMethod method = new ClientMethod("/call", TestInterface.class.getMethod("call",
+                int.class, ResultCallback.class, SendHandler.class, String.class), SendHandler.class::isAssignableFrom);
+        assertTrue(method.isPositional());
+        assertEquals(method.getCallbackIndex(), 1);
+        assertEquals(method.getParameterIndexes(), new int[]{0, 3});
+        method = new ClientMethod("/call", TestInterface.class.getMethod("call", Object.class, ResultCallback.class));
+        assertFalse(method.isPositional());
+        assertEquals(method.getCallbackIndex(), -1);
+        assertNull(method.getParameterIndexes());
+        method = new ClientMethod("/size", TestInterface.class.getMethod("size"));
+        assertTrue(method.isPositional());
+        assertEquals(method.getParameterIndexes().length, 0);
+
+        TestInterface testInterface = clientActionFactory.getClient(TestInterface.class);
+        ResultCallback<String> callback = future -> null;
+        SendHandler handler = result -> {
+        };
+        testInterface.call(1, callback, handler, "str");
+        assertEquals(lastParams, new Object[]{1, "str"});
+        assertSame(lastCallback, callback);
+        assertNull(lastContext);
+
+        //runtime check
+        testInterface.call("obj", callback);
+        assertEquals(lastParams, new Object[]{"obj"});
+        assertSame(lastCallback, callback);
+        assertNull(lastContext);
+
+        testInterface.size();
+        assertNull(lastParams);
+        assertNull(lastCallback);
+    }
+
     /**
      * 测试接口。
      */
@@ -114,5 +165,9 @@ public class RpcClientActionFactoryNGTest {
 
         @Override
         int size();
+
+        void call(int number, ResultCallback<String> callback, SendHandler handler, String str);
+
+        void call(Object obj, ResultCallback<String> callback);
     }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.jrouter.rpc.router.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import net.jrouter.rpc.RpcException;
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+/**
+ * StreamingResultNGTest.
+ */
+public class StreamingResultNGTest {
+
+    /**
+     * Test of iterating, of class StreamingResult.
+     */
+    @Test
+    public void testIterator() throws Exception {
+        CompletableFuture<Object> completion = new CompletableFuture<>();
+        StreamingResult<String> result = new StreamingResult<>(completion);
+        result.offer("a");
+        result.offer(null);
+        assertTrue(result.hasNext());
+        assertEquals(result.next(), "a");
+        assertNull(result.next());
+
+        //consume while arriving
+        Thread producer = new Thread(() -> {
+            result.offer("b");
+            completion.complete(null);
+        });
+        producer.start();
+        assertEquals(result.next(), "b");
+        assertFalse(result.hasNext());
+        assertFalse(result.hasNext());
+        try {
+            result.next();
+            fail("Not happen");
+        } catch (NoSuchElementException e) {
+            //expected
+        }
+        producer.join();
+    }
+
+    /**
+     * Test of failure, of class StreamingResult.
+     */
+    @Test
+    public void testIterator_failure() {
+        CompletableFuture<Object> completion = new CompletableFuture<>();
+        StreamingResult<Integer> result = new StreamingResult<>(completion);
+        result.offer(1);
+        completion.completeExceptionally(new TimeoutException("timeout"));
+        List<Integer> elements = new ArrayList<>();
+        try {
+            while (result.hasNext()) {
+                elements.add(result.next());
+            }
+            fail("Not happen");
+        } catch (RpcException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(elements, Arrays.asList(1));
+    }
+
+    /**
+     * Test of close and stream methods, of class StreamingResult.
+     */
+    @Test
+    public void testStream() {
+        CompletableFuture<Object> completion = new CompletableFuture<>();
+        StreamingResult<Integer> result = new StreamingResult<>(completion);
+        result.offer(1);
+        result.offer(2);
+        completion.complete(null);
+        assertEquals(result.stream().collect(Collectors.toList()), Arrays.asList(1, 2));
+
+        CompletableFuture<Object> cancelled = new CompletableFuture<>();
+        StreamingResult<Integer> closed = new StreamingResult<>(cancelled);
+        closed.offer(1);
+        closed.stream().close();
+        assertTrue(cancelled.isCancelled());
+        assertFalse(closed.hasNext());
+        //discarded
+        closed.offer(2);
+        assertFalse(closed.hasNext());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.client.netty;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import net.jrouter.rpc.DemoClientInterface;
+import net.jrouter.rpc.DemoService;
+import net.jrouter.rpc.RpcException;
+import net.jrouter.rpc.router.ResultCallback;
+import net.jrouter.rpc.router.client.netty.util.ChannelPooledObjectFactory;
+import net.jrouter.rpc.router.result.netty.NettyResult;
+import net.jrouter.rpc.router.server.netty.NettyServerActionFactory;
+import net.jrouter.rpc.transport.netty.NettyChannelHandler;
+import net.jrouter.rpc.transport.netty.NettyChannelInitializer;
+import net.jrouter.rpc.transport.netty.NettyServer;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import static org.testng.Assert.*;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * NettyClientActionFactoryNGTest.
+ */
+@Slf4j
+public class NettyClientActionFactoryNGTest {
+
+    //3s
+    private static final int DEFAULT_WAIT_SECONDS = 3;
+
+    private NettyServerActionFactory nettyServerActionFactory;
+
+    private NettyServer nettyServer;
+
+    private EventLoopGroup clientGroup;
+
+    private NettyClientActionFactory nettyClientActionFactory;
+
+    @BeforeClass
+    public void setUpClass() throws Exception {
+        NettyServerActionFactory.Properties serverProperties = new NettyServerActionFactory.Properties();
+        serverProperties.setDefaultResultType(NettyResult.NETTY);
+        nettyServerActionFactory = new NettyServerActionFactory(serverProperties);
+        nettyServerActionFactory.addResultTypes(new NettyResult());
+        nettyServerActionFactory.addActions(DemoService.class);
+        //random port
+        nettyServer = new NettyServer(0, nettyServerActionFactory);
+        nettyServer.start();
+
+        NettyChannelHandler clientHandler = new NettyChannelHandler();
+        clientGroup = new NioEventLoopGroup(1);
+        Bootstrap bootstrap = new Bootstrap()
+                .group(clientGroup)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new NettyChannelInitializer(clientHandler));
+        GenericObjectPool<Channel> pool = new GenericObjectPool<>(
+                new ChannelPooledObjectFactory(bootstrap, new InetSocketAddress("localhost", nettyServer.getPort())));
+        nettyClientActionFactory = new NettyClientActionFactory(pool, new NettyClientActionFactory.Properties());
+        clientHandler.setRpcActionFactory(nettyClientActionFactory);
+        nettyClientActionFactory.addActions(DemoClientInterface.class);
+    }
+
+    @AfterClass
+    public void tearDownClass() throws Exception {
+        if (nettyClientActionFactory != null) {
+            nettyClientActionFactory.clear();
+        }
+        if (clientGroup != null) {
+            clientGroup.shutdownGracefully();
+        }
+        if (nettyServer != null) {
+            nettyServer.stop();
+        }
+        if (nettyServerActionFactory != null) {
+            nettyServerActionFactory.clear();
+        }
+    }
+
+    @BeforeMethod
+    public void setUpMethod() throws Exception {
+        assertNotNull(nettyClientActionFactory);
+    }
+
+    /**
+     * Test of getClient method, of class NettyClientActionFactory.
+     */
+    @Test
+    public void testGetClient() {
+        DemoClientInterface client = nettyClientActionFactory.getClient(DemoClientInterface.class);
+        assertNotNull(client);
+        final int waitSeconds = DEFAULT_WAIT_SECONDS;
+        final String msg = "netty 您好, hello!";
+        client.echo(msg, (ResultCallback<String>) (Future<String> result) -> {
+            String echo = null;
+            try {
+                echo = result.get(waitSeconds, TimeUnit.SECONDS);
+            } catch (InterruptedException | ExecutionException | TimeoutException ex) {
+                fail("Not happen", ex);
+            }
+            assertEquals(echo, msg);
+            return echo;
+        });
+    }
+
+    /**
+     * Test of async method, of class NettyClientActionFactory.
+     */
+    @Test
+    public void testGetClient_async() throws Exception {
+        DemoClientInterface client = nettyClientActionFactory.getClient(DemoClientInterface.class);
+        final String msg = "netty async 您好, hello!";
+        assertEquals(client.echoAsync(msg).get(DEFAULT_WAIT_SECONDS, TimeUnit.SECONDS), msg);
+
+        try {
+            client.exception(msg).get(DEFAULT_WAIT_SECONDS, TimeUnit.SECONDS);
+            fail("Not happen");
+        } catch (ExecutionException ex) {
+            assertEquals(ex.getCause().getClass(), RpcException.class);
+            assertEquals(ex.getCause().getCause().getClass(), IllegalArgumentException.class);
+        }
+
+        //@RpcProperties callbackTimeoutMillis
+        try {
+            client.sleepAsync(DEFAULT_WAIT_SECONDS * 1000).get(DEFAULT_WAIT_SECONDS, TimeUnit.SECONDS);
+            fail("Not happen");
+        } catch (ExecutionException ex) {
+            assertEquals(ex.getCause().getClass(), TimeoutException.class);
+        }
+    }
+
+    /**
+     * Test of getClient method, of class NettyClientActionFactory.
+     */
+    @Test
+    public void testGetClient_exception() {
+        DemoClientInterface client = nettyClientActionFactory.getClient(DemoClientInterface.class);
+        final int waitSeconds = DEFAULT_WAIT_SECONDS;
+        final String msg = "netty 异常测试 ok!";
+        client.exception(msg, (ResultCallback<RpcException>) (Future<RpcException> result) -> {
+            RpcException rpcEx = null;
+            try {
+                rpcEx = result.get(waitSeconds, TimeUnit.SECONDS);
+            } catch (InterruptedException | ExecutionException | TimeoutException ex) {
+                fail("Not happen", ex);
+            }
+            assertNotNull(rpcEx);
+            assertEquals(rpcEx.getCause().getClass(), IllegalArgumentException.class);
+            return rpcEx;
+        });
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * PathIdTableNGTest.
+ */
+public class PathIdTableNGTest {
+
+    /**
+     * Test of pathId method, of class PathIdTable.
+     */
+    @Test
+    public void testPathId() {
+        String path = "/net.jrouter.rpc.DemoService/echo(java.lang.String)";
+        //stable across instances
+        assertEquals(PathIdTable.pathId(path), PathIdTable.pathId(new String(path)));
+        assertNotEquals(PathIdTable.pathId(path), 0);
+        assertNotEquals(PathIdTable.pathId("/a"), PathIdTable.pathId("/b"));
+        assertNotEquals(PathIdTable.pathId(""), 0);
+    }
+
+    /**
+     * Test of get method, of class PathIdTable.
+     */
+    @Test
+    public void testGet() {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            paths.add("/test/method" + i);
+        }
+        PathIdTable table = new PathIdTable(paths);
+        assertEquals(table.getSize(), 1000);
+        assertEquals(table.getCollisions(), 0);
+        for (String path : paths) {
+            assertTrue(path == table.get(PathIdTable.pathId(path)));
+        }
+        assertNull(table.get(0));
+        assertNull(table.get(PathIdTable.pathId("/test/not_found")));
+        assertNull(PathIdTable.EMPTY.get(PathIdTable.pathId("/test/method0")));
+    }
+
+    /**
+     * Test of collisions, of class PathIdTable.
+     */
+    @Test
+    public void testCollision() {
+        //same FNV-1a hash
+        String p1 = "/test/m91918";
+        String p2 = "/test/m360146";
+        int id = PathIdTable.pathId(p1);
+        assertEquals(PathIdTable.pathId(p2), id);
+        PathIdTable table = new PathIdTable(Arrays.asList(p1, "/test/other", p2));
+        assertEquals(table.getCollisions(), 1);
+        assertNull(table.get(id));
+        assertTrue(table.isAmbiguous(id));
+        assertFalse(table.isAmbiguous(PathIdTable.pathId("/test/other")));
+        assertEquals(table.get(PathIdTable.pathId("/test/other")), "/test/other");
+    }
+}
@@ -17,8 +17,13 @@
 package net.jrouter.rpc.router.impl;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import net.jrouter.rpc.exception.SerializationException;
 import net.jrouter.rpc.protocol.Protocol;
 import net.jrouter.rpc.protocol.RpcProtocol;
+import net.jrouter.rpc.serialize.compress.Compressor;
+import net.jrouter.rpc.serialize.compress.DeflateCompressor;
 import net.jrouter.rpc.serialize.hessian.HessianSerialization;
 import net.jrouter.rpc.util.Constants;
 import static org.testng.Assert.*;
@@ -70,6 +75,195 @@ public class ProtocolSerializationNGTest {
 
     }
 
+    /**
+     * Test of deserialize method with a {@code ByteBuffer} view, of class ProtocolSerialization.
+     */
+    @Test
+    public void testDeserialize_ByteBuffer() {
+        RpcProtocol protocol = new RpcProtocol();
+        protocol.setId(System.currentTimeMillis());
+        protocol.setPath("/test");
+        protocol.setParameters(new Object[]{1, "1"});
+        ByteBuffer frame = protocolSerialization.serializeByteBuffer(protocol);
+
+        //frame inside a larger direct buffer
+        ByteBuffer buffer = ByteBuffer.allocateDirect(frame.remaining() + 8);
+        buffer.putInt(-1);
+        buffer.put(frame);
+        buffer.putInt(-1);
+        buffer.position(4);
+        buffer.limit(buffer.capacity() - 4);
+        RpcProtocol back = protocolSerialization.deserialize(buffer, RpcProtocol.class);
+        assertEquals(buffer.position(), 4);
+        assertEquals(back.getId(), protocol.getId());
+        assertEquals(back.getPath(), protocol.getPath());
+        assertEquals(back.getParameters(), protocol.getParameters());
+    }
+
+    /**
+     * Test of serialize method, of class ProtocolSerialization.
+     */
+    @Test
+    public void testSerialize() {
+        RpcProtocol protocol = new RpcProtocol();
+        protocol.setId(System.currentTimeMillis());
+        protocol.setPath("/test");
+        char[] chars = new char[4096];
+        java.util.Arrays.fill(chars, 'x');
+        protocol.setParameters(new Object[]{1, new String(chars)});
+        ByteBuffer buffer = protocolSerialization.serializeByteBuffer(protocol);
+        assertEquals(buffer.position(), 0);
+        assertEquals(buffer.getInt(12), buffer.limit() - ProtocolSerialization.PROTOCAL_HEADER_SIZE);
+
+        //exact length
+        byte[] bytes = protocolSerialization.serialize(protocol);
+        assertEquals(bytes.length, buffer.limit());
+        RpcProtocol back = protocolSerialization.deserialize(bytes, RpcProtocol.class);
+        assertEquals(back.getId(), protocol.getId());
+        assertEquals(back.getParameters(), protocol.getParameters());
+    }
+
+    /**
+     * Test of serializeBatch/splitBatch method, of class ProtocolSerialization.
+     */
+    @Test
+    public void testBatch() {
+        List<ByteBuffer> frames = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            RpcProtocol protocol = new RpcProtocol();
+            protocol.setId((long) i);
+            protocol.setPath("/test/" + i);
+            frames.add(protocolSerialization.serializeByteBuffer(protocol));
+        }
+        assertFalse(ProtocolSerialization.isBatch(frames.get(0)));
+        ByteBuffer batch = ProtocolSerialization.serializeBatch(frames);
+        assertTrue(ProtocolSerialization.isBatch(batch));
+        assertEquals(batch.get(10), frames.get(0).get(10));
+        assertEquals(batch.getInt(12), batch.limit() - ProtocolSerialization.PROTOCAL_HEADER_SIZE);
+        try {
+            protocolSerialization.deserialize(batch, RpcProtocol.class);
+            fail("Not happen");
+        } catch (SerializationException e) {
+            //expected
+        }
+
+        List<ByteBuffer> split = ProtocolSerialization.splitBatch(batch);
+        assertEquals(batch.position(), 0);
+        assertEquals(split.size(), 3);
+        for (int i = 0; i < 3; i++) {
+            RpcProtocol back = protocolSerialization.deserialize(split.get(i), RpcProtocol.class);
+            assertEquals(back.getId(), Long.valueOf(i));
+            assertEquals(back.getPath(), "/test/" + i);
+        }
+    }
+
+    /**
+     * Test of stream frames, of class ProtocolSerialization.
+     */
+    @Test
+    public void testStream() {
+        for (byte streamType : new byte[]{ProtocolSerialization.PROTOCOL_TYPE_STREAM, ProtocolSerialization.PROTOCOL_TYPE_STREAM_END, 0}) {
+            RpcProtocol protocol = new RpcProtocol();
+            protocol.setId(100L);
+            protocol.setResult("element");
+            protocol.setStreamType(streamType);
+            ByteBuffer frame = protocolSerialization.serializeByteBuffer(protocol);
+            assertEquals(frame.get(11), streamType == 0 ? (byte) -1 : streamType);
+            assertFalse(ProtocolSerialization.isBatch(frame));
+            RpcProtocol back = protocolSerialization.deserialize(frame, RpcProtocol.class);
+            assertEquals(back.getId(), Long.valueOf(100L));
+            assertEquals(back.getResult(), "element");
+            assertEquals(back.getStreamType(), streamType);
+        }
+        //split from batch
+        RpcProtocol protocol = new RpcProtocol();
+        protocol.setId(101L);
+        protocol.setStreamType(ProtocolSerialization.PROTOCOL_TYPE_STREAM);
+        List<ByteBuffer> frames = new ArrayList<>();
+        frames.add(protocolSerialization.serializeByteBuffer(protocol));
+        ByteBuffer batch = ProtocolSerialization.serializeBatch(frames);
+        RpcProtocol back = protocolSerialization.deserialize(ProtocolSerialization.splitBatch(batch).get(0), RpcProtocol.class);
+        assertEquals(back.getStreamType(), ProtocolSerialization.PROTOCOL_TYPE_STREAM);
+    }
+
+    /**
+     * Test of compressFrame method, of class ProtocolSerialization.
+     */
+    @Test
+    public void testCompression() {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            list.add("compressible-data-" + (i % 10));
+        }
+        for (Compressor compressor : Constants.SUPPORTED_COMPRESSORS.values()) {
+            ProtocolSerialization serialization = new ProtocolSerialization(new HessianSerialization(), Constants.SUPPORTED_OBJECT_SERIALIZATIONS);
+            serialization.setCompressor(compressor);
+            RpcProtocol protocol = new RpcProtocol();
+            protocol.setId(100L);
+            protocol.setPath("/test/bulk");
+            protocol.setParameters(new Object[]{list});
+            int originalLength = protocolSerialization.serializeByteBuffer(protocol).remaining();
+            ByteBuffer frame = serialization.serializeByteBuffer(protocol);
+            assertTrue(frame.remaining() < originalLength / 4, compressor + " : " + frame.remaining());
+            //compressor type in header
+            assertEquals(frame.get(10), (byte) (compressor.getType() << 4 | protocol.getSerializationType()));
+            assertEquals(serialization.getObjectSerialization(frame).getClass(), HessianSerialization.class);
+            assertEquals(serialization.fillProtocol(new RpcProtocol(), frame).getSerializationType(), protocol.getSerializationType());
+            //decompressed by any ProtocolSerialization
+            RpcProtocol result = protocolSerialization.deserialize(frame, RpcProtocol.class);
+            assertEquals(result.getId(), protocol.getId());
+            assertEquals(result.getSerializationType(), protocol.getSerializationType());
+            assertEquals(result.getParameters()[0], list);
+
+            //declared original length not matched
+            ByteBuffer data = compressor.compress(protocolSerialization.serializeByteBuffer(protocol));
+            for (int length : new int[]{originalLength - 1, originalLength + 1}) {
+                try {
+                    compressor.decompress(data.duplicate(), length);
+                    fail(compressor + " : " + length);
+                } catch (SerializationException e) {
+                    assertTrue(e.getMessage().contains("decompress Error"), e.getMessage());
+                }
+            }
+
+            //below threshold
+            RpcProtocol small = new RpcProtocol();
+            small.setId(101L);
+            small.setPath("/test/bulk");
+            small.setParameters(new Object[]{"small"});
+            assertEquals(serialization.serializeByteBuffer(small).get(10), small.getSerializationType());
+
+            //disabled by path
+            serialization.setCompressionThreshold("/test/bulk", 0);
+            assertEquals(serialization.serializeByteBuffer(protocol).remaining(), originalLength);
+            //path id
+            RpcProtocol byId = new RpcProtocol();
+            byId.setId(102L);
+            byId.setPathId(PathIdTable.pathId("/test/bulk"));
+            byId.setParameters(new Object[]{list});
+            assertEquals(serialization.serializeByteBuffer(byId).get(10), byId.getSerializationType());
+            serialization.setCompressionThreshold("/test/bulk", 64);
+            assertTrue(serialization.serializeByteBuffer(small).remaining() < originalLength);
+            assertEquals(protocolSerialization.deserialize(serialization.serializeByteBuffer(byId), RpcProtocol.class).getParameters()[0], list);
+        }
+        assertTrue(Constants.SUPPORTED_COMPRESSORS.get((byte) 1) instanceof DeflateCompressor);
+
+        //unknown compressor type
+        ProtocolSerialization serialization = new ProtocolSerialization(new HessianSerialization(), Constants.SUPPORTED_OBJECT_SERIALIZATIONS);
+        serialization.setCompressor(new DeflateCompressor());
+        RpcProtocol protocol = new RpcProtocol();
+        protocol.setId(103L);
+        protocol.setParameters(new Object[]{list});
+        ByteBuffer frame = serialization.serializeByteBuffer(protocol);
+        frame.put(10, (byte) (7 << 4 | protocol.getSerializationType()));
+        try {
+            protocolSerialization.deserialize(frame, RpcProtocol.class);
+            fail();
+        } catch (SerializationException e) {
+            assertTrue(e.getMessage().contains("Compressor type [7]"));
+        }
+    }
+
     /**
      * Test of fillProtocol method, of class ProtocolSerialization.
      */
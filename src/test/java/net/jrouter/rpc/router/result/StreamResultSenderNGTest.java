@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package net.jrouter.rpc.router.result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import net.jrouter.rpc.RpcException;
+import net.jrouter.rpc.protocol.RpcProtocol;
+import net.jrouter.rpc.router.impl.ProtocolSerialization;
+import net.jrouter.rpc.router.server.RpcServerActionFactory;
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+/**
+ * StreamResultSenderNGTest.
+ */
+public class StreamResultSenderNGTest {
+
+    /**
+     * 记录发送帧的发送器，可延迟发送完成。
+     */
+    private static class RecordSender extends StreamResultSender {
+
+        private final List<Object> results = new ArrayList<>();
+
+        private final List<Byte> types = new ArrayList<>();
+
+        private final List<Consumer<Throwable>> listeners = new ArrayList<>();
+
+        private final boolean deferred;
+
+        private boolean writable;
+
+        private boolean open = true;
+
+        RecordSender(Object result, boolean deferred) {
+            this(new RpcProtocol(), result, deferred);
+        }
+
+        RecordSender(RpcProtocol protocol, Object result, boolean deferred) {
+            super(protocol, result);
+            this.deferred = deferred;
+        }
+
+        @Override
+        protected boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        protected boolean isWritable() {
+            return writable;
+        }
+
+        @Override
+        protected void send(RpcProtocol protocol, Consumer<Throwable> listener) {
+            results.add(protocol.getResult());
+            types.add(protocol.getStreamType());
+            if (deferred) {
+                listeners.add(listener);
+            } else {
+                listener.accept(null);
+            }
+        }
+    }
+
+    /**
+     * Test of start method, of class StreamResultSender.
+     */
+    @Test
+    public void testStart() {
+        assertTrue(StreamResultSender.isStreamResult(Arrays.asList(1).iterator()));
+        assertTrue(StreamResultSender.isStreamResult(Stream.of(1)));
+        assertFalse(StreamResultSender.isStreamResult(Arrays.asList(1)));
+        assertFalse(StreamResultSender.isStreamResult(null));
+
+        AtomicBoolean closed = new AtomicBoolean();
+        RecordSender sender = new RecordSender(Stream.of(1, 2, 3).onClose(() -> closed.set(true)), false);
+        sender.start();
+        assertEquals(sender.results, Arrays.asList(1, 2, 3, null));
+        assertEquals(sender.types, Arrays.asList(ProtocolSerialization.PROTOCOL_TYPE_STREAM, ProtocolSerialization.PROTOCOL_TYPE_STREAM,
+                ProtocolSerialization.PROTOCOL_TYPE_STREAM, ProtocolSerialization.PROTOCOL_TYPE_STREAM_END));
+        assertTrue(closed.get());
+
+        //empty
+        sender = new RecordSender(Arrays.asList().iterator(), false);
+        sender.start();
+        assertEquals(sender.results, Arrays.asList((Object) null));
+        assertEquals(sender.types, Arrays.asList(ProtocolSerialization.PROTOCOL_TYPE_STREAM_END));
+    }
+
+    /**
+     * Test of waiting for sent frames, of class StreamResultSender.
+     */
+    @Test
+    public void testStart_deferred() {
+        RecordSender sender = new RecordSender(Arrays.asList(1, 2, 3).iterator(), true);
+        sender.start();
+        //wait for the first frame
+        assertEquals(sender.results, Arrays.asList(1));
+        sender.listeners.get(0).accept(null);
+        assertEquals(sender.results, Arrays.asList(1, 2));
+
+        //continue while writable
+        sender.writable = true;
+        sender.listeners.get(1).accept(null);
+        assertEquals(sender.results, Arrays.asList(1, 2, 3, null));
+        //completed frames not resume
+        sender.listeners.get(2).accept(null);
+        assertEquals(sender.results.size(), 4);
+    }
+
+    /**
+     * Test of iterating and sending failures, of class StreamResultSender.
+     */
+    @Test
+    public void testStart_failure() {
+        RecordSender sender = new RecordSender(Stream.of(1, 2, 3).map(i -> {
+            if (i == 2) {
+                throw new IllegalStateException("2");
+            }
+            return i;
+        }), false);
+        sender.start();
+        assertEquals(sender.results.size(), 2);
+        assertEquals(sender.results.get(0), 1);
+        assertTrue(sender.results.get(1) instanceof RpcException);
+        assertEquals(sender.types.get(1).byteValue(), ProtocolSerialization.PROTOCOL_TYPE_STREAM_END);
+
+        //send failed
+        AtomicBoolean closed = new AtomicBoolean();
+        sender = new RecordSender(Stream.of(1, 2, 3).onClose(() -> closed.set(true)), true);
+        sender.start();
+        sender.listeners.get(0).accept(new IllegalStateException("send failed"));
+        assertTrue(closed.get());
+        assertEquals(sender.results, Arrays.asList(1));
+
+        //session closed
+        sender = new RecordSender(Arrays.asList(1, 2, 3).iterator(), true);
+        sender.start();
+        sender.open = false;
+        sender.listeners.get(0).accept(null);
+        assertEquals(sender.results, Arrays.asList(1));
+    }
+
+    /**
+     * Test of cancel method and resuming executor, of class StreamResultSender.
+     */
+    @Test
+    public void testCancel() {
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicInteger handled = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        RecordSender sender = new RecordSender(Stream.of(1, 2, 3).onClose(() -> closed.set(true)), true);
+        sender.start(tasks::add, handled::incrementAndGet);
+        assertEquals(sender.results, Arrays.asList(1));
+        //resume in the executor
+        sender.listeners.get(0).accept(null);
+        assertEquals(sender.results, Arrays.asList(1));
+        assertEquals(tasks.size(), 1);
+        tasks.remove(0).run();
+        assertEquals(sender.results, Arrays.asList(1, 2));
+
+        sender.cancel();
+        assertFalse(sender.isClosed());
+        sender.listeners.get(1).accept(null);
+        tasks.remove(0).run();
+        //no end of stream
+        assertEquals(sender.results, Arrays.asList(1, 2));
+        assertTrue(sender.isClosed());
+        assertTrue(closed.get());
+        assertEquals(handled.get(), 1);
+    }
+
+    /**
+     * Test of cancelling by the end-of-stream frame, of class RpcServerActionFactory.
+     */
+    @Test
+    public void testCancel_server() {
+        RpcServerActionFactory<Object> serverActionFactory = new RpcServerActionFactory<>(new RpcServerActionFactory.Properties());
+        Object session = new Object();
+        RpcProtocol protocol = new RpcProtocol();
+        protocol.setId(1L);
+        RecordSender sender = new RecordSender(protocol, Arrays.asList(1, 2, 3).iterator(), true);
+        serverActionFactory.startStream(session, "/test", sender);
+        assertEquals(serverActionFactory.getStreamCount(), 1);
+
+        RpcProtocol cancel = new RpcProtocol();
+        cancel.setStreamType(ProtocolSerialization.PROTOCOL_TYPE_STREAM_END);
+        //other session
+        cancel.setId(1L);
+        serverActionFactory.onMessage(serverActionFactory.getObjectSerialization().serialize(cancel), new Object());
+        assertEquals(serverActionFactory.getStreamCount(), 1);
+
+        serverActionFactory.onMessage(serverActionFactory.getObjectSerialization().serialize(cancel), session);
+        assertEquals(serverActionFactory.getStreamCount(), 0);
+        sender.listeners.get(0).accept(null);
+        assertTrue(sender.isClosed());
+        assertEquals(sender.results, Arrays.asList(1));
+
+        //completed stream is removed
+        protocol = new RpcProtocol();
+        protocol.setId(2L);
+        serverActionFactory.startStream(session, "/test", new RecordSender(protocol, Arrays.asList(1).iterator(), false));
+        assertEquals(serverActionFactory.getStreamCount(), 0);
+        serverActionFactory.clear();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.router.server;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import net.jrouter.rpc.protocol.Protocol;
+import net.jrouter.rpc.protocol.RpcProtocol;
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+/**
+ * DispatcherNGTest.
+ *
+ * @see Dispatchers
+ */
+public class DispatcherNGTest {
+
+    /**
+     * Test of onMessage method with thread pool dispatcher, of class RpcServerActionFactory.
+     */
+    @Test(timeOut = 10000)
+    public void testOnMessage_threadPool() throws Exception {
+        RpcServerActionFactory.Properties properties = new RpcServerActionFactory.Properties();
+        properties.setDispatcher(Dispatchers.threadPool(1, 1));
+        BlockingQueue<Object> results = new LinkedBlockingQueue<>();
+        CountDownLatch blocked = new CountDownLatch(1);
+        RpcServerActionFactory<Object> serverActionFactory = new RpcServerActionFactory<Object>(properties) {
+            @Override
+            protected <T> T invokeAction(Protocol<String> protocol, Object session) {
+                try {
+                    blocked.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                results.add(Thread.currentThread().getName() + ":" + protocol.getId());
+                return null;
+            }
+
+            @Override
+            protected void handleError(Protocol<String> protocol, Object session, Throwable t) {
+                results.add(t);
+            }
+        };
+        for (long i = 1; i <= 3; i++) {
+            RpcProtocol protocol = new RpcProtocol();
+            protocol.setPath("/test");
+            protocol.setId(i);
+            //not blocked in the receiving thread
+            assertNull(serverActionFactory.onMessage(serverActionFactory.getObjectSerialization().serialize(protocol), null));
+        }
+        //1 running, 1 queued, 1 rejected
+        assertTrue(results.poll(5, TimeUnit.SECONDS) instanceof Throwable);
+        blocked.countDown();
+        assertEquals(results.poll(5, TimeUnit.SECONDS), "rpc-dispatcher-1:1");
+        assertEquals(results.poll(5, TimeUnit.SECONDS), "rpc-dispatcher-1:2");
+        serverActionFactory.clear();
+    }
+
+    /**
+     * Test of perPath method, of class Dispatchers.
+     */
+    @Test(timeOut = 10000)
+    public void testPerPath() throws Exception {
+        ExecutorService slow = Dispatchers.newThreadPool("slow", 1, 10);
+        ExecutorService other = Dispatchers.newThreadPool("other", 1, 10);
+        Map<String, ExecutorService> executors = Collections.singletonMap("/slow", slow);
+        Dispatcher dispatcher = Dispatchers.perPath(executors, other);
+        BlockingQueue<String> names = new LinkedBlockingQueue<>();
+        dispatcher.dispatch("/slow", () -> names.add(Thread.currentThread().getName()));
+        assertEquals(names.poll(5, TimeUnit.SECONDS), "slow-1");
+        dispatcher.dispatch("/fast", () -> names.add(Thread.currentThread().getName()));
+        assertEquals(names.poll(5, TimeUnit.SECONDS), "other-1");
+        dispatcher.shutdown();
+        assertTrue(slow.isShutdown());
+        assertTrue(other.isShutdown());
+    }
+
+    /**
+     * Test of forkJoin/inline method, of class Dispatchers.
+     */
+    @Test(timeOut = 10000)
+    public void testForkJoin() throws Exception {
+        assertTrue(Dispatchers.inline().isInline());
+        Dispatcher dispatcher = Dispatchers.forkJoin(2);
+        assertFalse(dispatcher.isInline());
+        CountDownLatch latch = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            dispatcher.dispatch("/test", latch::countDown);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Test of virtualThread method, of class Dispatchers.
+     */
+    @Test(timeOut = 10000)
+    public void testVirtualThread() throws Exception {
+        Dispatcher fallback = Dispatchers.inline();
+        Dispatcher dispatcher = Dispatchers.virtualThread(fallback);
+        if (!Dispatchers.isVirtualThreadSupported()) {
+            assertSame(dispatcher, fallback);
+            return;
+        }
+        assertNotSame(dispatcher, fallback);
+        int count = 10000;
+        CountDownLatch latch = new CountDownLatch(count);
+        //blocking tasks
+        for (int i = 0; i < count; i++) {
+            dispatcher.dispatch("/test", () -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        dispatcher.shutdown();
+    }
+}
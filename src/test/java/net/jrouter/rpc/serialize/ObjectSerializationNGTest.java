@@ -17,6 +17,8 @@
 package net.jrouter.rpc.serialize;
 
 import com.esotericsoftware.kryo.KryoException;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Date;
@@ -28,9 +30,13 @@ import net.jrouter.rpc.serialize.fastjson.FastJsonSerialization;
 import net.jrouter.rpc.serialize.fst.FSTSerialization;
 import net.jrouter.rpc.serialize.hessian.HessianSerialization;
 import net.jrouter.rpc.serialize.jackson.JacksonSerialization;
+import net.jrouter.rpc.serialize.kryo.KryoConfiguration;
 import net.jrouter.rpc.serialize.kryo.KryoSerialization;
+import net.jrouter.rpc.util.ByteBufferOutputStream;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -88,6 +94,80 @@ public class ObjectSerializationNGTest {
         }
     }
 
+    /**
+     * Test of id records, of class ObjectSerialization.
+     */
+    @Test
+    public void testSerialize_records() {
+        ObjectSerialization[] objectSerializations = {
+            new FSTSerialization(),
+            new FastJsonSerialization(),
+            new JavaSerialization(),
+            new HessianSerialization(),
+            new JacksonSerialization(),
+            new KryoSerialization()
+        };
+        RpcProtocol single = new RpcProtocol();
+        single.setId(1L);
+        //duplicated id not recorded
+        single.setId(1L);
+        assertEquals(single.getRecords(), Arrays.asList(1L));
+        RpcProtocol multiple = new RpcProtocol();
+        multiple.setId(1L);
+        multiple.setId(2L);
+        multiple.setId(3L);
+        assertEquals(multiple.getRecords(), Arrays.asList(1L, 2L, 3L));
+
+        for (ObjectSerialization serialization : objectSerializations) {
+            for (RpcProtocol p : new RpcProtocol[]{new RpcProtocol(), single, multiple}) {
+                RpcProtocol back = serialization.deserialize(serialization.serialize(p), RpcProtocol.class);
+                assertEquals(back.getId(), p.getId(), serialization.toString());
+                assertEquals(back.getRecords(), p.getRecords(), serialization.toString());
+            }
+        }
+    }
+
+    /**
+     * Test of stream and {@code ByteBuffer} methods, of class ObjectSerialization.
+     */
+    @Test
+    public void testSerialize_stream() {
+        ObjectSerialization[] objectSerializations = {
+            new FSTSerialization(),
+            new FastJsonSerialization(),
+            new JavaSerialization(),
+            new HessianSerialization(),
+            new JacksonSerialization(),
+            new KryoSerialization()
+        };
+
+        for (ObjectSerialization serialization : objectSerializations) {
+            ByteBufferOutputStream out = new ByteBufferOutputStream(16);
+            //leading bytes
+            out.skip(3);
+            serialization.serialize(protocol, out);
+            ByteBuffer heap = out.toByteBuffer();
+            heap.position(3);
+            ByteBuffer direct = ByteBuffer.allocateDirect(heap.remaining());
+            direct.put(heap.duplicate()).flip();
+            byte[] bytes = new byte[heap.remaining()];
+            heap.duplicate().get(bytes);
+
+            for (RpcProtocol back : new RpcProtocol[]{
+                serialization.deserialize(heap, RpcProtocol.class),
+                serialization.deserialize(direct, RpcProtocol.class),
+                serialization.deserialize(new ByteArrayInputStream(bytes), RpcProtocol.class)}) {
+                assertNotNull(back, serialization.toString());
+                assertEquals(back.getId(), protocol.getId());
+                assertEquals(back.getPath(), protocol.getPath());
+                assertEquals(back.getParameters(), protocol.getParameters());
+            }
+            //position not changed
+            assertEquals(heap.position(), 3);
+            assertEquals(direct.position(), 0);
+        }
+    }
+
     /**
      * Test of serialize method, of class KryoSerialization.
      */
@@ -101,6 +181,53 @@ public class ObjectSerializationNGTest {
 //        assertEquals(ex.getCause().getLocalizedMessage(), exception.getCause().getLocalizedMessage());
     }
 
+    /**
+     * Test of exact-length and oversized results, of class KryoSerialization.
+     */
+    @Test
+    public void testKryoSerialization_length() {
+        KryoSerialization serialization = new KryoSerialization();
+        char[] chars = new char[2 * 1024 * 1024];
+        Arrays.fill(chars, 'k');
+        String large = new String(chars);
+        byte[] result = serialization.serialize(large);
+        assertEquals(serialization.deserialize(result, String.class), large);
+
+        //reused output, exact length
+        byte[] small = serialization.serialize("k");
+        assertEquals(small.length, serialization.serialize("k").length);
+        assertEquals(serialization.deserialize(small, String.class), "k");
+
+        byte[] bytes = serialization.serialize(protocol);
+        RpcProtocol back = serialization.deserialize(bytes, RpcProtocol.class);
+        assertEquals(back.getParameters(), protocol.getParameters());
+        ByteBufferOutputStream out = new ByteBufferOutputStream(16);
+        serialization.serialize(protocol, out);
+        assertEquals(out.size(), bytes.length);
+    }
+
+    /**
+     * Test of class registration, of class KryoSerialization.
+     */
+    @Test
+    public void testKryoSerialization_configuration() {
+        KryoConfiguration configuration = new KryoConfiguration()
+                .registerProtocolClasses()
+                .register(DemoModel.class, 100);
+        configuration.setReferences(false);
+        KryoSerialization serialization = new KryoSerialization(configuration);
+        byte[] result = serialization.serialize(protocol);
+        String text = new String(result, StandardCharsets.ISO_8859_1);
+        assertFalse(text.contains(RpcProtocol.class.getName()));
+        assertFalse(text.contains(DemoModel.class.getName()));
+        assertTrue(result.length < new KryoSerialization().serialize(protocol).length);
+
+        RpcProtocol back = new KryoSerialization(configuration).deserialize(result, RpcProtocol.class);
+        assertEquals(back.getId(), protocol.getId());
+        assertEquals(back.getPath(), protocol.getPath());
+        assertEquals(back.getParameters(), protocol.getParameters());
+    }
+
     /**
      * Test of serialize method, of class JacksonSerialization.
      */
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.transport.http.websocket;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import net.jrouter.rpc.RpcException;
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+/**
+ * MessageAssemblerNGTest.
+ */
+public class MessageAssemblerNGTest {
+
+    //fill bytes of value (start + i)
+    private static ByteBuffer bytes(int start, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) (start + i));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    //copy the message, only valid in the callback
+    private static byte[] copy(ByteBuffer message) {
+        byte[] bytes = new byte[message.remaining()];
+        message.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Test of onFragment method, of class MessageAssembler.
+     */
+    @Test
+    public void testOnFragment() {
+        ByteBufferPool pool = new ByteBufferPool(16, 1024, 4096);
+        MessageAssembler assembler = new MessageAssembler(pool, 1024);
+        List<byte[]> messages = new ArrayList<>();
+
+        //whole message without copying
+        ByteBuffer whole = bytes(0, 10);
+        assembler.onFragment(whole, true, (ByteBuffer message) -> {
+            assertSame(message, whole);
+            messages.add(copy(message));
+        });
+        assertEquals(messages.size(), 1);
+        assertEquals(messages.get(0), copy(bytes(0, 10)));
+        assertFalse(assembler.isAssembling());
+
+        //fragments grow the buffer
+        for (int i = 0; i < 10; i++) {
+            assembler.onFragment(bytes(i * 30, 30), false, null);
+            assertTrue(assembler.isAssembling());
+        }
+        assembler.onFragment(bytes(300, 5), true, (ByteBuffer message) -> messages.add(copy(message)));
+        assertEquals(messages.size(), 2);
+        assertEquals(messages.get(1), copy(bytes(0, 305)));
+        assertFalse(assembler.isAssembling());
+        //32 + 64 + 128 + 256 + 512
+        assertEquals(pool.getPooledBytes(), 992);
+
+        //reuse the pooled buffer
+        assembler.onFragment(bytes(0, 300), false, null);
+        assertEquals(pool.getPooledBytes(), 480);
+        assembler.onFragment(null, true, (ByteBuffer message) -> messages.add(copy(message)));
+        assertEquals(messages.get(2), copy(bytes(0, 300)));
+        assertEquals(pool.getPooledBytes(), 992);
+
+        //empty message
+        assembler.onFragment(null, false, null);
+        assembler.onFragment(ByteBuffer.allocate(0), true, (ByteBuffer message) -> messages.add(copy(message)));
+        assertEquals(messages.get(3).length, 0);
+    }
+
+    /**
+     * Test of onFragment method exceeding the max length, of class MessageAssembler.
+     */
+    @Test
+    public void testOnFragment_exceeded() {
+        ByteBufferPool pool = new ByteBufferPool(16, 1024, 4096);
+        MessageAssembler assembler = new MessageAssembler(pool, 100);
+        List<byte[]> messages = new ArrayList<>();
+        assembler.onFragment(bytes(0, 60), false, null);
+        try {
+            assembler.onFragment(bytes(60, 60), false, null);
+            fail();
+        } catch (RpcException e) {
+            assertTrue(e.getMessage().contains("100"));
+        }
+        //discard the remaining fragments
+        assertTrue(assembler.isAssembling());
+        assembler.onFragment(bytes(120, 60), false, (ByteBuffer message) -> messages.add(copy(message)));
+        assembler.onFragment(bytes(180, 60), true, (ByteBuffer message) -> messages.add(copy(message)));
+        assertTrue(messages.isEmpty());
+        assertFalse(assembler.isAssembling());
+        assertEquals(pool.getPooledBytes(), 64);
+
+        //next message
+        assembler.onFragment(bytes(0, 50), false, null);
+        assembler.onFragment(bytes(50, 50), true, (ByteBuffer message) -> messages.add(copy(message)));
+        assertEquals(messages.size(), 1);
+        assertEquals(messages.get(0), copy(bytes(0, 100)));
+        //64 + 128
+        assertEquals(pool.getPooledBytes(), 192);
+
+        //release on close
+        assembler.onFragment(bytes(0, 50), false, null);
+        assembler.release();
+        assertFalse(assembler.isAssembling());
+        assertEquals(pool.getPooledBytes(), 192);
+    }
+
+    /**
+     * Test of onFragment method beyond the pooled capacity, of class MessageAssembler.
+     */
+    @Test
+    public void testOnFragment_unpooled() {
+        ByteBufferPool pool = new ByteBufferPool(16, 64, 4096);
+        MessageAssembler assembler = new MessageAssembler(pool, 2000);
+        List<byte[]> messages = new ArrayList<>();
+        ByteBuffer[] buffers = new ByteBuffer[1];
+        for (int i = 0; i < 30; i++) {
+            assembler.onFragment(bytes(i * 30, 30), false, null);
+        }
+        assembler.onFragment(bytes(900, 100), true, (ByteBuffer message) -> {
+            buffers[0] = message;
+            messages.add(copy(message));
+        });
+        assertEquals(messages.get(0), copy(bytes(0, 1000)));
+        //doubled rather than exact size : 64 -> 128 -> 256 -> 512 -> 1024
+        assertEquals(buffers[0].capacity(), 1024);
+        assertFalse(assembler.isAssembling());
+    }
+
+    /**
+     * Test of acquire/release method, of class ByteBufferPool.
+     */
+    @Test
+    public void testByteBufferPool() {
+        ByteBufferPool pool = new ByteBufferPool(10, 100, 256);
+        assertEquals(pool.getMinCapacity(), 16);
+        assertEquals(pool.getMaxCapacity(), 128);
+        assertEquals(pool.acquire(1).capacity(), 16);
+        ByteBuffer b1 = pool.acquire(100);
+        assertEquals(b1.capacity(), 128);
+        ByteBuffer b2 = pool.acquire(65);
+        ByteBuffer b3 = pool.acquire(128);
+        //not pooled
+        assertEquals(pool.acquire(129).capacity(), 129);
+        pool.release(ByteBuffer.allocate(129));
+        pool.release(ByteBuffer.allocate(100));
+        assertEquals(pool.getPooledBytes(), 0);
+
+        b1.put((byte) 1);
+        pool.release(b1);
+        pool.release(b2);
+        //exceed max pooled bytes
+        pool.release(b3);
+        assertEquals(pool.getPooledBytes(), 256);
+        ByteBuffer b = pool.acquire(120);
+        assertTrue(b == b1 || b == b2);
+        assertEquals(b.position(), 0);
+        assertEquals(b.limit(), 128);
+        assertEquals(pool.getPooledBytes(), 128);
+    }
+}
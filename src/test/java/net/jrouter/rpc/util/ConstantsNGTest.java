@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.util;
+
+import java.nio.ByteBuffer;
+import net.jrouter.rpc.serialize.compress.Compressor;
+import net.jrouter.rpc.serialize.compress.DeflateCompressor;
+import net.jrouter.rpc.serialize.compress.Lz4Compressor;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * ConstantsNGTest.
+ */
+public class ConstantsNGTest {
+
+    /**
+     * Test of SUPPORTED_COMPRESSORS, invalid providers are ignored.
+     */
+    @Test
+    public void testSupportedCompressors() {
+        assertEquals(Constants.SUPPORTED_COMPRESSORS.size(), 2);
+        assertTrue(Constants.SUPPORTED_COMPRESSORS.get((byte) 1) instanceof DeflateCompressor);
+        assertTrue(Constants.SUPPORTED_COMPRESSORS.get((byte) 2) instanceof Lz4Compressor);
+    }
+
+    /**
+     * 类型超出范围的{@code Compressor}.
+     */
+    public static class IllegalTypeCompressor implements Compressor {
+
+        @Override
+        public ByteBuffer compress(ByteBuffer data) {
+            return data;
+        }
+
+        @Override
+        public ByteBuffer decompress(ByteBuffer data, int originalLength) {
+            return data;
+        }
+
+        @Override
+        public byte getType() {
+            return 9;
+        }
+    }
+}
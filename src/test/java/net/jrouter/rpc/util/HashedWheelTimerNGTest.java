@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2010-2111 sunjumper@163.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package net.jrouter.rpc.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * HashedWheelTimerNGTest.
+ */
+public class HashedWheelTimerNGTest {
+
+    private HashedWheelTimer timer;
+
+    @BeforeMethod
+    public void setUp() {
+        //small wheel to test multiple rounds
+        timer = new HashedWheelTimer("HashedWheelTimerNGTest", 10, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        timer.stop();
+    }
+
+    /**
+     * Test of newTimeout method, of class HashedWheelTimer.
+     */
+    @Test(timeOut = 5000)
+    public void testNewTimeout() throws Exception {
+        CountDownLatch latch = new CountDownLatch(2);
+        long start = System.nanoTime();
+        HashedWheelTimer.Timeout t1 = timer.newTimeout(latch::countDown, 30, TimeUnit.MILLISECONDS);
+        //more than one round
+        HashedWheelTimer.Timeout t2 = timer.newTimeout(latch::countDown, 200, TimeUnit.MILLISECONDS);
+        latch.await();
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(t1.isExpired());
+        assertTrue(t2.isExpired());
+        assertFalse(t1.cancel());
+    }
+
+    /**
+     * Test of cancel method, of class HashedWheelTimer.Timeout.
+     */
+    @Test(timeOut = 5000)
+    public void testCancel() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        HashedWheelTimer.Timeout t1 = timer.newTimeout(count::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        HashedWheelTimer.Timeout t2 = timer.newTimeout(latch::countDown, 100, TimeUnit.MILLISECONDS);
+        assertTrue(t1.cancel());
+        assertFalse(t1.cancel());
+        assertTrue(t1.isCancelled());
+        latch.await();
+        assertEquals(count.get(), 0);
+        assertTrue(t2.isExpired());
+    }
+
+    /**
+     * Test of stop method, of class HashedWheelTimer.
+     */
+    @Test(timeOut = 5000, expectedExceptions = IllegalStateException.class)
+    public void testStop() {
+        AtomicInteger count = new AtomicInteger();
+        timer.newTimeout(count::incrementAndGet, 1, TimeUnit.HOURS);
+        timer.stop();
+        assertEquals(count.get(), 0);
+        timer.newTimeout(count::incrementAndGet, 1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Test of stop method before started, of class HashedWheelTimer.
+     */
+    @Test(timeOut = 5000, expectedExceptions = IllegalStateException.class)
+    public void testStop_notStarted() {
+        timer.stop();
+        timer.newTimeout(() -> {
+        }, 1, TimeUnit.MILLISECONDS);
+    }
+}